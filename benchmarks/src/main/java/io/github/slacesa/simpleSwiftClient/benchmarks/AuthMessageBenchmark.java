@@ -0,0 +1,48 @@
+package io.github.slacesa.simpleSwiftClient.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.slacesa.simpleSwiftClient.resources.AuthMessage;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Keystone authentication message construction, sent on every token refresh
+ * @author SLC
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthMessageBenchmark {
+
+	private final AuthMessage message = new AuthMessage("us3Rname", "pas5Word");
+
+	@Benchmark
+	public JsonObject construct() {
+		return new AuthMessage("us3Rname", "pas5Word").parse();
+	}
+
+	@Benchmark
+	public Buffer constructAndEncode() {
+		return new AuthMessage("us3Rname", "pas5Word").parse().toBuffer();
+	}
+
+	@Benchmark
+	public Buffer encode() {
+		return message.parse().toBuffer();
+	}
+}
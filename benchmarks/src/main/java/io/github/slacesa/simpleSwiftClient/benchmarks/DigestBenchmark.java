@@ -0,0 +1,70 @@
+package io.github.slacesa.simpleSwiftClient.benchmarks;
+
+import java.security.MessageDigest;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.slacesa.simpleSwiftClient.DigestReadStream;
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * MD5 ETag computation, as done before a buffer upload and while streaming a file
+ * Compares hashing the NIO views of a buffer with hashing a copy of its bytes
+ * @author SLC
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DigestBenchmark {
+
+	@Param({"1024", "65536", "1048576", "16777216"})
+	public int size;
+
+	private Buffer payload;
+
+	@Setup
+	public void setup() {
+		byte[] bytes = new byte[size];
+		ThreadLocalRandom.current().nextBytes(bytes);
+		payload = Buffer.buffer(bytes);
+	}
+
+	@Benchmark
+	public byte[] bufferViews() {
+		MessageDigest md = DigestReadStream.md5();
+		DigestReadStream.update(md, payload);
+		return md.digest();
+	}
+
+	@Benchmark
+	public byte[] bufferCopy() {
+		MessageDigest md = DigestReadStream.md5();
+		md.update(payload.getBytes());
+		return md.digest();
+	}
+
+	@Benchmark
+	public byte[] streamedChunks() {
+		// 64 KiB chunks, as read from an AsyncFile
+		MessageDigest md = DigestReadStream.md5();
+		for(int offset = 0; offset < size; offset += 65536)
+			DigestReadStream.update(md, payload.slice(offset, Math.min(size, offset + 65536)));
+		return md.digest();
+	}
+}
@@ -0,0 +1,78 @@
+package io.github.slacesa.simpleSwiftClient.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.github.slacesa.simpleSwiftClient.resources.SwiftFile;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.jackson.DatabindCodec;
+import io.vertx.core.parsetools.JsonEventType;
+import io.vertx.core.parsetools.JsonParser;
+
+/**
+ * Container listing decoding, for listings of 10k to 1M entries
+ * Compares decoding the whole array with databind (getFileList) with the Vert.x streaming parser (listFiles) and Jackson streaming
+ * @author SLC
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ListingDecodeBenchmark {
+
+	@Param({"10000", "100000", "1000000"})
+	public int entries;
+
+	private Buffer listing;
+	private ObjectReader reader;
+
+	@Setup
+	public void setup() {
+		listing = Listings.generate(entries);
+		reader = DatabindCodec.mapper().readerFor(SwiftFile.class);
+	}
+
+	@Benchmark
+	public SwiftFile[] databind() {
+		return Json.decodeValue(listing, SwiftFile[].class);
+	}
+
+	@Benchmark
+	public void vertxStreaming(Blackhole blackhole) {
+		JsonParser parser = JsonParser.newParser().objectValueMode();
+		parser.handler(event -> {
+			if(event.type() == JsonEventType.VALUE && event.isObject()) blackhole.consume(event.mapTo(SwiftFile.class));
+		});
+		// Fed in 64 KiB chunks, as received from the network
+		for(int offset = 0; offset < listing.length(); offset += 65536)
+			parser.handle(listing.slice(offset, Math.min(listing.length(), offset + 65536)));
+		parser.end();
+	}
+
+	@Benchmark
+	public void jacksonStreaming(Blackhole blackhole) throws IOException {
+		try(MappingIterator<SwiftFile> files = reader.readValues(listing.getBytes())) {
+			while(files.hasNext()) blackhole.consume(files.next());
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package io.github.slacesa.simpleSwiftClient.benchmarks;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Generates container listings as returned by Swift with policy_extra
+ * @author SLC
+ *
+ */
+final class Listings {
+
+	private Listings() {}
+
+	/**
+	 * A listing of sealed and unsealed files, sorted by name
+	 * @param entries the number of files
+	 * @return the JSON array
+	 */
+	static Buffer generate(int entries) {
+		JsonArray files = new JsonArray();
+		for(int i = 0; i < entries; i++) files.add(entry(i));
+		return files.toBuffer();
+	}
+
+	/**
+	 * A listing entry
+	 * @param i the file number
+	 * @return the JSON object
+	 */
+	static JsonObject entry(int i) {
+		return new JsonObject()
+				.put("name", String.format("backups/%08d.zip", i))
+				.put("hash", "0cc175b9c0f1b6a831c399e269772661")
+				.put("bytes", 1024L * i)
+				.put("content_type", "application/zip")
+				.put("last_modified", "2023-01-31T11:30:12.123450")
+				.put("policy_retrieval_state", (i % 3 == 0)? "sealed" : "unsealed")
+				.put("policy_retrieval_delay", (i % 3 == 0)? 3600 : 0);
+	}
+}
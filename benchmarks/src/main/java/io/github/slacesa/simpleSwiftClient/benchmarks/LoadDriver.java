@@ -0,0 +1,184 @@
+package io.github.slacesa.simpleSwiftClient.benchmarks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.github.slacesa.simpleSwiftClient.SimpleSwiftClient;
+import io.github.slacesa.simpleSwiftClient.resources.SwiftConfig;
+import io.github.slacesa.simple_swift_client.test.MockSwiftServer;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+
+/**
+ * Closed-loop load driver: a fixed number of workers each send one operation after the other for a given duration,
+ * then throughput and latency percentiles are reported. Runs against an in-process mock Swift server by default,
+ * whose latency, bandwidth and failure rate can be set, or against the cluster of a config file
+ * <pre>
+ * java -cp target/benchmarks.jar io.github.slacesa.simpleSwiftClient.benchmarks.LoadDriver --operation upload --concurrency 32 --size 65536 --latency 5
+ * </pre>
+ * Options: --operation (upload, download or mixed), --concurrency, --duration and --warmup (seconds), --size (bytes), --objects,
+ * --latency (milliseconds), --bandwidth (bytes per second and request), --failures (percent of 503), --port, --config (SwiftConfig JSON file)
+ * @author SLC
+ *
+ */
+public class LoadDriver {
+
+	private final Map<String, String> options;
+	private final Vertx vertx;
+	private final int concurrency, size, objects;
+	private final long warmup, duration;
+	private final String operation;
+	private final AtomicLong errors = new AtomicLong(), bytes = new AtomicLong();
+
+	private SimpleSwiftClient client;
+	private MockSwiftServer mock;
+	private Buffer payload;
+	private volatile boolean measuring;
+	private long[][] samples;
+	private int[] counts;
+
+	private LoadDriver(Map<String, String> options) {
+		this.options = options;
+		this.operation = option("operation", "upload");
+		this.concurrency = Integer.parseInt(option("concurrency", "16"));
+		this.size = Integer.parseInt(option("size", "65536"));
+		this.objects = Integer.parseInt(option("objects", "100"));
+		this.warmup = Long.parseLong(option("warmup", "5")) * 1000;
+		this.duration = Long.parseLong(option("duration", "30")) * 1000;
+		this.vertx = Vertx.vertx(SimpleSwiftClient.vertxOptions(new SwiftConfig()));
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>();
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			if(!args[i].startsWith("--")) throw new IllegalArgumentException("Unexpected argument " + args[i]);
+			options.put(args[i].substring(2), args[i + 1]);
+		}
+		LoadDriver driver = new LoadDriver(options);
+		try {
+			driver.run();
+		}
+		finally {
+			driver.close();
+		}
+	}
+
+	private String option(String name, String defaultValue) {
+		return options.getOrDefault(name, defaultValue);
+	}
+
+	private void run() throws Exception {
+		SwiftConfig config;
+		if(options.containsKey("config")) config = Json.decodeValue(vertx.fileSystem().readFileBlocking(options.get("config")), SwiftConfig.class);
+		else {
+			config = StandInServer.config(Integer.parseInt(option("port", "5090")));
+			config.setMax_pool_size(Math.max(config.getMax_pool_size(), concurrency));
+			mock = await(new MockSwiftServer(vertx, config)
+					.setLatency(0, Long.parseLong(option("latency", "0")))
+					.setBandwidth(Long.parseLong(option("bandwidth", "0")))
+					.setFailures(Integer.parseInt(option("failures", "0")), 503, 0)
+					.start());
+		}
+		client = await(SimpleSwiftClient.create(vertx, config));
+		byte[] content = new byte[size];
+		ThreadLocalRandom.current().nextBytes(content);
+		payload = Buffer.buffer(content);
+		if(!operation.equals("upload")) {
+			System.out.println("Storing " + objects + " objects of " + size + " bytes");
+			for(int i = 0; i < objects; i++) await(client.uploadFile(name(i), payload));
+		}
+
+		samples = new long[concurrency][1024];
+		counts = new int[concurrency];
+		CountDownLatch done = new CountDownLatch(concurrency);
+		long end = System.currentTimeMillis() + warmup + duration;
+		System.out.println("Running " + operation + " with " + concurrency + " workers: " + warmup / 1000 + " s warmup, " + duration / 1000 + " s measured");
+		for(int worker = 0; worker < concurrency; worker++) loop(worker, end, done);
+		Thread.sleep(warmup);
+		measuring = true;
+		long start = System.nanoTime();
+		done.await();
+		measuring = false;
+		report(System.nanoTime() - start);
+	}
+
+	/**
+	 * Sends operations one after the other until the end time, on the event loop
+	 */
+	private void loop(int worker, long end, CountDownLatch done) {
+		if(System.currentTimeMillis() >= end) {
+			done.countDown();
+			return;
+		}
+		long start = System.nanoTime();
+		boolean measured = measuring;
+		next().get().onComplete(ar -> {
+			if(measured) {
+				record(worker, System.nanoTime() - start);
+				if(ar.failed()) errors.incrementAndGet();
+				else bytes.addAndGet(size);
+			}
+			loop(worker, end, done);
+		});
+	}
+
+	private Supplier<Future<?>> next() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		boolean upload = operation.equals("upload") || (operation.equals("mixed") && random.nextBoolean());
+		String name = name(random.nextInt(objects));
+		if(upload) return () -> client.uploadFile(name, payload).compose(sent -> sent? Future.succeededFuture() : Future.failedFuture("Upload refused"));
+		return () -> client.downloadFile(name);
+	}
+
+	private void record(int worker, long nanos) {
+		if(counts[worker] == samples[worker].length) samples[worker] = Arrays.copyOf(samples[worker], counts[worker] * 2);
+		samples[worker][counts[worker]++] = nanos;
+	}
+
+	private void report(long elapsed) {
+		int total = 0;
+		for(int count : counts) total += count;
+		long[] all = new long[total];
+		int position = 0;
+		for(int worker = 0; worker < concurrency; worker++) {
+			System.arraycopy(samples[worker], 0, all, position, counts[worker]);
+			position += counts[worker];
+		}
+		Arrays.sort(all);
+		double seconds = elapsed / 1e9;
+		System.out.printf("Operations  %d (%d failed)%n", total, errors.get());
+		System.out.printf("Throughput  %.1f ops/s, %.2f MB/s%n", total / seconds, bytes.get() / seconds / (1024 * 1024));
+		System.out.printf("Latency ms  p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+				percentile(all, 0.5), percentile(all, 0.9), percentile(all, 0.99), percentile(all, 0.999), percentile(all, 1));
+		System.out.println("Endpoint    " + client.guard());
+		if(mock != null) System.out.println("Server      " + mock.requestCount() + " requests, " + mock.injectedCount() + " failures injected");
+	}
+
+	private static double percentile(long[] sorted, double quantile) {
+		if(sorted.length == 0) return 0;
+		int index = (int) Math.ceil(quantile * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+	}
+
+	private static String name(int index) {
+		return String.format("load/%06d.bin", index);
+	}
+
+	private void close() throws Exception {
+		if(client != null) client.close();
+		if(mock != null) await(mock.close());
+		await(vertx.close());
+	}
+
+	private static <T> T await(Future<T> future) throws Exception {
+		return future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.MINUTES);
+	}
+}
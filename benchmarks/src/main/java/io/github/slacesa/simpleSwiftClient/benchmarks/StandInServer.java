@@ -0,0 +1,109 @@
+package io.github.slacesa.simpleSwiftClient.benchmarks;
+
+import java.security.MessageDigest;
+
+import org.joda.time.DateTime;
+
+import io.github.slacesa.simpleSwiftClient.DigestReadStream;
+import io.github.slacesa.simpleSwiftClient.resources.SwiftConfig;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * In-process Keystone and Swift stand-in, derived from the test server, keeping its overhead low so that the client is measured
+ * Uploads are hashed and discarded, every download returns the same payload
+ * @author SLC
+ *
+ */
+final class StandInServer {
+
+	static final String TOKEN = "49nif938f3j9ij94ihif09u3fu4ih34fh99h43hf9h";
+
+	private final Buffer payload;
+	private final String payloadHash;
+
+	private StandInServer(Buffer payload) {
+		this.payload = payload;
+		MessageDigest md = DigestReadStream.md5();
+		DigestReadStream.update(md, payload);
+		StringBuilder hex = new StringBuilder();
+		for(byte b : md.digest()) hex.append(String.format("%02x", b));
+		this.payloadHash = hex.toString();
+	}
+
+	/**
+	 * Starts a stand-in server
+	 * @param vertx the Vert.x instance
+	 * @param port the listening port
+	 * @param payload the content of every downloaded object
+	 * @return a future to the listening server
+	 */
+	static Future<HttpServer> start(Vertx vertx, int port, Buffer payload) {
+		return start(vertx, new HttpServerOptions().setPort(port), payload);
+	}
+
+	/**
+	 * Starts a stand-in server with specific options, e.g. SSL
+	 * @param vertx the Vert.x instance
+	 * @param options the server options, including the listening port
+	 * @param payload the content of every downloaded object
+	 * @return a future to the listening server
+	 */
+	static Future<HttpServer> start(Vertx vertx, HttpServerOptions options, Buffer payload) {
+		StandInServer server = new StandInServer(payload);
+		return vertx.createHttpServer(options).requestHandler(server::handle).listen();
+	}
+
+	/**
+	 * A client config pointing to a stand-in server
+	 * @param port the server port
+	 * @return the config
+	 */
+	static SwiftConfig config(int port) {
+		SwiftConfig config = new SwiftConfig();
+		config.setUsername("us3Rname");
+		config.setPassword("pas5Word");
+		config.setAuth_host("localhost");
+		config.setAuth_endpoint("/auth");
+		config.setStorage_host("localhost");
+		config.setStorage_endpoint("/storage");
+		config.setPort(port);
+		return config;
+	}
+
+	private void handle(HttpServerRequest request) {
+		if(request.path().equals("/auth")) {
+			request.body().onSuccess(body -> request.response()
+					.putHeader("Content-Type", "application/json")
+					.putHeader("X-Subject-Token", TOKEN)
+					.setStatusCode(201)
+					.end(new JsonObject().put("token", new JsonObject().put("expires_at", DateTime.now().plusDays(1).toString())).encode()));
+		}
+		else if(!TOKEN.equals(request.getHeader("X-Auth-Token"))) request.response().setStatusCode(401).end();
+		else if(request.method() == HttpMethod.PUT) {
+			MessageDigest md = DigestReadStream.md5();
+			request.handler(chunk -> DigestReadStream.update(md, chunk));
+			request.endHandler(v -> {
+				StringBuilder hex = new StringBuilder();
+				for(byte b : md.digest()) hex.append(String.format("%02x", b));
+				request.response().putHeader("Etag", hex.toString()).setStatusCode(201).end();
+			});
+		}
+		else if(request.method() == HttpMethod.GET || request.method() == HttpMethod.HEAD) {
+			request.response()
+			.putHeader("Etag", payloadHash)
+			.putHeader("Content-Type", "application/octet-stream");
+			if(request.method() == HttpMethod.HEAD)
+				request.response().putHeader("Content-Length", Integer.toString(payload.length())).end();
+			else request.response().end(payload);
+		}
+		else if(request.method() == HttpMethod.DELETE) request.response().setStatusCode(204).end();
+		else request.response().setStatusCode(405).end();
+	}
+}
@@ -0,0 +1,141 @@
+package io.github.slacesa.simpleSwiftClient.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.slacesa.simpleSwiftClient.SimpleSwiftClient;
+import io.github.slacesa.simpleSwiftClient.resources.SwiftConfig;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.net.JdkSSLEngineOptions;
+import io.vertx.core.net.OpenSSLEngineOptions;
+import io.vertx.core.net.PfxOptions;
+
+/**
+ * Upload and download throughput over TLS against an in-process stand-in server, comparing the JDK and OpenSSL engines
+ * and the NIO and epoll transports (ssl_engine and native_transport). The server uses the same engine as the client.
+ * A combination that is not available (no netty-tcnative, no epoll) fails instead of silently measuring the fallback
+ * Divide the payload size by the average time to get the throughput
+ * @author SLC
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TlsTransferBenchmark {
+
+	private static final int PORT = 5443;
+	private static final String STORE_PASSWORD = "standin";
+
+	@Param({"1048576", "16777216"})
+	public int size;
+
+	@Param({"jdk", "openssl"})
+	public String ssl_engine;
+
+	@Param({"false", "true"})
+	public boolean native_transport;
+
+	private Vertx vertx;
+	private HttpServer server;
+	private SimpleSwiftClient client;
+	private Buffer payload;
+	private Path keyStore;
+
+	@Setup
+	public void setup() throws Exception {
+		if("openssl".equals(ssl_engine) && !OpenSSLEngineOptions.isAvailable())
+			throw new IllegalStateException("OpenSSL engine not available");
+		byte[] bytes = new byte[size];
+		ThreadLocalRandom.current().nextBytes(bytes);
+		payload = Buffer.buffer(bytes);
+		keyStore = selfSigned();
+		// The client trusts the JVM trust store, pointed to the self-signed certificate of the stand-in
+		System.setProperty("javax.net.ssl.trustStore", keyStore.toString());
+		System.setProperty("javax.net.ssl.trustStorePassword", STORE_PASSWORD);
+		System.setProperty("javax.net.ssl.trustStoreType", "PKCS12");
+		SwiftConfig config = StandInServer.config(PORT);
+		config.setSsl(true);
+		config.setSsl_engine(ssl_engine);
+		config.setNative_transport(native_transport);
+		vertx = Vertx.vertx(SimpleSwiftClient.vertxOptions(config));
+		if(native_transport && !vertx.isNativeTransportEnabled())
+			throw new IllegalStateException("Native transport not available");
+		server = await(StandInServer.start(vertx, new HttpServerOptions()
+				.setPort(PORT)
+				.setSsl(true)
+				.setSslEngineOptions("openssl".equals(ssl_engine)? new OpenSSLEngineOptions() : new JdkSSLEngineOptions())
+				.setKeyCertOptions(new PfxOptions().setPath(keyStore.toString()).setPassword(STORE_PASSWORD)), payload));
+		client = await(SimpleSwiftClient.create(vertx, config));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		client.close();
+		await(server.close());
+		await(vertx.close());
+		Files.deleteIfExists(keyStore);
+	}
+
+	@Benchmark
+	public Boolean uploadBuffer() throws Exception {
+		return await(client.uploadFile("bench.bin", payload));
+	}
+
+	@Benchmark
+	public Buffer downloadBuffer() throws Exception {
+		return await(client.downloadFile("bench.bin"));
+	}
+
+	/**
+	 * Generates a key pair and a self-signed certificate for localhost with the JDK keytool
+	 * @return the PKCS12 store holding them
+	 */
+	private static Path selfSigned() throws IOException, InterruptedException {
+		File store = File.createTempFile("swift-bench-keystore", ".p12");
+		Files.delete(store.toPath());
+		Process keytool = new ProcessBuilder(
+				System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool",
+				"-genkeypair", "-alias", "standin", "-keyalg", "RSA", "-keysize", "2048", "-validity", "2",
+				"-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+				"-storetype", "PKCS12", "-keystore", store.getPath(), "-storepass", STORE_PASSWORD, "-keypass", STORE_PASSWORD)
+				.redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.INHERIT)
+				.start();
+		if(keytool.waitFor() != 0) throw new IOException("keytool failed with status " + keytool.exitValue());
+		return store.toPath();
+	}
+
+	private static <T> T await(Future<T> future) throws Exception {
+		try {
+			return future.toCompletionStage().toCompletableFuture().get(1, TimeUnit.MINUTES);
+		}
+		catch (java.util.concurrent.ExecutionException e) {
+			if(e.getCause() instanceof Exception) throw (Exception) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package io.github.slacesa.simpleSwiftClient.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.slacesa.simpleSwiftClient.SimpleSwiftClient;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+
+/**
+ * End to end upload and download throughput against an in-process stand-in server, over the loopback interface
+ * Divide the payload size by the average time to get the throughput
+ * @author SLC
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+	private static final int PORT = 5080;
+
+	@Param({"4096", "1048576", "16777216"})
+	public int size;
+
+	private Vertx vertx;
+	private HttpServer server;
+	private SimpleSwiftClient client;
+	private Buffer payload;
+	private File source, target;
+
+	@Setup
+	public void setup() throws Exception {
+		byte[] bytes = new byte[size];
+		ThreadLocalRandom.current().nextBytes(bytes);
+		payload = Buffer.buffer(bytes);
+		source = File.createTempFile("swift-bench-source", ".bin");
+		target = File.createTempFile("swift-bench-target", ".bin");
+		Files.write(source.toPath(), bytes);
+		vertx = Vertx.vertx();
+		server = await(StandInServer.start(vertx, PORT, payload));
+		client = await(SimpleSwiftClient.create(vertx, StandInServer.config(PORT)));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		client.close();
+		await(server.close());
+		await(vertx.close());
+		Files.deleteIfExists(source.toPath());
+		Files.deleteIfExists(target.toPath());
+	}
+
+	@Benchmark
+	public Boolean uploadBuffer() throws Exception {
+		return await(client.uploadFile("bench.bin", payload));
+	}
+
+	@Benchmark
+	public Boolean uploadStreamed() throws Exception {
+		return await(client.uploadFile(source.getPath()));
+	}
+
+	@Benchmark
+	public Buffer downloadBuffer() throws Exception {
+		return await(client.downloadFile("bench.bin"));
+	}
+
+	@Benchmark
+	public Void downloadToFile() throws Exception {
+		return await(client.downloadToFile("bench.bin", target.getPath()));
+	}
+
+	private static <T> T await(Future<T> future) throws Exception {
+		try {
+			return future.toCompletionStage().toCompletableFuture().get(1, TimeUnit.MINUTES);
+		}
+		catch (java.util.concurrent.ExecutionException e) {
+			if(e.getCause() instanceof Exception) throw (Exception) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+}
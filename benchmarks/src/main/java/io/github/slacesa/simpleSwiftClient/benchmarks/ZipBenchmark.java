@@ -0,0 +1,120 @@
+package io.github.slacesa.simpleSwiftClient.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.slacesa.zipper.Zipper;
+import io.vertx.core.Vertx;
+
+/**
+ * Throughput of the parallel zip engine, by number of compression threads and deflate level
+ * The folder holds text-like (compressible) files and random (incompressible) .jpg files, stored when storeMedia is set.
+ * The inputBytes counter is the archived volume per second, inputBytesPerCore the same divided by the parallelism
+ * @author SLC
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ZipBenchmark {
+
+	private static final int FILES = 48;
+	private static final int FILE_SIZE = 1024 * 1024;
+
+	@Param({"1", "2", "4", "8"})
+	public int parallelism;
+
+	@Param({"1", "5"})
+	public int level;
+
+	@Param({"true", "false"})
+	public boolean storeMedia;
+
+	private Vertx vertx;
+	private Zipper zipper;
+	private Path folder;
+	private long folderSize;
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Counters {
+		public long inputBytes, inputBytesPerCore;
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		vertx = Vertx.vertx();
+		zipper = Zipper.create(vertx).setParallelism(parallelism).setCompressionLevel(level)
+				.setStoredExtensions(storeMedia? Arrays.asList("jpg") : Arrays.<String>asList());
+		folder = Files.createTempDirectory("swift-zip-bench");
+		Random random = new Random(42);
+		String[] words = {"backup", "swift", "object", "container", "segment", "manifest", "token", "zip", "2023-01-31T11:30:12"};
+		for(int i = 0; i < FILES; i++) {
+			byte[] content = new byte[FILE_SIZE];
+			if(i % 3 == 0) random.nextBytes(content);
+			else {
+				StringBuilder text = new StringBuilder(FILE_SIZE + 32);
+				while(text.length() < FILE_SIZE) text.append(words[random.nextInt(words.length)]).append(random.nextInt(1000)).append(' ');
+				content = text.substring(0, FILE_SIZE).getBytes();
+			}
+			Files.write(folder.resolve(String.format("file%02d.%s", i, (i % 3 == 0)? "jpg" : "log")), content);
+			folderSize += content.length;
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		zipper.close();
+		vertx.close();
+		try(Stream<Path> walk = Files.walk(folder)) {
+			walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public long zip(Counters counters) throws IOException {
+		CountingSink sink = new CountingSink();
+		zipper.zipTo(folder.toString(), "benchPassword", sink);
+		counters.inputBytes += folderSize;
+		counters.inputBytesPerCore += folderSize / parallelism;
+		return sink.count;
+	}
+
+	private static class CountingSink extends OutputStream {
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) {
+			count += length;
+		}
+	}
+}
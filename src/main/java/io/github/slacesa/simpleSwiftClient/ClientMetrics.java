@@ -0,0 +1,275 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import io.github.slacesa.zipper.PipedReadStream;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import io.vertx.ext.web.client.predicate.ResponsePredicateResult;
+
+/**
+ * Micrometer instrumentation of a client and of its container clients
+ * Every HTTP request is sent through this class, timed and tagged with its operation, container, status code and outcome.
+ * Bytes sent are counted from the request body itself (buffers, including encoded JSON, and the counting streams the client sends: chunked,
+ * streamed, zip and tar uploads), bytes received from the buffered response body, or its Content-Length when the body is piped.
+ * Gauges follow the endpoint guard and the token expiry. Every meter is tagged with the endpoint, the account and a client name,
+ * stable across restarts: clients of the same account sharing a registry need distinct names (SwiftConfig.metrics_client).
+ * Connection pool metrics come from Vert.x itself, when its Micrometer metrics are enabled (see SimpleSwiftClient.vertxOptions())
+ * @author SLC
+ *
+ */
+class ClientMetrics {
+
+	static final String REQUESTS = "swift.client.requests";
+	static final String BYTES = "swift.client.bytes";
+	static final String ACTIVE = "swift.client.requests.active";
+	static final String ZIP = "swift.client.zip";
+
+
+	private final String accountEndpoint;
+	private final Tags common;
+	private final AtomicInteger active = new AtomicInteger();
+	private final Set<Meter> meters = ConcurrentHashMap.newKeySet();
+	private volatile MeterRegistry registry;
+	private EndpointGuard guard;
+	private KeystoneToken tokens;
+
+	/**
+	 * @param registry the registry meters are recorded to
+	 * @param endpoint the storage host and port
+	 * @param accountEndpoint the account path, containers are the path element that follows it
+	 * @param client the client name
+	 */
+	ClientMetrics(MeterRegistry registry, String endpoint, String accountEndpoint, String client) {
+		this.registry = registry;
+		this.accountEndpoint = accountEndpoint;
+		this.common = Tags.of("endpoint", endpoint, "account", accountEndpoint, "client", client);
+	}
+
+	/**
+	 * Registers the gauges following the endpoint guard and the token
+	 * @param guard the endpoint guard
+	 * @param tokens the account token
+	 */
+	void bind(EndpointGuard guard, KeystoneToken tokens) {
+		this.guard = guard;
+		this.tokens = tokens;
+		track(Gauge.builder(ACTIVE, active, AtomicInteger::get).tags(common).register(registry));
+		track(Gauge.builder("swift.client.inflight", guard, EndpointGuard::getInFlight).tags(common).register(registry));
+		track(Gauge.builder("swift.client.queued", guard, EndpointGuard::getQueued).tags(common).register(registry));
+		track(Gauge.builder("swift.client.limit", guard, EndpointGuard::getLimit).tags(common).register(registry));
+		track(Gauge.builder("swift.client.circuit", guard, g -> g.getState().ordinal())
+		.description("0 closed, 1 open, 2 half open").tags(common).register(registry));
+		track(Gauge.builder("swift.client.token.expiry", tokens, t -> t.expiresIn() / 1000.0)
+		.description("Seconds before the token expires, negative without token").baseUnit("seconds").tags(common).register(registry));
+	}
+
+	/**
+	 * Moves every meter to another registry: they are removed from the previous one, values recorded there are not carried over
+	 * @param registry the new registry
+	 */
+	void setRegistry(MeterRegistry registry) {
+		MeterRegistry previous = this.registry;
+		this.registry = registry;
+		for(Meter meter : meters) previous.remove(meter);
+		meters.clear();
+		if(guard != null) bind(guard, tokens);
+	}
+
+	/**
+	 * Sends a request without body
+	 * @param request the request
+	 * @param handler the response handler, called once the request is recorded
+	 */
+	<T> void send(HttpRequest<T> request, Handler<AsyncResult<HttpResponse<T>>> handler) {
+		request.send(measure(request, null, () -> 0, handler));
+	}
+
+	/**
+	 * Sends a request without body whose response must meet an expectation, its status is recorded even when it does not
+	 * @param request the request
+	 * @param expectation the response expectation
+	 * @param handler the response handler, called once the request is recorded
+	 */
+	<T> void send(HttpRequest<T> request, ResponsePredicate expectation, Handler<AsyncResult<HttpResponse<T>>> handler) {
+		Handler<AsyncResult<HttpResponse<T>>> measured = measure(request, null, () -> 0, handler);
+		request.expect(expectation).send(measured);
+	}
+
+	/**
+	 * Sends a request with a buffer body
+	 * @param request the request
+	 * @param body the body, counted as sent
+	 * @param handler the response handler, called once the request is recorded
+	 */
+	<T> void sendBuffer(HttpRequest<T> request, Buffer body, Handler<AsyncResult<HttpResponse<T>>> handler) {
+		request.sendBuffer(body, measure(request, null, body::length, handler));
+	}
+
+	/**
+	 * Sends a request streaming its body
+	 * @param request the request
+	 * @param body the body, counted by the stream itself or by the request Content-Length
+	 * @param handler the response handler, called once the request is recorded
+	 */
+	<T> void sendStream(HttpRequest<T> request, ReadStream<Buffer> body, Handler<AsyncResult<HttpResponse<T>>> handler) {
+		request.sendStream(body, measure(request, null, () -> sent(request, body), handler));
+	}
+
+	/**
+	 * Sends an authentication request with a buffer body
+	 * @param request the request
+	 * @param body the body, counted as sent
+	 * @param handler the response handler, called once the request is recorded
+	 */
+	<T> void sendAuth(HttpRequest<T> request, Buffer body, Handler<AsyncResult<HttpResponse<T>>> handler) {
+		request.sendBuffer(body, measure(request, "auth", body::length, handler));
+	}
+
+	/**
+	 * Times a request from now until its response handler is called
+	 * The response head is captured by an expectation, set before those the request is sent with: a response they reject
+	 * is still recorded with its status
+	 * @param request the request about to be sent
+	 * @param operation the operation name, null to name it from the request
+	 * @param sent the bytes of the request body, read once the request has completed
+	 * @param handler the response handler
+	 * @return the handler recording the request before calling handler
+	 */
+	private <T> Handler<AsyncResult<HttpResponse<T>>> measure(HttpRequest<T> request, String operation, LongSupplier sent, Handler<AsyncResult<HttpResponse<T>>> handler) {
+		long start = System.nanoTime();
+		active.incrementAndGet();
+		AtomicReference<HttpResponse<Void>> head = new AtomicReference<>();
+		request.expect(response -> {
+			head.set(response);
+			return ResponsePredicateResult.success();
+		});
+		return ar -> {
+			active.decrementAndGet();
+			record(request, operation, head.get(), ar.succeeded()? ar.result().body() : null, sent.getAsLong(), System.nanoTime() - start);
+			handler.handle(ar);
+		};
+	}
+
+	/**
+	 * Times a zip operation
+	 * @param zip the zip future
+	 * @return the same future
+	 */
+	<T> Future<T> timeZip(Future<T> zip) {
+		long start = System.nanoTime();
+		return zip.onComplete(ar -> track(Timer.builder(ZIP)
+				.tags(common)
+				.tag("outcome", ar.succeeded()? "SUCCESS" : "FAILURE")
+				.register(registry)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+	}
+
+	private void record(HttpRequest<?> request, String operation, HttpResponse<Void> response, Object body, long sent, long nanos) {
+		String uri = (request.uri() == null)? "" : request.uri();
+		String method = (request.method() == null)? "" : request.method().name();
+		Tags tags = common.and(
+				"operation", (operation != null)? operation : operation(method, uri, request.queryParams(), request.headers().get("Range")),
+				"container", (operation != null)? "none" : container(uri));
+		int status = (response == null)? 0 : response.statusCode();
+		track(Timer.builder(REQUESTS)
+		.tags(tags)
+		.tags("status", (status == 0)? "none" : Integer.toString(status), "outcome", outcome(status))
+		.publishPercentileHistogram()
+		.register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+		if(sent > 0) bytes(tags, "sent", sent);
+		long received = received(response, body);
+		if(received > 0) bytes(tags, "received", received);
+	}
+
+	/**
+	 * The bytes of a streamed request body, counted by the stream sent or announced by the request Content-Length
+	 */
+	private static long sent(HttpRequest<?> request, ReadStream<Buffer> body) {
+		if(body instanceof DigestReadStream) return ((DigestReadStream) body).length();
+		if(body instanceof PipedReadStream) return ((PipedReadStream) body).length();
+		return length(request.headers().get("Content-Length"));
+	}
+
+	/**
+	 * The bytes of the response body, buffered or announced by Content-Length when it is piped or decoded as it arrives
+	 */
+	private static long received(HttpResponse<Void> response, Object body) {
+		if(body instanceof Buffer) return ((Buffer) body).length();
+		return (response == null)? 0 : length(response.getHeader("Content-Length"));
+	}
+
+	private void bytes(Tags tags, String direction, long amount) {
+		track(DistributionSummary.builder(BYTES)
+		.baseUnit("bytes")
+		.tags(tags)
+		.tag("direction", direction)
+		.publishPercentileHistogram()
+		.register(registry)).record(amount);
+	}
+
+	private <M extends Meter> M track(M meter) {
+		meters.add(meter);
+		return meter;
+	}
+
+	private String operation(String method, String uri, MultiMap query, String range) {
+		boolean container = container(uri).equals(objectPath(uri));
+		switch(method) {
+		case "PUT": return query.contains("multipart-manifest")? "manifest" : "upload";
+		case "DELETE": return "delete";
+		case "POST": return query.contains("bulk-delete")? "bulk_delete" : "post";
+		case "HEAD": return container? "container_head" : "head";
+		case "GET":
+			if(uri.equals("/info")) return "info";
+			if(container) return "list";
+			return "bytes=0-0".equals(range)? "unseal" : "download";
+		default: return method.toLowerCase();
+		}
+	}
+
+	private String container(String uri) {
+		String path = objectPath(uri);
+		int slash = path.indexOf('/');
+		return (slash < 0)? path : path.substring(0, slash);
+	}
+
+	private String objectPath(String uri) {
+		int query = uri.indexOf('?');
+		String path = (query < 0)? uri : uri.substring(0, query);
+		return path.startsWith(accountEndpoint)? path.substring(accountEndpoint.length()) : path;
+	}
+
+	private static String outcome(int status) {
+		if(status == 0) return "FAILURE";
+		if(status < 400) return "SUCCESS";
+		if(status < 500) return "CLIENT_ERROR";
+		return "SERVER_ERROR";
+	}
+
+	private static long length(String header) {
+		try {
+			return (header == null)? 0 : Long.parseLong(header);
+		}
+		catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Cuts data into content defined chunks with a gear rolling hash (as in FastCDC): a boundary is placed where the hash of the last
+ * bytes matches a mask, so an insertion or deletion only changes the chunks around it and the following ones are found again.
+ * Normalized chunking: a harder mask before the average size and an easier one after keep chunk sizes close to the average,
+ * between a quarter and four times of it
+ * @author SLC
+ *
+ */
+final class ContentChunker {
+
+	// Fixed seed: the table must never change, or every boundary would move
+	private static final long[] GEAR = gear(0x5eedcdcL);
+
+	private final int minSize, averageSize, maxSize;
+	private final long hardMask, easyMask;
+
+	private Buffer current = Buffer.buffer();
+	private long hash;
+
+	/**
+	 * @param averageSize the expected chunk size, rounded down to a power of two
+	 */
+	ContentChunker(long averageSize) {
+		int bits = 63 - Long.numberOfLeadingZeros(Math.max(64, Math.min(averageSize, 256L * 1024 * 1024)));
+		this.averageSize = 1 << bits;
+		this.minSize = this.averageSize / 4;
+		this.maxSize = this.averageSize * 4;
+		// High bits of the gear hash depend on the most bytes
+		this.hardMask = -1L << (64 - bits - 2);
+		this.easyMask = -1L << (64 - bits + 2);
+	}
+
+	/**
+	 * Feeds data
+	 * @param data the next bytes of the stream
+	 * @return the chunks completed by data, possibly none
+	 */
+	List<Buffer> feed(Buffer data) {
+		List<Buffer> chunks = new ArrayList<>(1);
+		// Bytes are read in place, data is only copied into the chunks
+		int size = data.length(), start = 0, carried = current.length();
+		for(int i = 0; i < size; i++) {
+			int length = carried + i - start + 1;
+			if(length <= minSize) continue;
+			hash = (hash << 1) + GEAR[data.getByte(i) & 0xFF];
+			if((hash & ((length < averageSize)? hardMask : easyMask)) == 0 || length >= maxSize) {
+				current.appendBuffer(data, start, i + 1 - start);
+				chunks.add(current);
+				current = Buffer.buffer();
+				hash = 0;
+				start = i + 1;
+				carried = 0;
+			}
+		}
+		current.appendBuffer(data, start, size - start);
+		return chunks;
+	}
+
+	/**
+	 * Ends the stream
+	 * @return the last chunk, null if no data is left
+	 */
+	Buffer finish() {
+		Buffer last = current;
+		current = Buffer.buffer();
+		hash = 0;
+		return (last.length() > 0)? last : null;
+	}
+
+	private static long[] gear(long seed) {
+		Random random = new Random(seed);
+		long[] table = new long[256];
+		for(int i = 0; i < table.length; i++) table[i] = random.nextLong();
+		return table;
+	}
+}
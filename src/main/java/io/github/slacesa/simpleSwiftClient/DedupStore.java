@@ -0,0 +1,326 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import io.github.slacesa.simpleSwiftClient.resources.DedupRecipe;
+import io.github.slacesa.simpleSwiftClient.resources.SwiftFile;
+import io.github.slacesa.simpleSwiftClient.resources.SwiftSegment;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.impl.NoStackTraceThrowable;
+import io.vertx.core.json.Json;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * Deduplicating backup store on top of Swift objects
+ * Data is cut into content defined chunks, each chunk is stored once as chunks/SHA-256 of its content, and every backup is described
+ * by a recipe object, recipes/name.json, listing its chunks in order. Chunks already stored (known from a local index, rebuilt from
+ * a listing of chunks/ if missing) are not sent again, so a slowly changing file only costs its changed chunks.
+ * Chunks are hashed on worker threads and uploaded concurrently, the source is paused while chunks wait for an upload slot;
+ * restores unseal the recipe and the chunks (cold storage) through the unseal scheduler of the client, fetch chunks concurrently,
+ * verify their hash and write them in order
+ * @author SLC
+ *
+ */
+public class DedupStore {
+
+	private static final String CHUNKS = "chunks/";
+	private static final String RECIPES = "recipes/";
+	private static final MessageDigest sha256Prototype = sha256Prototype();
+
+	private final SimpleSwiftClient client;
+	private final Vertx vertx;
+	private final String indexPath;
+	private final long chunkSize;
+	private final int concurrency, unsealWindow;
+	private final Map<String, Future<Boolean>> uploads = new HashMap<>();
+	private Future<Set<String>> index;
+
+	DedupStore(SimpleSwiftClient client, Vertx vertx, String indexPath, long chunkSize, int concurrency, int unsealWindow) {
+		this.client = client;
+		this.vertx = vertx;
+		this.indexPath = indexPath;
+		this.chunkSize = chunkSize;
+		this.concurrency = Math.max(1, concurrency);
+		this.unsealWindow = Math.max(this.concurrency, unsealWindow);
+	}
+
+	/**
+	 * Backs up a stream, sending only the chunks not stored yet, then its recipe
+	 * @param name the backup name, a backup with the same name is replaced
+	 * @param content the data to back up
+	 * @return a future to the recipe stored
+	 */
+	public Future<DedupRecipe> store(String name, ReadStream<Buffer> content) {
+		content.pause();
+		return index().compose(known -> {
+			Promise<DedupRecipe> result = Promise.promise();
+			DedupRecipe recipe = new DedupRecipe();
+			recipe.setName(name);
+			recipe.setCreated(System.currentTimeMillis());
+			ContentChunker chunker = new ContentChunker(chunkSize);
+			Parallel.Limiter limiter = new Parallel.Limiter(concurrency);
+			List<Future<SwiftSegment>> chunks = new ArrayList<>();
+			List<String> added = new ArrayList<>();
+			boolean[] paused = {false};
+			Consumer<Buffer> submit = chunk -> {
+				chunks.add(limiter.run(() -> chunkStorer(chunk, known, recipe, added)).onComplete(ar -> {
+					if(ar.failed() && result.tryFail(ar.cause())) content.pause();
+					else if(paused[0] && limiter.queued() == 0 && !result.future().isComplete()) {
+						paused[0] = false;
+						content.resume();
+					}
+				}));
+				if(!paused[0] && limiter.queued() > 0) {
+					paused[0] = true;
+					content.pause();
+				}
+			};
+			content.exceptionHandler(result::tryFail);
+			content.endHandler(v -> {
+				Buffer last = chunker.finish();
+				if(last != null) submit.accept(last);
+				CompositeFuture.all(new ArrayList<>(chunks)).compose(all -> {
+					for(Future<SwiftSegment> chunk : chunks) {
+						recipe.getChunks().add(chunk.result());
+						recipe.setSize_bytes(recipe.getSize_bytes() + chunk.result().getSize_bytes());
+					}
+					return indexAppender(added);
+				}).compose(appended ->
+				client.uploadFile(RECIPES + name + ".json", Json.encodeToBuffer(recipe))).onComplete(sent -> {
+					if(sent.failed()) result.tryFail(sent.cause());
+					else if(!sent.result()) result.tryFail(new NoStackTraceThrowable("Recipe not stored"));
+					else result.tryComplete(recipe);
+				});
+			});
+			content.handler(data -> chunker.feed(data).forEach(submit));
+			content.resume();
+			return result.future();
+		});
+	}
+
+	/**
+	 * Backs up a local file
+	 * @see #store(String, ReadStream)
+	 * @param name the backup name
+	 * @param path the local file
+	 * @return a future to the recipe stored
+	 */
+	public Future<DedupRecipe> storeFile(String name, String path) {
+		return vertx.fileSystem().open(path, new OpenOptions().setRead(true).setWrite(false).setCreate(false))
+				.recover(err -> Future.failedFuture(new NoStackTraceThrowable("File not found")))
+				.compose(file -> store(name, file.setReadBufferSize(64 * 1024)).onComplete(v -> file.close()));
+	}
+
+	/**
+	 * Retrieves the recipe of a backup, unsealing it first
+	 * @param name the backup name
+	 * @return a future recipe
+	 */
+	public Future<DedupRecipe> recipe(String name) {
+		String path = RECIPES + name + ".json";
+		return client.unsealer().unseal(path).compose(v ->
+		client.downloadFile(path)).map(content -> Json.decodeValue(content, DedupRecipe.class));
+	}
+
+	/**
+	 * Restores a backup into a stream: the next dedup_unseal_window chunks are being unsealed, the next dedup_concurrency ones
+	 * are fetched once unsealed, and chunks are written in order
+	 * The target stream is ended once the whole backup has been written
+	 * @param name the backup name
+	 * @param target the stream receiving the data
+	 * @return a void future, successful once the whole backup has been written to target
+	 */
+	public Future<Void> restore(String name, WriteStream<Buffer> target) {
+		return recipe(name).compose(recipe -> new ChunkWriter(recipe.getChunks(), target).write()).compose(v ->
+		target.end());
+	}
+
+	/**
+	 * Restores a backup to a local file, removed if the restore fails
+	 * @param name the backup name
+	 * @param path the local path, overwritten if existing
+	 * @return a void future, successful once the whole backup has been written to disk
+	 */
+	public Future<Void> restoreToFile(String name, String path) {
+		return vertx.fileSystem().open(path, new OpenOptions().setWrite(true).setCreate(true).setTruncateExisting(true)).compose(file ->
+		restore(name, file).recover(err -> file.close().transform(v -> vertx.fileSystem().delete(path)).transform(v -> Future.failedFuture(err))));
+	}
+
+	/**
+	 * Hashes a chunk and uploads it unless it is already stored
+	 * @return a future to the chunk description
+	 */
+	private Future<SwiftSegment> chunkStorer(Buffer chunk, Set<String> known, DedupRecipe recipe, List<String> added) {
+		return vertx.<SwiftSegment>executeBlocking(promise -> {
+			MessageDigest md5 = DigestReadStream.md5();
+			DigestReadStream.update(md5, chunk);
+			promise.complete(new SwiftSegment(CHUNKS + sha256(chunk), DigestReadStream.bytesToHex(md5.digest()), chunk.length()));
+		}, false).compose(segment -> {
+			String hash = segment.getPath().substring(CHUNKS.length());
+			if(known.contains(hash)) return Future.succeededFuture(segment);
+			Future<Boolean> upload = uploads.get(hash);
+			if(upload == null) {
+				upload = client.uploadFile(segment.getPath(), chunk, segment.getEtag());
+				uploads.put(hash, upload);
+				upload.onComplete(sent -> {
+					uploads.remove(hash);
+					if(sent.failed() || !sent.result()) return;
+					known.add(hash);
+					added.add(hash);
+					recipe.setSent_chunks(recipe.getSent_chunks() + 1);
+					recipe.setSent_bytes(recipe.getSent_bytes() + chunk.length());
+				});
+			}
+			return upload.compose(sent -> sent? Future.succeededFuture(segment) : Future.failedFuture(new NoStackTraceThrowable("Chunk not stored")));
+		});
+	}
+
+	/**
+	 * Downloads an unsealed chunk and checks its content against its name
+	 * @return a future to the chunk content
+	 */
+	private Future<Buffer> chunkFetcher(SwiftSegment chunk) {
+		return client.downloadFile(chunk.getPath()).compose(content -> vertx.executeBlocking(promise -> {
+			if(chunk.getPath().equals(CHUNKS + sha256(content))) promise.complete(content);
+			else promise.fail(new IOException("Chunk corrupted: " + chunk.getPath()));
+		}, false));
+	}
+
+	/**
+	 * The hashes of the stored chunks, read from the local index once
+	 * @return a future set of hashes, shared by the operations of this store
+	 */
+	private synchronized Future<Set<String>> index() {
+		if(index == null) {
+			index = vertx.fileSystem().exists(indexPath).compose(exists -> {
+				if(!exists) return remoteIndex();
+				return vertx.fileSystem().readFile(indexPath).map(content -> {
+					Set<String> known = new HashSet<>();
+					for(String line : content.toString().split("\n")) if(!line.isEmpty()) known.add(line);
+					return known;
+				});
+			});
+			index.onFailure(err -> index = null);
+		}
+		return index;
+	}
+
+	/**
+	 * Rebuilds the local index from a listing of the stored chunks
+	 * @return a future set of hashes
+	 */
+	private Future<Set<String>> remoteIndex() {
+		Promise<Set<String>> result = Promise.promise();
+		Set<String> known = new HashSet<>();
+		ReadStream<SwiftFile> listing = client.listFiles(CHUNKS, null);
+		listing.exceptionHandler(err -> {
+			if(err instanceof FileNotFoundException) result.tryComplete(known);
+			else result.tryFail(err);
+		});
+		listing.endHandler(v -> result.tryComplete(known));
+		listing.handler(file -> known.add(file.getName().substring(CHUNKS.length())));
+		return result.future().compose(all -> indexAppender(all).map(all));
+	}
+
+	/**
+	 * Appends hashes to the local index, one per line
+	 * @return a void future
+	 */
+	private Future<Void> indexAppender(Collection<String> hashes) {
+		if(hashes.isEmpty()) return Future.succeededFuture();
+		Buffer lines = Buffer.buffer(hashes.size() * 65);
+		for(String hash : hashes) lines.appendString(hash).appendString("\n");
+		return vertx.fileSystem().open(indexPath, new OpenOptions().setWrite(true).setCreate(true).setAppend(true)).compose(file ->
+		file.write(lines).eventually(v -> file.close()));
+	}
+
+	private static String sha256(Buffer data) {
+		MessageDigest digest;
+		try {
+			// Cloned from a prototype to skip the provider lookup
+			digest = (MessageDigest) sha256Prototype.clone();
+		} catch (CloneNotSupportedException e) {
+			digest = sha256Prototype();
+		}
+		DigestReadStream.update(digest, data);
+		return DigestReadStream.bytesToHex(digest.digest());
+	}
+
+	private static MessageDigest sha256Prototype() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the chunks of a recipe in order with a bounded look-ahead
+	 * Chunks already fetched are written in a loop, a chunk still in flight resumes the loop once written
+	 */
+	private class ChunkWriter {
+		private final List<SwiftSegment> chunks;
+		private final WriteStream<Buffer> target;
+		private final Promise<Void> result = Promise.promise();
+		// The unseals of the chunks from next on, then the fetches of the chunks before next
+		private final Deque<Future<Void>> unsealing = new ArrayDeque<>();
+		private final Deque<Future<Buffer>> fetches = new ArrayDeque<>();
+		private int next, unsealNext;
+
+		private ChunkWriter(List<SwiftSegment> chunks, WriteStream<Buffer> target) {
+			this.chunks = chunks;
+			this.target = target;
+		}
+
+		/**
+		 * Writes the chunks fetched so far, starting the next unseals and fetches
+		 * @return a void future, successful once every chunk has been written
+		 */
+		private Future<Void> write() {
+			while(true) {
+				while(unsealNext < chunks.size() && unsealing.size() < unsealWindow)
+					unsealing.add(client.unsealer().unseal(chunks.get(unsealNext++).getPath()));
+				while(next < chunks.size() && fetches.size() < concurrency) {
+					SwiftSegment chunk = chunks.get(next++);
+					fetches.add(unsealing.poll().compose(v -> chunkFetcher(chunk)));
+				}
+				if(fetches.isEmpty()) {
+					result.tryComplete();
+					break;
+				}
+				Future<Void> written = fetches.poll().compose(target::write);
+				if(!written.isComplete()) {
+					written.onComplete(ar -> {
+						if(ar.failed()) result.tryFail(ar.cause());
+						else write();
+					});
+					break;
+				}
+				if(written.failed()) {
+					result.tryFail(written.cause());
+					break;
+				}
+			}
+			return result.future();
+		}
+	}
+}
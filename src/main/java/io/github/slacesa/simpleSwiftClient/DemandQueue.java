@@ -0,0 +1,108 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+
+/**
+ * The items a read stream has produced and not yet emitted, following the ReadStream pause/fetch contract
+ * Items are emitted to the handler while there is demand and queued otherwise. Writing returns false once the queue holds
+ * its high water mark: the producer should then wait for the drain handler, called when the queue has been emptied.
+ * Must be used from the context of the stream
+ * @author SLC
+ *
+ */
+final class DemandQueue<T> {
+
+	private final Context context;
+	private final int highWaterMark;
+	private final Deque<T> items = new ArrayDeque<>();
+
+	private Handler<T> handler;
+	private Handler<Void> drainHandler, emptyHandler;
+	private long demand = Long.MAX_VALUE;
+	private boolean emitting, full;
+
+	/**
+	 * @param context the context the stream is used from
+	 * @param highWaterMark the number of queued items over which writing returns false
+	 */
+	DemandQueue(Context context, int highWaterMark) {
+		this.context = context;
+		this.highWaterMark = Math.max(1, highWaterMark);
+	}
+
+	void handler(Handler<T> handler) {
+		this.handler = handler;
+		if(handler != null) schedule();
+	}
+
+	void drainHandler(Handler<Void> handler) {
+		this.drainHandler = handler;
+	}
+
+	void emptyHandler(Handler<Void> handler) {
+		this.emptyHandler = handler;
+	}
+
+	void pause() {
+		demand = 0;
+	}
+
+	void resume() {
+		fetch(Long.MAX_VALUE);
+	}
+
+	void fetch(long amount) {
+		if(amount < 0) throw new IllegalArgumentException("Negative fetch amount " + amount);
+		demand += amount;
+		if(demand < 0) demand = Long.MAX_VALUE;
+		schedule();
+	}
+
+	/**
+	 * Emits the item at once if there is demand, queues it otherwise
+	 * @param item the item
+	 * @return false if the queue is full and the producer should wait for the drain handler
+	 */
+	boolean write(T item) {
+		items.add(item);
+		emit();
+		if(items.size() < highWaterMark) return true;
+		full = true;
+		return false;
+	}
+
+	boolean isEmpty() {
+		return items.isEmpty();
+	}
+
+	private void schedule() {
+		if(!items.isEmpty()) context.runOnContext(v -> emit());
+	}
+
+	/**
+	 * Emits the queued items the demand allows, a handler writing or fetching meanwhile does not emit out of order
+	 */
+	private void emit() {
+		if(emitting) return;
+		emitting = true;
+		try {
+			while(demand > 0 && handler != null && !items.isEmpty()) {
+				if(demand != Long.MAX_VALUE) demand--;
+				handler.handle(items.poll());
+			}
+		}
+		finally {
+			emitting = false;
+		}
+		if(!items.isEmpty()) return;
+		if(full) {
+			full = false;
+			if(drainHandler != null) drainHandler.handle(null);
+		}
+		if(emptyHandler != null && items.isEmpty()) emptyHandler.handle(null);
+	}
+}
@@ -0,0 +1,149 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * A pass-through read stream computing the MD5 digest of the data while it flows, used to verify Swift ETags
+ * Chunks are hashed through their NIO views, no data is copied
+ * @author SLC
+ *
+ */
+public class DigestReadStream implements ReadStream<Buffer> {
+
+	private final static char[] hexArray = "0123456789abcdef".toCharArray();
+	private final static MessageDigest md5Prototype = md5Prototype();
+
+	private final ReadStream<Buffer> source;
+	private final MessageDigest digest;
+	private long length;
+	private String hexDigest;
+
+	/**
+	 * Wraps a read stream
+	 * @param source the stream to read data from
+	 */
+	public DigestReadStream(ReadStream<Buffer> source) {
+		this.source = source;
+		this.digest = md5();
+	}
+
+	/**
+	 * The MD5 digest of the data read, to be called once all the data has been consumed
+	 * The digest is finalized on first call, data read afterwards is not hashed
+	 * @return the hex encoded digest
+	 */
+	public String hexDigest() {
+		if(hexDigest == null) hexDigest = bytesToHex(digest.digest());
+		return hexDigest;
+	}
+
+	/**
+	 * The number of bytes read so far
+	 * @return the length
+	 */
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public DigestReadStream exceptionHandler(Handler<Throwable> handler) {
+		source.exceptionHandler(handler);
+		return this;
+	}
+
+	@Override
+	public DigestReadStream handler(Handler<Buffer> handler) {
+		if(handler == null) source.handler(null);
+		else source.handler(chunk -> {
+			if(hexDigest == null) update(digest, chunk);
+			length += chunk.length();
+			handler.handle(chunk);
+		});
+		return this;
+	}
+
+	@Override
+	public DigestReadStream pause() {
+		source.pause();
+		return this;
+	}
+
+	@Override
+	public DigestReadStream resume() {
+		source.resume();
+		return this;
+	}
+
+	@Override
+	public DigestReadStream fetch(long amount) {
+		source.fetch(amount);
+		return this;
+	}
+
+	@Override
+	public DigestReadStream endHandler(Handler<Void> endHandler) {
+		if(endHandler == null) source.endHandler(null);
+		else source.endHandler(v -> {
+			hexDigest();
+			endHandler.handle(v);
+		});
+		return this;
+	}
+
+	/**
+	 * A fresh MD5 digest, cloned from a prototype to skip the provider lookup
+	 * @return a new digest
+	 */
+	public static MessageDigest md5() {
+		try {
+			return (MessageDigest) md5Prototype.clone();
+		} catch (CloneNotSupportedException e) {
+			return md5Prototype();
+		}
+	}
+
+	/**
+	 * Feeds a buffer to a digest through its NIO views, without copying it
+	 * @param digest the digest to update
+	 * @param data the data to hash
+	 */
+	public static void update(MessageDigest digest, Buffer data) {
+		for(ByteBuffer view : data.getByteBuf().nioBuffers())
+			digest.update(view);
+	}
+
+	/**
+	 * Checks a digest against an ETag returned by Swift, which can be quoted
+	 * @param etag the ETag header value
+	 * @param hexDigest the locally computed digest
+	 * @return true if they match, or if no ETag was returned
+	 */
+	public static boolean matches(String etag, String hexDigest) {
+		if(etag == null) return true;
+		return etag.replace("\"", "").equalsIgnoreCase(hexDigest);
+	}
+
+	static String bytesToHex(byte[] bytes) {
+		char[] hexChars = new char[bytes.length * 2];
+		for ( int j = 0; j < bytes.length; j++ ) {
+			int v = bytes[j] & 0xFF;
+			hexChars[j * 2] = hexArray[v >>> 4];
+			hexChars[j * 2 + 1] = hexArray[v & 0x0F];
+		}
+		return new String(hexChars);
+	}
+
+	private static MessageDigest md5Prototype() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
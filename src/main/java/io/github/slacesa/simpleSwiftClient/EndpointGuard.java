@@ -0,0 +1,248 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.NoStackTraceThrowable;
+
+/**
+ * Protects a storage endpoint with a circuit breaker and an adaptive concurrency limit
+ * The circuit opens when the error rate over the last requests goes over a threshold: requests then fail immediately
+ * with a CircuitOpenException until the open time has passed, then a single probe request decides whether it closes again:
+ * the requests arriving meanwhile wait for its outcome, they are sent if the circuit closes and rejected if it opens again.
+ * The concurrency limit follows AIMD: it grows by one every limit successful requests and is halved on a server error,
+ * a network failure or, if a latency target is set, a request slower than the target; requests over the limit wait in a queue
+ * Only failures of the endpoint count: local failures (files, request bodies, ETag mismatches) and client errors do not
+ * @author SLC
+ *
+ */
+public class EndpointGuard {
+
+	/**
+	 * Circuit breaker states
+	 */
+	public enum State {
+		/** Requests flow normally */
+		CLOSED,
+		/** Requests fail immediately */
+		OPEN,
+		/** A probe request is in flight, the others wait for its outcome */
+		HALF_OPEN
+	}
+
+	private static final Logger log = Logger.getLogger(EndpointGuard.class.getName());
+
+	private final String endpoint;
+	private final boolean[] window;
+	private final int errorRate;
+	private final long openTime, latencyTarget;
+	private final int minLimit, maxLimit;
+	private final Deque<Pending> queue = new ArrayDeque<>();
+
+	private State state = State.CLOSED;
+	private int index, count, failures, inFlight;
+	private long openUntil, lastDecrease;
+	private double limit;
+
+	/**
+	 * @param endpoint the endpoint name, for logs and failures
+	 * @param windowSize the number of last requests the error rate is computed on
+	 * @param errorRate the error rate opening the circuit, in percent
+	 * @param openTime how long the circuit stays open, in milliseconds
+	 * @param minLimit the minimum concurrency limit
+	 * @param maxLimit the maximum concurrency limit, also the initial one
+	 * @param latencyTarget the latency over which a request lowers the limit, in milliseconds, 0 to only react to failures
+	 */
+	EndpointGuard(String endpoint, int windowSize, int errorRate, long openTime, int minLimit, int maxLimit, long latencyTarget) {
+		this.endpoint = endpoint;
+		this.window = new boolean[Math.max(1, windowSize)];
+		this.errorRate = errorRate;
+		this.openTime = openTime;
+		this.minLimit = Math.max(1, minLimit);
+		this.maxLimit = Math.max(this.minLimit, maxLimit);
+		this.latencyTarget = latencyTarget;
+		this.limit = this.maxLimit;
+		this.lastDecrease = System.nanoTime();
+	}
+
+	/**
+	 * Runs a request once the circuit and the concurrency limit allow it
+	 * Only the guard state is updated under its lock, requests and their completion handlers run outside of it
+	 * @param task the request
+	 * @return a future to the request result, failed with a CircuitOpenException if the circuit is open
+	 */
+	<T> Future<T> run(Supplier<Future<T>> task) {
+		Promise<T> result = Promise.promise();
+		synchronized(this) {
+			boolean probe = false;
+			if(state == State.OPEN) {
+				if(System.currentTimeMillis() < openUntil) return Future.failedFuture(new CircuitOpenException(endpoint));
+				state = State.HALF_OPEN;
+				probe = true;
+				log.info("Circuit half open for " + endpoint + ", probing");
+			}
+			boolean isProbe = probe;
+			Pending pending = new Pending(isProbe, () -> {
+				long start = System.nanoTime();
+				Future<T> future;
+				try {
+					future = task.get();
+				}
+				catch (Exception e) {
+					future = Future.failedFuture(e);
+				}
+				future.onComplete(ar -> {
+					record(ar.failed() && TransientFailure.isTransient(ar.cause()), start, isProbe);
+					result.handle(ar);
+					drain();
+				});
+			}, result::tryFail);
+			// The probe goes first, the requests queued behind it are held until it completes
+			if(isProbe) queue.addFirst(pending);
+			else queue.add(pending);
+		}
+		drain();
+		return result.future();
+	}
+
+	/**
+	 * The circuit breaker state
+	 * @return the state
+	 */
+	public synchronized State getState() {
+		if(state == State.OPEN && System.currentTimeMillis() >= openUntil) return State.HALF_OPEN;
+		return state;
+	}
+
+	/**
+	 * The current concurrency limit
+	 * @return the maximum number of requests in flight
+	 */
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * The number of requests being processed
+	 * @return the requests in flight
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * The number of requests waiting for room under the limit
+	 * @return the queue length
+	 */
+	public synchronized int getQueued() {
+		return queue.size();
+	}
+
+	/**
+	 * The error rate over the last requests
+	 * @return the error rate, in percent
+	 */
+	public synchronized int getErrorRate() {
+		return (count == 0)? 0 : failures * 100 / count;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return endpoint + " " + getState() + ", limit " + getLimit() + ", " + inFlight + " in flight, " + queue.size() + " queued, " + getErrorRate() + "% errors";
+	}
+
+	private synchronized void record(boolean failed, long start, boolean probe) {
+		inFlight--;
+		long latency = (System.nanoTime() - start) / 1000000;
+		if(failed || (latencyTarget > 0 && latency > latencyTarget)) {
+			// Requests started before the last decrease saw the previous limit, they do not lower it again
+			if(start - lastDecrease >= 0) {
+				limit = Math.max(minLimit, limit / 2);
+				lastDecrease = System.nanoTime();
+			}
+		}
+		else limit = Math.min(maxLimit, limit + 1 / limit);
+		if(state == State.HALF_OPEN) {
+			// Requests sent before the circuit opened do not decide for the probe
+			if(!probe) return;
+			if(failed) open();
+			else {
+				state = State.CLOSED;
+				resetWindow();
+				log.info("Circuit closed for " + endpoint);
+			}
+			return;
+		}
+		if(state == State.OPEN) return;
+		if(count == window.length && window[index]) failures--;
+		window[index] = failed;
+		if(failed) failures++;
+		index = (index + 1) % window.length;
+		if(count < window.length) count++;
+		if(count == window.length && failures * 100 >= errorRate * count) open();
+	}
+
+	private void open() {
+		state = State.OPEN;
+		openUntil = System.currentTimeMillis() + openTime;
+		resetWindow();
+		log.warning("Circuit open for " + endpoint + " during " + openTime + " ms");
+	}
+
+	private void resetWindow() {
+		index = count = failures = 0;
+	}
+
+	/**
+	 * Starts the queued requests the limit allows and rejects them all if the circuit is open
+	 * The requests are taken from the queue under the lock and started once it is released: a request completing at once
+	 * drains the queue again from its completion handler
+	 */
+	private void drain() {
+		List<Pending> started = new ArrayList<>(), rejected = new ArrayList<>();
+		synchronized(this) {
+			while(!queue.isEmpty()) {
+				if(state == State.OPEN) {
+					rejected.add(queue.poll());
+					continue;
+				}
+				if(state == State.HALF_OPEN && !queue.peek().probe) break;
+				if(inFlight >= (int) limit) break;
+				inFlight++;
+				started.add(queue.poll());
+			}
+		}
+		for(Pending pending : rejected) pending.reject.handle(new CircuitOpenException(endpoint));
+		for(Pending pending : started) pending.run.run();
+	}
+
+	private static class Pending {
+		private final boolean probe;
+		private final Runnable run;
+		private final Handler<Throwable> reject;
+
+		private Pending(boolean probe, Runnable run, Handler<Throwable> reject) {
+			this.probe = probe;
+			this.run = run;
+			this.reject = reject;
+		}
+	}
+
+	/**
+	 * The circuit of the endpoint is open, the request has not been sent
+	 */
+	public static class CircuitOpenException extends NoStackTraceThrowable {
+		private static final long serialVersionUID = 1L;
+
+		private CircuitOpenException(String endpoint) {
+			super("Circuit open for " + endpoint);
+		}
+	}
+}
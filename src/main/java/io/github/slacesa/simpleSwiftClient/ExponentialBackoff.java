@@ -0,0 +1,61 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.net.ConnectException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries transient failures with exponential backoff and full jitter, within a retry budget
+ * Idempotent requests are retried on server errors (5xx) and network failures. Other requests are only retried when they
+ * cannot have been processed: 503 from the proxy and refused connections.
+ * The budget holds at most budget retries, each success gives back a tenth of a retry, so that a failing cluster
+ * is not hit by a retry storm: once the budget is spent, failures are reported immediately
+ * @author SLC
+ *
+ */
+public class ExponentialBackoff implements RetryPolicy {
+
+	private final long baseDelay, maxDelay;
+	private final int maxRetries;
+	private final double budget;
+	private double tokens;
+
+	/**
+	 * @param baseDelay the delay before the first retry, in milliseconds, doubled on each retry
+	 * @param maxDelay the maximum delay, in milliseconds; a longer Retry-After makes the request fail
+	 * @param maxRetries the maximum number of retries of a request
+	 * @param budget the maximum number of retries saved up
+	 */
+	public ExponentialBackoff(long baseDelay, long maxDelay, int maxRetries, int budget) {
+		this.baseDelay = Math.max(1, baseDelay);
+		this.maxDelay = Math.max(this.baseDelay, maxDelay);
+		this.maxRetries = maxRetries;
+		this.budget = budget;
+		this.tokens = budget;
+	}
+
+	@Override
+	public synchronized long retryDelay(int attempt, Throwable failure, boolean idempotent) {
+		if(attempt > maxRetries || !retryable(failure, idempotent) || tokens < 1) return -1;
+		long backoff = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+		long delay = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+		if(failure instanceof TransientFailure && ((TransientFailure) failure).getRetryAfter() >= 0) {
+			long retryAfter = ((TransientFailure) failure).getRetryAfter() * 1000;
+			if(retryAfter > maxDelay) return -1;
+			delay = Math.max(delay, retryAfter);
+		}
+		tokens--;
+		return delay;
+	}
+
+	@Override
+	public synchronized void onSuccess() {
+		tokens = Math.min(budget, tokens + 0.1);
+	}
+
+	private static boolean retryable(Throwable failure, boolean idempotent) {
+		if(failure instanceof TransientFailure)
+			return idempotent || ((TransientFailure) failure).getStatusCode() == 503;
+		if(failure instanceof ConnectException) return true;
+		return idempotent && TransientFailure.isTransient(failure);
+	}
+}
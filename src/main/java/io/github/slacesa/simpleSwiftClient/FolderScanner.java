@@ -0,0 +1,128 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import io.github.slacesa.simpleSwiftClient.resources.BackupEntry;
+
+/**
+ * Lists the files of a folder with their size, modification time and MD5 hash, walking directories and hashing files concurrently
+ * Files whose size and modification time match the previous snapshot are not read again, their hash is carried over;
+ * files hashed again keep their previous archive if their content did not change, new or changed files get none
+ * @author SLC
+ *
+ */
+final class FolderScanner {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private FolderScanner() {}
+
+	/**
+	 * Scans a folder, blocking: to be called from a worker thread
+	 * @param pool the pool directories are walked and files hashed on
+	 * @param folder the folder to scan
+	 * @param previous the entries of the previous snapshot by path
+	 * @return the regular files of the folder, sorted by path, named relative to the parent of the folder
+	 * @throws IOException if a directory cannot be listed or a file read
+	 */
+	static List<BackupEntry> scan(ForkJoinPool pool, File folder, Map<String, BackupEntry> previous) throws IOException {
+		Path root = folder.toPath().toAbsolutePath();
+		try {
+			List<BackupEntry> entries = pool.invoke(new DirectoryTask(root, root.getParent(), previous));
+			entries.sort(Comparator.comparing(BackupEntry::getPath));
+			return entries;
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static class DirectoryTask extends RecursiveTask<List<BackupEntry>> {
+		private static final long serialVersionUID = 1L;
+
+		private final Path directory, root;
+		private final Map<String, BackupEntry> previous;
+
+		private DirectoryTask(Path directory, Path root, Map<String, BackupEntry> previous) {
+			this.directory = directory;
+			this.root = root;
+			this.previous = previous;
+		}
+
+		@Override
+		protected List<BackupEntry> compute() {
+			List<DirectoryTask> directories = new ArrayList<>();
+			List<FileTask> files = new ArrayList<>();
+			try(DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+				for(Path child : children) {
+					if(Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) directories.add(new DirectoryTask(child, root, previous));
+					else if(Files.isRegularFile(child)) files.add(new FileTask(child, root, previous));
+				}
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			for(DirectoryTask nested : directories) nested.fork();
+			List<BackupEntry> entries = new ArrayList<>(files.size());
+			for(FileTask file : ForkJoinTask.invokeAll(files)) entries.add(file.join());
+			for(DirectoryTask nested : directories) entries.addAll(nested.join());
+			return entries;
+		}
+	}
+
+	private static class FileTask extends RecursiveTask<BackupEntry> {
+		private static final long serialVersionUID = 1L;
+
+		private final Path file, root;
+		private final Map<String, BackupEntry> previous;
+
+		private FileTask(Path file, Path root, Map<String, BackupEntry> previous) {
+			this.file = file;
+			this.root = root;
+			this.previous = previous;
+		}
+
+		@Override
+		protected BackupEntry compute() {
+			try {
+				String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+				BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+				long size = attributes.size(), mtime = attributes.lastModifiedTime().toMillis();
+				BackupEntry known = previous.get(name);
+				if(known != null && known.getSize() == size && known.getMtime() == mtime)
+					return new BackupEntry(name, size, mtime, known.getHash(), known.getArchive());
+				String hash = hash(file);
+				return new BackupEntry(name, size, mtime, hash, (known != null && hash.equals(known.getHash()))? known.getArchive() : null);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private static String hash(Path file) throws IOException {
+		MessageDigest md = DigestReadStream.md5();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try(InputStream in = Files.newInputStream(file)) {
+			int read;
+			while((read = in.read(buffer)) > 0) md.update(buffer, 0, read);
+		}
+		return DigestReadStream.bytesToHex(md.digest());
+	}
+}
@@ -0,0 +1,175 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+import org.joda.time.DateTime;
+
+import io.github.slacesa.simpleSwiftClient.resources.AuthMessage;
+import io.github.slacesa.simpleSwiftClient.resources.SwiftConfig;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.impl.NoStackTraceThrowable;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.WebClient;
+
+/**
+ * Keystone v3 token of an account, shared by the clients of all its containers
+ * Concurrent callers share a single authentication request. Once a token is obtained, a single timer refreshes it
+ * ahead of expiration; failed refreshes are retried with jittered exponential backoff while the current token stays usable
+ * @author SLC
+ *
+ */
+class KeystoneToken {
+
+	private static final Logger log = Logger.getLogger(KeystoneToken.class.getName());
+	private static final long MIN_REFRESH = 1000;
+	private static final long MAX_BACKOFF = 60000;
+	private static final long MAX_MARGIN = 3600000;
+
+	private final Vertx vertx;
+	private final WebClient authclient;
+	private final ClientMetrics metrics;
+	private SwiftConfig config;
+	private String token;
+	private DateTime token_expires;
+	private long acceptedAt;
+	private Future<String> pending;
+	private SwiftConfig pendingConfig;
+	private long refreshTimer = -1;
+	private int failures;
+
+	/**
+	 * @param vertx the Vert.x instance timers are set on
+	 * @param authclient the client authentication requests are sent with
+	 * @param metrics the metrics authentication requests are recorded to
+	 * @param config the credentials and Keystone endpoint
+	 */
+	KeystoneToken(Vertx vertx, WebClient authclient, ClientMetrics metrics, SwiftConfig config) {
+		this.vertx = vertx;
+		this.authclient = authclient;
+		this.metrics = metrics;
+		this.config = config;
+	}
+
+	/**
+	 * Replaces the credentials, the next retrieval has to be forced to use them
+	 * A request in flight with the previous credentials still completes its callers, but its token is not kept
+	 * @param config the new config
+	 */
+	void setConfig(SwiftConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * Retrieve a valid token
+	 * Checks if there is a current valid token, otherwise it retrieves one. Callers share the request in flight, except
+	 * a forced retrieval after the credentials changed: it sends a new request with the new credentials
+	 * @param force ignores the validity check, retrieves a new token
+	 * @return a future to a valid token
+	 */
+	Future<String> retrieve(boolean force) {
+		if(!force && token != null && token_expires != null && token_expires.isAfterNow())
+			return Future.succeededFuture(token);
+		if(pending != null && (!force || pendingConfig == config)) return pending;
+		Promise<String> result = Promise.promise();
+		Future<String> request = result.future();
+		SwiftConfig config = this.config;
+		pending = request;
+		pendingConfig = config;
+		Buffer authMessage = new AuthMessage(config.getUsername(), config.getPassword()).parse().toBuffer();
+		HttpRequest<Buffer> authRequest = authclient.post(
+				config.getPort(),
+				config.getAuth_host(),
+				config.getAuth_endpoint())
+		.ssl(config.isSsl())
+		.putHeader("Content-Type", "application/json");
+		metrics.sendAuth(authRequest, authMessage, ar -> {
+			if(pending == request) pending = null;
+			if(config != this.config) {
+				// Sent with replaced credentials: the token belongs to the previous account, it is not kept
+				if(ar.succeeded() && (ar.result().statusCode() == 200 || ar.result().statusCode() == 201))
+					result.complete(ar.result().getHeader("X-Subject-Token"));
+				else result.fail(ar.succeeded()?new NoStackTraceThrowable("Status Code not 200 OK"):ar.cause());
+				return;
+			}
+			if(ar.succeeded() && (ar.result().statusCode() == 200 || ar.result().statusCode() == 201)) {
+				token = ar.result().getHeader("X-Subject-Token");
+				acceptedAt = System.currentTimeMillis();
+				log.fine("Token " + token);
+				JsonObject bodyResponse = ar.result().bodyAsJsonObject();
+				token_expires = DateTime.parse(bodyResponse.getJsonObject("token").getString("expires_at"));
+				failures = 0;
+				// Refreshes the token a fifth of its lifetime (at most one hour) before expiration
+				long lifetime = token_expires.getMillis() - DateTime.now().getMillis();
+				scheduleRefresh(Math.max(MIN_REFRESH, lifetime - Math.min(MAX_MARGIN, lifetime / 5)));
+				result.complete(token);
+			}
+			else {
+				// Keeps a token that is still valid, retries with backoff
+				if(token_expires == null || !token_expires.isAfterNow()) token = null;
+				long backoff = Math.min(MAX_BACKOFF, MIN_REFRESH << Math.min(failures++, 16));
+				scheduleRefresh((long) (backoff * (0.5 + ThreadLocalRandom.current().nextDouble() / 2)));
+				result.fail(ar.succeeded()?new NoStackTraceThrowable("Status Code not 200 OK"):ar.cause());
+			}
+		});
+		return result.future();
+	}
+
+	/**
+	 * Time left before the current token expires
+	 * @return the time left in milliseconds, -1 without token
+	 */
+	long expiresIn() {
+		if(token == null || token_expires == null) return -1;
+		return token_expires.getMillis() - System.currentTimeMillis();
+	}
+
+	/**
+	 * Records that the storage accepted a token
+	 * @param used the token sent
+	 */
+	void accepted(String used) {
+		if(used.equals(token)) acceptedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * If the current token was issued or accepted by the storage recently
+	 * @param maxAge how long an acceptance is trusted, in milliseconds
+	 * @return true if the current token was issued or accepted less than maxAge ago
+	 */
+	boolean acceptedWithin(long maxAge) {
+		return token != null && System.currentTimeMillis() - acceptedAt < maxAge;
+	}
+
+	/**
+	 * Drops a token rejected by the storage, unless it has already been replaced
+	 * @param rejected the rejected token
+	 */
+	void invalidate(String rejected) {
+		if(rejected.equals(token)) token = null;
+	}
+
+	/**
+	 * Stops refreshing the token
+	 */
+	void close() {
+		if(refreshTimer >= 0) vertx.cancelTimer(refreshTimer);
+		refreshTimer = -1;
+	}
+
+	/**
+	 * Replaces the pending refresh timer, so that at most one is set
+	 * @param delay the delay before refreshing the token, in milliseconds
+	 */
+	private void scheduleRefresh(long delay) {
+		if(refreshTimer >= 0) vertx.cancelTimer(refreshTimer);
+		refreshTimer = vertx.setTimer(delay, timer -> {
+			refreshTimer = -1;
+			retrieve(true);
+		});
+	}
+}
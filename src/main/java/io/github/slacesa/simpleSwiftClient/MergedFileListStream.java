@@ -0,0 +1,160 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import io.github.slacesa.simpleSwiftClient.resources.SwiftFile;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * Merges several listings sorted by name into a single listing sorted by name (k-way merge)
+ * Each source is read one entry at a time, so at most one entry per source is held besides the sources own pages.
+ * Names and folders found on several sources (a file copied during a rebalance, a folder spread over shards) are emitted once
+ * @author SLC
+ *
+ */
+class MergedFileListStream implements ReadStream<SwiftFile> {
+
+	private final Context context;
+	private final List<Source> sources = new ArrayList<>();
+	private final PriorityQueue<Source> heads = new PriorityQueue<>(Comparator.comparing((Source source) -> key(source.head)));
+
+	private Handler<SwiftFile> handler;
+	private Handler<Throwable> exceptionHandler;
+	private Handler<Void> endHandler;
+	private long demand = Long.MAX_VALUE;
+	private int waiting;
+	private String last;
+	private boolean started, ended, emitting;
+
+	/**
+	 * @param context the context the stream is used from
+	 * @param sources the listings to merge, each one sorted by name
+	 */
+	MergedFileListStream(Context context, List<ReadStream<SwiftFile>> sources) {
+		this.context = context;
+		for(ReadStream<SwiftFile> stream : sources) this.sources.add(new Source(stream));
+	}
+
+	@Override
+	public MergedFileListStream exceptionHandler(Handler<Throwable> handler) {
+		this.exceptionHandler = handler;
+		return this;
+	}
+
+	@Override
+	public MergedFileListStream handler(Handler<SwiftFile> handler) {
+		this.handler = handler;
+		if(handler != null && !started) {
+			started = true;
+			waiting = sources.size();
+			for(Source source : sources) {
+				source.stream.pause();
+				source.stream.exceptionHandler(this::fail);
+				source.stream.endHandler(v -> {
+					// A source may end right after its last entry, while that entry still waits in heads
+					source.ended = true;
+					if(source.awaited) received(source);
+					emit();
+				});
+				source.stream.handler(file -> {
+					source.head = file;
+					heads.add(source);
+					received(source);
+					emit();
+				});
+				source.awaited = true;
+				source.stream.fetch(1);
+			}
+			if(sources.isEmpty()) context.runOnContext(v -> emit());
+		}
+		return this;
+	}
+
+	@Override
+	public MergedFileListStream pause() {
+		demand = 0;
+		return this;
+	}
+
+	@Override
+	public MergedFileListStream resume() {
+		return fetch(Long.MAX_VALUE);
+	}
+
+	@Override
+	public MergedFileListStream fetch(long amount) {
+		demand = (Long.MAX_VALUE - demand < amount)? Long.MAX_VALUE : demand + amount;
+		if(started) context.runOnContext(v -> emit());
+		return this;
+	}
+
+	@Override
+	public MergedFileListStream endHandler(Handler<Void> endHandler) {
+		this.endHandler = endHandler;
+		return this;
+	}
+
+	/**
+	 * Emits the smallest entry as long as no source is awaited, every source not ended having one ready
+	 */
+	private void emit() {
+		if(emitting) return;
+		emitting = true;
+		try {
+			while(!ended && waiting == 0 && demand > 0 && !heads.isEmpty()) {
+				Source source = heads.poll();
+				SwiftFile file = source.head;
+				source.head = null;
+				if(!source.ended) {
+					source.awaited = true;
+					waiting++;
+					source.stream.fetch(1);
+				}
+				String key = key(file);
+				if(key.equals(last)) continue;
+				last = key;
+				if(demand != Long.MAX_VALUE) demand--;
+				if(handler != null) handler.handle(file);
+			}
+			if(!ended && waiting == 0 && heads.isEmpty()) {
+				ended = true;
+				if(endHandler != null) endHandler.handle(null);
+			}
+		}
+		finally {
+			emitting = false;
+		}
+	}
+
+	private void received(Source source) {
+		if(!source.awaited) return;
+		source.awaited = false;
+		waiting--;
+	}
+
+	private void fail(Throwable cause) {
+		if(ended) return;
+		ended = true;
+		if(exceptionHandler != null) exceptionHandler.handle(cause);
+	}
+
+	private static String key(SwiftFile file) {
+		return (file.getName() != null)? file.getName() : file.getSubdir();
+	}
+
+	private static class Source {
+		private final ReadStream<SwiftFile> stream;
+		private SwiftFile head;
+		// Awaited: an entry or the end was requested and has not come yet
+		private boolean awaited, ended;
+
+		private Source(ReadStream<SwiftFile> stream) {
+			this.stream = stream;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.slacesa.simpleSwiftClient.resources.PolicyRetrievalStates;
+import io.github.slacesa.simpleSwiftClient.resources.SwiftFile;
+
+/**
+ * In-process cache of file metadata, keyed by file name, with time to live and least recently used eviction
+ * It also remembers whether it holds the complete listing of the container, so that an expired listing can be
+ * revalidated against the container object count (a cheap HEAD) instead of being retrieved again
+ * @author SLC
+ *
+ */
+class MetadataCache {
+
+	private final long ttl;
+	private final int maxSize;
+	private final LinkedHashMap<String, Entry> entries;
+
+	private long listedAt, listExpires;
+	private boolean complete;
+
+	/**
+	 * @param ttl entries time to live in milliseconds
+	 * @param maxSize the maximum number of entries
+	 */
+	MetadataCache(long ttl, int maxSize) {
+		this.ttl = ttl;
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if(size() <= MetadataCache.this.maxSize) return false;
+				complete = false;
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * A cached file, if not expired
+	 * @param filename the file name
+	 * @return the file, null if absent or expired
+	 */
+	synchronized SwiftFile get(String filename) {
+		Entry entry = entries.get(filename);
+		if(entry == null || entry.expires < System.currentTimeMillis()) return null;
+		return entry.file;
+	}
+
+	/**
+	 * Stores or replaces a file
+	 * @param file the file to cache
+	 */
+	synchronized void put(SwiftFile file) {
+		entries.put(file.getName(), new Entry(file, System.currentTimeMillis() + ttl));
+	}
+
+	/**
+	 * Removes a file
+	 * @param filename the file name
+	 */
+	synchronized void remove(String filename) {
+		entries.remove(filename);
+	}
+
+	/**
+	 * Replaces the cache content with a complete container listing
+	 * @param files all the files in the container
+	 */
+	synchronized void putListing(List<SwiftFile> files) {
+		entries.clear();
+		complete = true;
+		for(SwiftFile file : files) if(file.getName() != null) put(file);
+		listedAt = System.currentTimeMillis();
+		listExpires = listedAt + ttl;
+	}
+
+	/**
+	 * The complete listing, if held and not expired
+	 * @return the files sorted by name, null if the listing has to be revalidated or retrieved
+	 */
+	synchronized List<SwiftFile> getListing() {
+		if(!complete || listExpires < System.currentTimeMillis()) return null;
+		return listing();
+	}
+
+	/**
+	 * Checks an expired listing against the current container object count, extending it if nothing changed
+	 * A listing holding files being unsealed is not extended once their retrieval delay has passed, their state has to be refreshed
+	 * @param objectCount the container object count
+	 * @return the files sorted by name, null if the listing has to be retrieved again
+	 */
+	synchronized List<SwiftFile> revalidateListing(long objectCount) {
+		if(!complete || entries.size() != objectCount) return null;
+		long now = System.currentTimeMillis();
+		for(Entry entry : entries.values()) {
+			SwiftFile file = entry.file;
+			if(PolicyRetrievalStates.UNSEALING.getValue().equals(file.getPolicy_retrieval_state())
+					&& (file.getPolicy_retrieval_delay() == null || listedAt + file.getPolicy_retrieval_delay() * 1000L < now))
+				return null;
+		}
+		listExpires = now + ttl;
+		for(Entry entry : entries.values()) entry.expires = listExpires;
+		return listing();
+	}
+
+	/**
+	 * If a complete listing is held, even expired
+	 * @return true if the listing can be revalidated
+	 */
+	synchronized boolean hasListing() {
+		return complete;
+	}
+
+	private List<SwiftFile> listing() {
+		List<SwiftFile> files = new ArrayList<>(entries.size());
+		Iterator<Entry> iterator = entries.values().iterator();
+		while(iterator.hasNext()) files.add(iterator.next().file);
+		files.sort(Comparator.comparing(SwiftFile::getName));
+		return files;
+	}
+
+	private static class Entry {
+		private final SwiftFile file;
+		private long expires;
+
+		private Entry(SwiftFile file, long expires) {
+			this.file = file;
+			this.expires = expires;
+		}
+	}
+}
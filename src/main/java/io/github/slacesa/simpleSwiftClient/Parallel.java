@@ -0,0 +1,122 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Runs asynchronous tasks over a collection, keeping at most a given number of them in flight
+ * @author SLC
+ *
+ */
+final class Parallel {
+
+	private Parallel() {}
+
+	/**
+	 * Applies task to every item, with bounded concurrency
+	 * Stops launching new tasks on the first failure, the result then fails with its cause
+	 * @param items the items to process
+	 * @param concurrency the maximum number of tasks in flight
+	 * @param task the asynchronous task
+	 * @return a future list of results, in the same order as items
+	 */
+	static <T, R> Future<List<R>> map(Collection<T> items, int concurrency, Function<T, Future<R>> task) {
+		Promise<List<R>> result = Promise.promise();
+		List<R> results = new ArrayList<>(items.size());
+		for(int i = 0; i < items.size(); i++) results.add(null);
+		if(items.isEmpty()) {
+			result.complete(results);
+			return result.future();
+		}
+		Iterator<T> iterator = items.iterator();
+		int[] next = {0};
+		int[] pending = {items.size()};
+		for(int i = 0; i < Math.max(1, Math.min(concurrency, items.size())); i++)
+			launch(iterator, next, pending, task, results, result);
+		return result.future();
+	}
+
+	private static <T, R> void launch(Iterator<T> iterator, int[] next, int[] pending, Function<T, Future<R>> task, List<R> results, Promise<List<R>> result) {
+		if(!iterator.hasNext() || result.future().isComplete()) return;
+		int index = next[0]++;
+		Future<R> future;
+		try {
+			future = task.apply(iterator.next());
+		}
+		catch (Exception e) {
+			future = Future.failedFuture(e);
+		}
+		future.onComplete(ar -> {
+			if(ar.failed()) {
+				result.tryFail(ar.cause());
+				return;
+			}
+			results.set(index, ar.result());
+			if(--pending[0] == 0) result.tryComplete(results);
+			else launch(iterator, next, pending, task, results, result);
+		});
+	}
+
+	/**
+	 * Limits the number of asynchronous tasks in flight, tasks submitted over the limit wait in a queue
+	 */
+	static class Limiter {
+
+		private final int limit;
+		private final Deque<Runnable> queue = new ArrayDeque<>();
+		private int inFlight;
+
+		Limiter(int limit) {
+			this.limit = Math.max(1, limit);
+		}
+
+		/**
+		 * Runs a task as soon as there is room for it
+		 * @param task the asynchronous task
+		 * @return a future to the task result
+		 */
+		<R> Future<R> run(Supplier<Future<R>> task) {
+			Promise<R> result = Promise.promise();
+			queue.add(() -> {
+				Future<R> future;
+				try {
+					future = task.get();
+				}
+				catch (Exception e) {
+					future = Future.failedFuture(e);
+				}
+				future.onComplete(ar -> {
+					inFlight--;
+					result.handle(ar);
+					drain();
+				});
+			});
+			drain();
+			return result.future();
+		}
+
+		/**
+		 * The number of tasks waiting for room
+		 * @return the queue length
+		 */
+		int queued() {
+			return queue.size();
+		}
+
+		private void drain() {
+			while(inFlight < limit && !queue.isEmpty()) {
+				inFlight++;
+				queue.poll().run();
+			}
+		}
+	}
+}
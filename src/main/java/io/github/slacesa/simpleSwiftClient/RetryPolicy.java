@@ -0,0 +1,32 @@
+package io.github.slacesa.simpleSwiftClient;
+
+/**
+ * Decides whether and when a failed request is sent again
+ * A policy instance is shared by all the requests of a client (and of its container clients), so that it can keep a retry budget
+ * @author SLC
+ *
+ */
+public interface RetryPolicy {
+
+	/**
+	 * The delay before sending a failed request again
+	 * @param attempt the number of the retry, 1 for the first one
+	 * @param failure why the last attempt failed, a TransientFailure when the cluster answered with an error status
+	 * @param idempotent true if the request can be sent twice safely (GET, HEAD, PUT, DELETE), false otherwise (POST, partially consumed streams)
+	 * @return the delay in milliseconds, negative to give up and fail with this failure
+	 */
+	long retryDelay(int attempt, Throwable failure, boolean idempotent);
+
+	/**
+	 * Called when a request succeeds, whether it was retried or not
+	 */
+	default void onSuccess() {}
+
+	/**
+	 * A policy that never retries
+	 * @return the policy
+	 */
+	static RetryPolicy none() {
+		return (attempt, failure, idempotent) -> -1;
+	}
+}
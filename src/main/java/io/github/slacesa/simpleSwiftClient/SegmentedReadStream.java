@@ -0,0 +1,148 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * Cuts a read stream of unknown length into consecutive segments of at most a given size, each one a read stream of its own
+ * A segment ends when the next chunk would not fit or when the source ends, so that whether more data follows is known
+ * when it ends; the source is paused between segments, the overflow of the last chunk is kept for the next segment
+ * @author SLC
+ *
+ */
+final class SegmentedReadStream {
+
+	private final ReadStream<Buffer> source;
+	private final long segmentSize;
+
+	private Segment current;
+	private Buffer remainder;
+	private boolean sourceEnded;
+	private Throwable failure;
+
+	/**
+	 * @param source the stream to cut, not read before the first segment is consumed
+	 * @param segmentSize the maximum size of a segment
+	 */
+	SegmentedReadStream(ReadStream<Buffer> source, long segmentSize) {
+		this.source = source;
+		this.segmentSize = segmentSize;
+		source.handler(chunk -> {
+			if(current != null) current.chunk(chunk);
+		});
+		source.endHandler(v -> {
+			sourceEnded = true;
+			if(current != null) current.end();
+		});
+		source.exceptionHandler(err -> {
+			failure = err;
+			if(current != null) current.fail(err);
+		});
+		source.pause();
+	}
+
+	/**
+	 * Whether data is left for another segment, to be checked once the previous segment has ended
+	 * @return true if another segment can be read
+	 */
+	boolean hasNext() {
+		return remainder != null || !sourceEnded;
+	}
+
+	/**
+	 * The next segment, to be called once the previous one has ended
+	 * @return the segment stream
+	 */
+	ReadStream<Buffer> next() {
+		current = new Segment();
+		return current;
+	}
+
+	private class Segment implements ReadStream<Buffer> {
+
+		private long length;
+		private boolean started, ended;
+		private Handler<Buffer> handler;
+		private Handler<Void> endHandler;
+		private Handler<Throwable> exceptionHandler;
+
+		@Override
+		public Segment exceptionHandler(Handler<Throwable> handler) {
+			this.exceptionHandler = handler;
+			return this;
+		}
+
+		@Override
+		public Segment handler(Handler<Buffer> handler) {
+			this.handler = handler;
+			if(handler != null && !started) {
+				started = true;
+				if(failure != null) fail(failure);
+				else if(remainder != null) {
+					Buffer overflow = remainder;
+					remainder = null;
+					chunk(overflow);
+				}
+				if(!ended) {
+					if(sourceEnded) end();
+					else source.resume();
+				}
+			}
+			return this;
+		}
+
+		@Override
+		public Segment pause() {
+			if(!ended) source.pause();
+			return this;
+		}
+
+		@Override
+		public Segment resume() {
+			if(!ended && started) source.resume();
+			return this;
+		}
+
+		@Override
+		public Segment fetch(long amount) {
+			if(!ended && started) source.fetch(amount);
+			return this;
+		}
+
+		@Override
+		public Segment endHandler(Handler<Void> endHandler) {
+			this.endHandler = endHandler;
+			return this;
+		}
+
+		private void chunk(Buffer chunk) {
+			if(ended) return;
+			long room = segmentSize - length;
+			if(chunk.length() <= room) {
+				length += chunk.length();
+				handler.handle(chunk);
+				return;
+			}
+			source.pause();
+			if(room > 0) {
+				length += room;
+				handler.handle(chunk.slice(0, (int) room));
+			}
+			remainder = chunk.slice((int) room, chunk.length());
+			end();
+		}
+
+		private void end() {
+			if(ended) return;
+			ended = true;
+			if(endHandler != null) endHandler.handle(null);
+		}
+
+		private void fail(Throwable cause) {
+			if(ended) return;
+			ended = true;
+			if(exceptionHandler != null) exceptionHandler.handle(cause);
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import io.github.slacesa.simpleSwiftClient.resources.SwiftFile;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * Spreads files over several containers or storage endpoints, so that write throughput is not bound to a single container database
+ * File names are placed with consistent hashing: each shard owns many points of a hash ring and a file goes to the shard owning
+ * the first point after the hash of its name, adding a shard only moves the files it takes over
+ * @author SLC
+ *
+ */
+public class ShardedSwiftClient {
+
+	private static final int VIRTUAL_NODES = 128;
+
+	private final List<SimpleSwiftClient> shards;
+	private final TreeMap<Long, SimpleSwiftClient> ring = new TreeMap<>();
+	private final Vertx vertx;
+
+	/**
+	 * @param vertx the Vert.x instance merged listings run on
+	 * @param shards the clients of every shard, each one identified by its storage host and container
+	 */
+	public ShardedSwiftClient(Vertx vertx, List<SimpleSwiftClient> shards) {
+		if(shards.isEmpty()) throw new IllegalArgumentException("At least one shard is required");
+		this.vertx = vertx;
+		this.shards = new ArrayList<>(shards);
+		for(SimpleSwiftClient shard : shards)
+			for(int i = 0; i < VIRTUAL_NODES; i++)
+				ring.put(hash(shard.location() + "#" + i), shard);
+	}
+
+	/**
+	 * Shards files over several containers of the same account, sharing the connections and the token of client
+	 * @param vertx the Vert.x instance merged listings run on
+	 * @param client a client of the account
+	 * @param containers the container names
+	 * @return a sharded client
+	 */
+	public static ShardedSwiftClient containers(Vertx vertx, SimpleSwiftClient client, List<String> containers) {
+		List<SimpleSwiftClient> shards = new ArrayList<>(containers.size());
+		for(String container : containers) shards.add(client.container(container));
+		return new ShardedSwiftClient(vertx, shards);
+	}
+
+	/**
+	 * The shard a file is stored on
+	 * @param filename the file name
+	 * @return the client of the shard
+	 */
+	public SimpleSwiftClient shard(String filename) {
+		Entry<Long, SimpleSwiftClient> owner = ring.ceilingEntry(hash(filename));
+		return (owner == null)? ring.firstEntry().getValue() : owner.getValue();
+	}
+
+	/**
+	 * All the shards
+	 * @return the clients of every shard
+	 */
+	public List<SimpleSwiftClient> shards() {
+		return Collections.unmodifiableList(shards);
+	}
+
+	/**
+	 * @see SimpleSwiftClient#getFileInfo(String)
+	 */
+	public Future<SwiftFile> getFileInfo(String filename) {
+		return shard(filename).getFileInfo(filename);
+	}
+
+	/**
+	 * Streams the merged list of files of every shard, in name order
+	 * @see SimpleSwiftClient#listFiles(String, String)
+	 */
+	public ReadStream<SwiftFile> listFiles(String prefix, String delimiter) {
+		List<ReadStream<SwiftFile>> sources = new ArrayList<>(shards.size());
+		for(SimpleSwiftClient shard : shards) sources.add(shard.listFiles(prefix, delimiter));
+		return new MergedFileListStream(vertx.getOrCreateContext(), sources);
+	}
+
+	/**
+	 * Streams the merged list of all files of every shard, in name order
+	 * @see SimpleSwiftClient#listFiles()
+	 */
+	public ReadStream<SwiftFile> listFiles() {
+		return listFiles(null, null);
+	}
+
+	/**
+	 * @see SimpleSwiftClient#unsealFile(String)
+	 */
+	public Future<Integer> unsealFile(String filename) {
+		return shard(filename).unsealFile(filename);
+	}
+
+	/**
+	 * @see SimpleSwiftClient#downloadFile(String)
+	 */
+	public Future<Buffer> downloadFile(String filename) {
+		return shard(filename).downloadFile(filename);
+	}
+
+	/**
+	 * @see SimpleSwiftClient#downloadFile(String, WriteStream)
+	 */
+	public Future<Void> downloadFile(String filename, WriteStream<Buffer> target) {
+		return shard(filename).downloadFile(filename, target);
+	}
+
+	/**
+	 * @see SimpleSwiftClient#downloadToFile(String, String)
+	 */
+	public Future<Void> downloadToFile(String filename, String path) {
+		return shard(filename).downloadToFile(filename, path);
+	}
+
+	/**
+	 * @see SimpleSwiftClient#downloadLargeFile(String, String)
+	 */
+	public Future<Void> downloadLargeFile(String filename, String path) {
+		return shard(filename).downloadLargeFile(filename, path);
+	}
+
+	/**
+	 * @see SimpleSwiftClient#uploadFile(String)
+	 */
+	public Future<Boolean> uploadFile(String filename) {
+		return shard(filename).uploadFile(filename);
+	}
+
+	/**
+	 * @see SimpleSwiftClient#uploadFile(String, Buffer)
+	 */
+	public Future<Boolean> uploadFile(String filename, Buffer fileContent) {
+		return shard(filename).uploadFile(filename, fileContent);
+	}
+
+	/**
+	 * Uploads many files, each one to its shard, with as many uploads in flight as the upload_concurrency of all the shards
+	 * @see SimpleSwiftClient#uploadFiles(Iterable)
+	 */
+	public UploadStream uploadFiles(Iterable<String> filenames) {
+		int concurrency = 0;
+		for(SimpleSwiftClient shard : shards) concurrency += shard.config().getUpload_concurrency();
+		return new UploadStream(vertx.getOrCreateContext(), filenames.iterator(), null, concurrency, shards.get(0).config().getUpload_queue_size(),
+				filename -> shard(filename).fileResult(filename));
+	}
+
+	/**
+	 * @see SimpleSwiftClient#uploadLargeFile(String)
+	 */
+	public Future<Boolean> uploadLargeFile(String filename) {
+		return shard(filename).uploadLargeFile(filename);
+	}
+
+	/**
+	 * @see SimpleSwiftClient#deleteFile(String)
+	 */
+	public Future<Boolean> deleteFile(String filename) {
+		return shard(filename).deleteFile(filename);
+	}
+
+	/**
+	 * Deletes many files, each shard deleting its own files in parallel with the others
+	 * @see SimpleSwiftClient#deleteFiles(Collection)
+	 */
+	public Future<Map<String, Boolean>> deleteFiles(Collection<String> filenames) {
+		Map<SimpleSwiftClient, List<String>> byShard = new LinkedHashMap<>();
+		for(String filename : filenames) byShard.computeIfAbsent(shard(filename), k -> new ArrayList<>()).add(filename);
+		List<Future<Map<String, Boolean>>> deletes = new ArrayList<>(byShard.size());
+		byShard.forEach((shard, names) -> deletes.add(shard.deleteFiles(names)));
+		return CompositeFuture.all(new ArrayList<>(deletes)).map(all -> {
+			Map<String, Boolean> result = new HashMap<>();
+			for(Future<Map<String, Boolean>> delete : deletes) result.putAll(delete.result());
+			return result;
+		});
+	}
+
+	/**
+	 * Closes every shard
+	 */
+	public void close() {
+		for(SimpleSwiftClient shard : shards) shard.close();
+	}
+
+	/**
+	 * Position on the ring, first 8 bytes of the MD5 of the key
+	 * @param key the file name or virtual node name
+	 * @return the ring position
+	 */
+	private static long hash(String key) {
+		MessageDigest md = DigestReadStream.md5();
+		byte[] digest = md.digest(key.getBytes(StandardCharsets.UTF_8));
+		long hash = 0;
+		for(int i = 0; i < 8; i++) hash = (hash << 8) | (digest[i] & 0xff);
+		return hash;
+	}
+}
@@ -1,28 +1,78 @@
 package io.github.slacesa.simpleSwiftClient;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 
-import io.github.slacesa.simpleSwiftClient.resources.AuthMessage;
+import io.github.slacesa.simpleSwiftClient.resources.BackupEntry;
+import io.github.slacesa.simpleSwiftClient.resources.BackupManifest;
 import io.github.slacesa.simpleSwiftClient.resources.SwiftConfig;
 import io.github.slacesa.simpleSwiftClient.resources.SwiftFile;
+import io.github.slacesa.simpleSwiftClient.resources.SwiftSegment;
+import io.github.slacesa.simpleSwiftClient.resources.UploadResult;
+import io.github.slacesa.zipper.PipedReadStream;
 import io.github.slacesa.zipper.Zipper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.CopyOptions;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.impl.NoStackTraceThrowable;
 import io.vertx.core.json.Json;
+import io.vertx.core.net.JdkSSLEngineOptions;
+import io.vertx.core.net.OpenSSLEngineOptions;
+import io.vertx.core.net.SSLEngineOptions;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.micrometer.MicrometerMetricsOptions;
+import io.vertx.ext.web.client.HttpRequest;
 import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.client.predicate.ErrorConverter;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import io.vertx.ext.web.client.predicate.ResponsePredicateResult;
+import io.vertx.ext.web.codec.BodyCodec;
 import io.vertx.uritemplate.UriTemplate;
+import io.vertx.uritemplate.Variables;
 
 /**
  * Simple Swift Client, used to connect to authenticate, upload, list and download files from cold storage
@@ -33,28 +83,55 @@ import io.vertx.uritemplate.UriTemplate;
 public class SimpleSwiftClient {
 
 	private SwiftConfig config;
-	private String token;
-	private DateTime token_expires;
+	private KeystoneToken tokens;
+	private RetryPolicy retryPolicy;
+	private EndpointGuard guard;
+	private ClientMetrics metrics;
 	private Vertx vertx;
 	private WebClient webclient;
+	private WebClient authclient;
+	private boolean owner;
 	private Zipper zipper;
+	private Future<JsonObject> capabilities;
+	private Future<String> tokenCheck;
+	private MetadataCache cache;
+	private UnsealScheduler unsealer;
 
 	private static SimpleSwiftClient swiftClient;
 	
 	private static final Logger log = Logger.getLogger(SimpleSwiftClient.class.getName());
+	private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+	private static final String SEGMENTS_SUFFIX = "_segments/";
+	private static final DateTimeFormatter SNAPSHOT_DATE = DateTimeFormat.forPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZoneUTC();
+	private static final DateTimeFormatter HTTP_DATE = DateTimeFormat.forPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'").withZoneUTC().withLocale(Locale.US);
+
+	/**
+	 * Creates an independent client, with its own connection pools, token and config, and authenticates it
+	 * @param vertx the Vert.x instance the client runs on
+	 * @param config the required config
+	 * @return a future to a new simple swift client
+	 */
+	public static Future<SimpleSwiftClient> create(Vertx vertx, SwiftConfig config) {
+		SimpleSwiftClient client = new SimpleSwiftClient(vertx, config);
+		return client.tokens.retrieve(false).map(client);
+	}
 
 	/**
 	 * Retrieve a singleton simple Swift Client, if already initialized it overwrites previous configuration
+	 * Use create() to talk to several accounts at the same time
 	 * @param config the required config
 	 * @return a future to a simple swift client
 	 */
 	public static Future<SimpleSwiftClient> retrieveClient(SwiftConfig config) {
 		Promise<SimpleSwiftClient> result = Promise.promise();
 		boolean force = (swiftClient != null);
-		if(force) swiftClient.config = config;
-		else swiftClient = new SimpleSwiftClient(config);
+		if(force) {
+			swiftClient.config = config;
+			swiftClient.tokens.setConfig(config);
+		}
+		else swiftClient = new SimpleSwiftClient(Vertx.currentContext().owner(), config);
 
-		swiftClient.retrieveToken(force).onComplete(ar -> {
+		swiftClient.tokens.retrieve(force).onComplete(ar -> {
 			if(ar.succeeded())
 				result.complete(swiftClient);
 			else
@@ -74,38 +151,174 @@ public class SimpleSwiftClient {
 		return result.future();
 	}
 
+	/**
+	 * A client for another container of the same account
+	 * It shares the connection pools and the token of this client, so that many containers can be used in parallel
+	 * without authenticating again; it has its own metadata cache and unseal scheduler
+	 * @param container the container name
+	 * @return a client scoped to container
+	 */
+	public SimpleSwiftClient container(String container) {
+		SwiftConfig scoped = JsonObject.mapFrom(config).mapTo(SwiftConfig.class);
+		scoped.setStorage_endpoint(accountEndpoint() + container);
+		return new SimpleSwiftClient(this, scoped);
+	}
+
+	/**
+	 * Replaces the retry policy, shared with the container clients obtained afterwards
+	 * @param retryPolicy the policy deciding when failed requests are sent again, RetryPolicy.none() to never retry
+	 * @return this client
+	 */
+	public SimpleSwiftClient setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * The circuit breaker and concurrency limit of the storage endpoint, shared with the container clients
+	 * @return the endpoint guard, to monitor its state
+	 */
+	public EndpointGuard guard() {
+		return guard;
+	}
+
+	/**
+	 * Records the client metrics to another registry, instead of the Micrometer global registry
+	 * The registry is shared with the container clients
+	 * @param registry the meter registry
+	 * @return this client
+	 */
+	public SimpleSwiftClient setMeterRegistry(MeterRegistry registry) {
+		metrics.setRegistry(registry);
+		return this;
+	}
+
+	/**
+	 * Vert.x options matching the client configuration, to be used when creating the Vert.x instance the client will run on
+	 * Native transport and Vert.x metrics (connection pools, HTTP client) can only be chosen when Vert.x is created, the client reuses the current instance
+	 * @param config the client config
+	 * @return Vert.x options
+	 */
+	public static VertxOptions vertxOptions(SwiftConfig config) {
+		VertxOptions options = new VertxOptions().setPreferNativeTransport(config.isNative_transport());
+		if(config.isVertx_metrics())
+			options.setMetricsOptions(new MicrometerMetricsOptions().setEnabled(true).setMicrometerRegistry(Metrics.globalRegistry));
+		return options;
+	}
+
 	/**
 	 * Retrieves a list of current files, including information on availability (policy_retrieval_state [sealed, unsealing, unsealed] and policy_retrieval_delay)
+	 * All the pages of the listing are retrieved, use listFiles() to process large containers without holding the whole list in memory
+	 * When the metadata cache is enabled (cache_ttl), a cached listing is returned until it expires, then it is kept as long as the container object count does not change
 	 * @return an array containing a list of files
 	 */
 	public Future<List<SwiftFile>> getFileList() {
-		Promise<List<SwiftFile>> result = Promise.promise();
-		getter(null).onComplete(response -> {
-			try {
-				if(response.succeeded() && response.result().statusCode() == 200)
-					result.complete(Arrays.asList(Json.decodeValue(response.result().bodyAsBuffer(), SwiftFile[].class)));
-				else if(response.succeeded() && response.result().statusCode() == 404)
-					result.fail(new FileNotFoundException("Container not found"));
-			}
-			catch (Exception e) {
-				result.fail(e.getCause());
+		if(cache == null) return fileLister();
+		List<SwiftFile> cached = cache.getListing();
+		if(cached != null) return Future.succeededFuture(cached);
+		if(!cache.hasListing()) return fileLister();
+		return containerHeader().compose(objectCount -> {
+			List<SwiftFile> revalidated = cache.revalidateListing(objectCount);
+			return (revalidated != null)? Future.succeededFuture(revalidated) : fileLister();
+		}, err -> fileLister());
+	}
+
+	/**
+	 * Retrieves the information of a single file, using the metadata cache when enabled
+	 * @param filename the file name
+	 * @return a future to the file information, bytes, hash, content type and last modification (retrieval state is only available from listings)
+	 */
+	public Future<SwiftFile> getFileInfo(String filename) {
+		Promise<SwiftFile> result = Promise.promise();
+		SwiftFile cached = (cache == null)? null : cache.get(filename);
+		if(cached != null) {
+			result.complete(cached);
+			return result.future();
+		}
+		header(filename).onComplete(response -> {
+			if(response.failed()) result.fail(response.cause());
+			else if(response.result().statusCode() == 404) result.fail(new FileNotFoundException("File not found: " + filename));
+			else if(response.result().statusCode() != 200 && response.result().statusCode() != 204)
+				result.fail(new Exception("Unknown status code: " + response.result().statusCode()));
+			else {
+				SwiftFile file = new SwiftFile();
+				file.setName(filename);
+				file.setBytes(Long.valueOf(response.result().getHeader("Content-Length")));
+				file.setHash(response.result().getHeader("Etag"));
+				file.setContent_type(response.result().getHeader("Content-Type"));
+				String lastModified = response.result().getHeader("Last-Modified");
+				if(lastModified != null) file.setLast_modified(HTTP_DATE.parseDateTime(lastModified));
+				if(cache != null) cache.put(file);
+				result.complete(file);
 			}
 		});
 		return result.future();
 	}
 
+	/**
+	 * Streams the list of current files, including information on availability
+	 * @see #listFiles(String, String)
+	 * @return a stream of files
+	 */
+	public ReadStream<SwiftFile> listFiles() {
+		return listFiles(null, null);
+	}
+
+	/**
+	 * Streams the list of current files, including information on availability
+	 * The listing is retrieved page by page (list_page_size entries each, following the last name as marker) and parsed as it arrives,
+	 * the next page is requested once the previous one has been consumed. The request starts when a handler is set
+	 * Pages are capped by the container_listing_limit of the cluster capabilities; when it is unknown, the listing ends with an empty page
+	 * @param prefix only lists files whose name starts with prefix, null for all files
+	 * @param delimiter groups names by their part between prefix and delimiter, groups are emitted once with only subdir set, null to disable
+	 * @return a stream of files, failing with a FileNotFoundException if the container does not exist
+	 */
+	public ReadStream<SwiftFile> listFiles(String prefix, String delimiter) {
+		return new SwiftFileListStream(vertx.getOrCreateContext(), config.getList_page_size(), (marker, parser) -> capabilities().compose(info -> {
+			int clusterLimit = info.getJsonObject("swift", new JsonObject()).getInteger("container_listing_limit", 0);
+			int pageSize = (clusterLimit > 0)? Math.min(config.getList_page_size(), clusterLimit) : config.getList_page_size();
+			// Entries are emitted as the body arrives, a page failing in the middle cannot be replayed
+			return authorized(false, authToken -> {
+				Promise<Integer> result = Promise.promise();
+				HttpRequest<Void> request = webclient.get(
+						config.getPort(),
+						config.getStorage_host(),
+						config.getStorage_endpoint())
+				.ssl(config.isSsl())
+				.addQueryParam("policy_extra", "true")
+				.addQueryParam("limit", Integer.toString(pageSize))
+				.putHeader("Accept", "application/json")
+				.putHeader("X-Auth-Token", authToken)
+				.as(BodyCodec.jsonStream(parser));
+				if(marker != null) request.addQueryParam("marker", marker);
+				if(prefix != null) request.addQueryParam("prefix", prefix);
+				if(delimiter != null) request.addQueryParam("delimiter", delimiter);
+				metrics.send(request, ResponsePredicate.create(response -> (response.statusCode() == 200 || response.statusCode() == 204)?
+						ResponsePredicateResult.success() : ResponsePredicateResult.failure("Unknown status code: " + response.statusCode()),
+						ErrorConverter.create(predicate -> predicate.response().statusCode() == 404?
+								new FileNotFoundException("Container not found") : rejection(predicate.response()) != null?
+								rejection(predicate.response()) : new Exception(predicate.message()))), response -> {
+					if(response.succeeded()) result.complete((clusterLimit > 0)? pageSize : 0);
+					else result.fail(response.cause());
+				});
+				return result.future();
+			});
+		}));
+	}
+
 	/**
 	 * Unseals a file, retrieves the time when it will be ready
+	 * Only the first byte is requested, an unsealed file is not downloaded
 	 * @param filename the file name to unseal
 	 * @return a future time (in seconds) when the file will be ready
 	 */
 	public Future<Integer> unsealFile(String filename) {
 		Promise<Integer> result = Promise.promise();
-		getter(filename).onComplete(response -> {
+		getter(filename, "bytes=0-0").onComplete(response -> {
 			if(response.succeeded()) {
 				if(response.result().statusCode() == 429)
 					result.complete(Integer.valueOf(response.result().getHeader("Retry-After")));
-				else if(response.result().statusCode() == 200)
+				else if(response.result().statusCode() == 200 || response.result().statusCode() == 206 || response.result().statusCode() == 416)
 					result.complete(0);
 				else if(response.result().statusCode() == 404)
 					result.fail(new FileNotFoundException("File not found: " + filename));
@@ -116,6 +329,45 @@ public class SimpleSwiftClient {
 		return result.future();
 	}
 
+	/**
+	 * The unseal scheduler of this client, to unseal many files and be notified when each one is ready
+	 * @return the unseal scheduler
+	 */
+	public UnsealScheduler unsealer() {
+		if(unsealer == null) unsealer = new UnsealScheduler(this, vertx, config.getUnseal_concurrency(), config.getUnseal_ttl() * 1000L);
+		return unsealer;
+	}
+
+	/**
+	 * A deduplicating store in the container: data is cut into content defined chunks, each stored once as a content addressed object
+	 * Chunk sizes follow dedup_chunk_size, chunks are uploaded and fetched dedup_concurrency at a time, restores unseal dedup_unseal_window chunks ahead
+	 * @param indexPath the local file caching the hashes of the stored chunks, rebuilt from a listing if missing
+	 * @return a new dedup store
+	 */
+	public DedupStore dedupStore(String indexPath) {
+		return new DedupStore(this, vertx, indexPath, config.getDedup_chunk_size(), config.getDedup_concurrency(), config.getDedup_unseal_window());
+	}
+
+	/**
+	 * Unseals many files and downloads each one to targetFolder as soon as it is ready
+	 * Unseal requests and downloads run with bounded concurrency (unseal_concurrency and download_concurrency)
+	 * @param filenames the file names to retrieve
+	 * @param targetFolder the local folder where files are written, using their name
+	 * @return a future map of results by file name, true if the file was downloaded
+	 */
+	public Future<Map<String, Boolean>> unsealAndDownload(Collection<String> filenames, String targetFolder) {
+		Parallel.Limiter downloads = new Parallel.Limiter(config.getDownload_concurrency());
+		Map<String, Boolean> downloaded = new LinkedHashMap<>();
+		List<Future<Void>> all = new ArrayList<>();
+		unsealer().unseal(filenames).forEach((filename, ready) -> all.add(ready.compose(v ->
+		downloads.run(() -> downloadLargeFile(filename, targetFolder + "/" + filename))).transform(ar -> {
+			if(ar.failed()) log.fine("Download of " + filename + " failed: " + ar.cause().getMessage());
+			downloaded.put(filename, ar.succeeded());
+			return Future.<Void>succeededFuture();
+		})));
+		return CompositeFuture.join(new ArrayList<>(all)).map(downloaded);
+	}
+
 	/**
 	 * Retrieves a buffer to a file (if the file is unsealed)
 	 * @param filename the file name to retrieve
@@ -127,11 +379,7 @@ public class SimpleSwiftClient {
 			if(response.succeeded()) {
 				if(response.result().statusCode() == 200)
 					result.complete(response.result().bodyAsBuffer());
-				else if(response.result().statusCode() == 429)
-					result.fail("Not ready, try again in " + response.result().getHeader("Retry-After"));
-				else if(response.result().statusCode() == 404)
-					result.fail(new FileNotFoundException("File not found: " + filename));
-				else result.fail(new Exception("Unknown status code: " + response.result().statusCode()));
+				else result.fail(downloadFailure(response.result(), filename));
 			}
 			else result.fail(response.cause());
 		});
@@ -139,23 +387,146 @@ public class SimpleSwiftClient {
 	}
 
 	/**
-	 * Reads a file from disk and uploads it to default folder
+	 * Streams a file (if the file is unsealed) to target stream as data arrives, without holding it in memory
+	 * The target stream is ended once the whole file has been written
+	 * @param filename the file name to retrieve
+	 * @param target the stream receiving the file content, e.g. an AsyncFile or an HttpServerResponse
+	 * @return a void future, successful once the whole file has been written to target
+	 */
+	public Future<Void> downloadFile(String filename, WriteStream<Buffer> target) {
+		// The body is written to target as it arrives, a download failing in the middle cannot be replayed
+		return authorized(false, authToken -> {
+			Promise<Void> result = Promise.promise();
+			HttpRequest<Void> request = webclient.get(
+					config.getPort(),
+					config.getStorage_host(),
+					config.getStorage_endpoint()+"/"+filename)
+			.ssl(config.isSsl())
+			.putHeader("X-Auth-Token", authToken)
+			.as(BodyCodec.pipe(target));
+			metrics.send(request, ResponsePredicate.create(ResponsePredicate.SC_OK,
+					ErrorConverter.create(predicate -> downloadFailure(predicate.response(), filename))), response -> {
+				if(response.succeeded()) result.complete();
+				else result.fail(response.cause());
+			});
+			return result.future();
+		});
+	}
+
+	/**
+	 * Streams a file (if the file is unsealed) straight to disk
+	 * The local file is removed if the download fails
+	 * @param filename the file name to retrieve
+	 * @param path the local path where the file will be written, overwritten if existing
+	 * @return a void future, successful once the whole file has been written to disk
+	 */
+	public Future<Void> downloadToFile(String filename, String path) {
+		Promise<Void> result = Promise.promise();
+		vertx.fileSystem().open(path, new OpenOptions().setWrite(true).setCreate(true).setTruncateExisting(true), file -> {
+			if(file.failed()) {
+				result.fail(file.cause());
+				return;
+			}
+			downloadFile(filename, file.result()).onComplete(ar -> {
+				if(ar.succeeded()) result.complete();
+				else file.result().close(v -> localDeleteFile(path).onComplete(v2 -> result.fail(ar.cause())));
+			});
+		});
+		return result.future();
+	}
+
+	/**
+	 * Downloads a large file (if the file is unsealed) straight to disk with parallel ranged requests, using range size from configuration
+	 * @see #downloadLargeFile(String, String, long)
+	 * @param filename the file name to retrieve
+	 * @param path the local path where the file will be written, overwritten if existing
+	 * @return a void future, successful once the whole file has been written and verified
+	 */
+	public Future<Void> downloadLargeFile(String filename, String path) {
+		return downloadLargeFile(filename, path, config.getRange_size());
+	}
+
+	/**
+	 * Downloads a large file (if the file is unsealed) straight to disk: the local file is preallocated,
+	 * then ranges are requested concurrently and each one is written at its own position as data arrives
+	 * The assembled file is verified against the object ETag (Static Large Objects, whose ETag is not a plain MD5, are not verified)
+	 * Files not larger than a range are retrieved with a single request. The local file is removed if the download fails
+	 * @param filename the file name to retrieve
+	 * @param path the local path where the file will be written, overwritten if existing
+	 * @param rangeSize the size of each range in bytes
+	 * @return a void future, successful once the whole file has been written and verified
+	 */
+	public Future<Void> downloadLargeFile(String filename, String path, long rangeSize) {
+		Promise<Void> result = Promise.promise();
+		header(filename).onComplete(head -> {
+			if(head.failed()) {
+				result.fail(head.cause());
+				return;
+			}
+			if(head.result().statusCode() != 200) {
+				result.fail(downloadFailure(head.result(), filename));
+				return;
+			}
+			long length = Long.parseLong(head.result().getHeader("Content-Length"));
+			String etag = head.result().getHeader("Etag");
+			List<Long> offsets = new ArrayList<>();
+			for(long offset = 0; offset < length; offset += rangeSize) offsets.add(offset);
+			Future<Void> download = (length <= rangeSize)? downloadToFile(filename, path) :
+				vertx.fileSystem().open(path, new OpenOptions().setWrite(true).setCreate(true).setTruncateExisting(true))
+				.compose(AsyncFile::close).compose(v ->
+				vertx.fileSystem().truncate(path, length)).compose(v ->
+				Parallel.map(offsets, config.getRange_concurrency(), offset ->
+				rangeGetter(filename, path, offset, Math.min(offset + rangeSize, length) - 1))).<Void>mapEmpty();
+			download.compose(v -> {
+				if(etag == null || etag.startsWith("\"")) return Future.succeededFuture();
+				return localDigest(path, 0, length).compose(digest -> DigestReadStream.matches(etag, digest)?
+						Future.succeededFuture() :
+						Future.failedFuture(new IOException("ETag mismatch for " + filename + ": received " + digest + ", stored " + etag)));
+			}).onComplete(ar -> {
+				if(ar.succeeded()) result.complete();
+				else localDeleteFile(path).onComplete(v -> result.fail(ar.cause()));
+			});
+		});
+		return result.future();
+	}
+
+	/**
+	 * Streams a file from disk and uploads it to default folder, the file is never fully loaded in memory
 	 * TODO Maybe allow to choose target folder
 	 * @param filename the source file name
 	 * @return a future boolean to result
 	 */
 	public Future<Boolean> uploadFile(String filename) {
 		Promise<Boolean> result = Promise.promise();
-		localReadFile(filename).compose(fileContent -> 
-		putter(filename, fileContent).onComplete(isSent ->{
-			result.complete(isSent.succeeded() && isSent.result());
-		})).otherwise(t1 -> {
-			result.fail(new NoStackTraceThrowable("File not found"));
-			return null;
+		fileUploader(filename).onComplete(isSent -> {
+			if(isSent.failed() && isSent.cause() instanceof FileNotFoundException) result.fail(new NoStackTraceThrowable("File not found"));
+			else result.complete(isSent.succeeded());
 		});
 		return result.future();
 	}
 
+	/**
+	 * Uploads many files from disk, at most upload_concurrency at the same time
+	 * File names are read from filenames as uploads are launched, so the collection may be lazy
+	 * @param filenames the source file names
+	 * @return a stream of results, one per file, in completion order; uploads start when a handler is set
+	 */
+	public UploadStream uploadFiles(Iterable<String> filenames) {
+		return new UploadStream(vertx.getOrCreateContext(), filenames.iterator(), null,
+				config.getUpload_concurrency(), config.getUpload_queue_size(), this::fileResult);
+	}
+
+	/**
+	 * Uploads many files from disk, at most upload_concurrency at the same time
+	 * The source is paused while upload_queue_size names wait to be uploaded
+	 * @param filenames a stream of source file names
+	 * @return a stream of results, one per file, in completion order; uploads start when a handler is set
+	 */
+	public UploadStream uploadFiles(ReadStream<String> filenames) {
+		return new UploadStream(vertx.getOrCreateContext(), null, filenames,
+				config.getUpload_concurrency(), config.getUpload_queue_size(), this::fileResult);
+	}
+
 	/**
 	 * Uploads a file with target name and target content and stores it to default folder
 	 * TODO Maybe allow to choose target folder
@@ -164,13 +535,135 @@ public class SimpleSwiftClient {
 	 * @return a future boolean to result
 	 */
 	public Future<Boolean> uploadFile(String filename, Buffer fileContent) {
-		Promise<Boolean> result = Promise.promise(); 
-		putter(filename, fileContent).onComplete(isSent ->{
+		return uploadFile(filename, fileContent, computeMD5(fileContent));
+	}
+
+	/**
+	 * Uploads a file with target name and target content, whose MD5 is already known
+	 * @param filename the file name
+	 * @param fileContent the data the new file will contain
+	 * @param etag the MD5 of fileContent
+	 * @return a future boolean to result
+	 */
+	Future<Boolean> uploadFile(String filename, Buffer fileContent, String etag) {
+		Promise<Boolean> result = Promise.promise();
+		putter(filename, fileContent, etag).onComplete(isSent ->{
+			if(isSent.succeeded() && isSent.result()) cacheFile(filename, fileContent.length(), etag);
 			result.complete(isSent.succeeded() && isSent.result());
 		});
 		return result.future();
 	}
 
+	/**
+	 * Streams a large file from disk as a Static Large Object, using segment size from configuration
+	 * @see #uploadLargeFile(String, long)
+	 * @param filename the source file name
+	 * @return a future boolean to result
+	 */
+	public Future<Boolean> uploadLargeFile(String filename) {
+		return uploadLargeFile(filename, config.getSegment_size());
+	}
+
+	/**
+	 * Streams a large file from disk as a Static Large Object: the file is split in segments uploaded concurrently,
+	 * then a manifest joining them is committed under filename. Segments are stored as filename_segments/00000000, ...
+	 * Failed segments are retried, segments already stored with matching size and MD5 are skipped, so a failed upload can be resumed
+	 * Files not larger than a segment are uploaded with a single request
+	 * @param filename the source file name
+	 * @param segmentSize the size of each segment in bytes, Swift does not accept segments larger than 5 GiB
+	 * @return a future boolean to result
+	 */
+	public Future<Boolean> uploadLargeFile(String filename, long segmentSize) {
+		Promise<Boolean> result = Promise.promise();
+		vertx.fileSystem().props(filename, props -> {
+			if(props.failed()) {
+				result.fail(new NoStackTraceThrowable("File not found"));
+				return;
+			}
+			long length = props.result().size();
+			if(length <= segmentSize) {
+				uploadFile(filename).onComplete(result);
+				return;
+			}
+			String prefix = filename + SEGMENTS_SUFFIX;
+			List<Long> offsets = new ArrayList<>();
+			for(long offset = 0; offset < length; offset += segmentSize) offsets.add(offset);
+			segmentLister(prefix).compose(existing ->
+			Parallel.map(offsets, config.getSegment_concurrency(), offset -> {
+				String segmentName = prefix + String.format("%08d", offset / segmentSize);
+				long segmentLength = Math.min(segmentSize, length - offset);
+				return segmentUploader(filename, segmentName, offset, segmentLength, existing.get(segmentName))
+						.map(etag -> new SwiftSegment("/" + containerName() + "/" + segmentName, etag, segmentLength));
+			})).compose(segments ->
+			manifestPutter(filename, segments)).onSuccess(v -> cacheFile(filename, length, null)).onComplete(isSent -> {
+				if(isSent.failed()) log.fine("Large upload of " + filename + " failed: " + isSent.cause().getMessage());
+				result.complete(isSent.succeeded());
+			});
+		});
+		return result.future();
+	}
+
+	/**
+	 * Streams data of unknown length, sending it as it is read with chunked transfer encoding, without buffering it
+	 * Data larger than a segment (segment_size) is stored as a Static Large Object: the first segment, already sent under filename,
+	 * is moved with a server side copy and the next ones are sent one after the other.
+	 * A stream can only be read once, requests failing after data has been sent are not retried
+	 * @param filename the object name
+	 * @param content the data to send
+	 * @return a future boolean to result
+	 */
+	public Future<Boolean> uploadStream(String filename, ReadStream<Buffer> content) {
+		return streamUploader(filename, content).map(true).otherwise(err -> {
+			log.fine("Streamed upload of " + filename + " failed: " + err.getMessage());
+			return false;
+		});
+	}
+
+	/**
+	 * Uploads the files of a folder in bulk: they are streamed as tar archives (up to bulk_upload_files files and bulk_upload_bytes bytes each,
+	 * bulk_upload_concurrency at the same time) that the cluster expands into objects (extract-archive), saving a request per file.
+	 * Falls back to single uploads, upload_concurrency at a time, if the cluster does not support bulk uploads
+	 * @param folderPath the source folder
+	 * @param prefix prepended to the path of each file relative to the folder to name its object, null for none
+	 * @param gzip true to compress the archives with gzip, worth it for compressible files on slow links
+	 * @return a future map of results by object name, true if the object was created
+	 */
+	public Future<Map<String, Boolean>> uploadFolder(String folderPath, String prefix, boolean gzip) {
+		return vertx.fileSystem().props(folderPath).transform(props -> {
+			if(props.failed() || !props.result().isDirectory()) return Future.failedFuture(new NoStackTraceThrowable("Folder not found"));
+			return vertx.<List<Map<String, String>>>executeBlocking(promise -> {
+				try {
+					promise.complete(localBatches(folderPath, prefix == null? "" : prefix));
+				}
+				catch (IOException e) {
+					promise.fail(e);
+				}
+			}, false);
+		}).compose(batches -> capabilities().compose(info -> {
+			Map<String, Boolean> stored = new HashMap<>();
+			if(info.getJsonObject("bulk_upload") == null) {
+				List<Map.Entry<String, String>> files = new ArrayList<>();
+				for(Map<String, String> batch : batches) files.addAll(batch.entrySet());
+				return Parallel.map(files, config.getUpload_concurrency(), file ->
+				vertx.fileSystem().props(file.getValue()).compose(props ->
+				streamPutter(file.getKey(), file.getValue(), 0, props.size()).onSuccess(hash -> cacheFile(file.getKey(), props.size(), hash)))
+				.map(true).otherwise(false).onSuccess(isSent -> stored.put(file.getKey(), isSent))).map(stored);
+			}
+			return Parallel.map(batches, config.getBulk_upload_concurrency(), batch -> {
+				PipedReadStream tar = zipper.tarStream(batch, gzip);
+				return extractPutter(batch.keySet(), gzip, tar).transform(ar -> {
+					if(ar.failed()) tar.cancel();
+					if(ar.failed() || !tar.result().succeeded()) {
+						log.fine("Bulk upload of " + batch.size() + " files failed: " + (ar.failed()? ar.cause().getMessage() : "archive not complete"));
+						for(String name : batch.keySet()) stored.put(name, false);
+					}
+					else stored.putAll(ar.result());
+					return Future.succeededFuture();
+				});
+			}).map(stored);
+		}));
+	}
+
 	/**
 	 * Deletes a file
 	 * @param filename the file name to delete
@@ -179,95 +672,332 @@ public class SimpleSwiftClient {
 	public Future<Boolean> deleteFile(String filename) {
 		Promise<Boolean> result = Promise.promise();
 		deleter(filename).onComplete(isDeleted ->{
-			result.complete(isDeleted.succeeded() && isDeleted.result());
+			if(cache != null && isDeleted.succeeded() && (isDeleted.result() == 204 || isDeleted.result() == 404)) cache.remove(filename);
+			result.complete(isDeleted.succeeded() && isDeleted.result() == 204);
+		});
+		return result.future();
+	}
+
+	/**
+	 * Deletes many files, using the cluster bulk delete middleware when available: names are sent in batches (up to bulk_delete_size per request)
+	 * and batches run concurrently. Falls back to single deletes with bounded concurrency otherwise
+	 * @param filenames the file names to delete
+	 * @return a future map of results by file name, true if the file no longer exists (deleted or not found)
+	 */
+	public Future<Map<String, Boolean>> deleteFiles(Collection<String> filenames) {
+		Promise<Map<String, Boolean>> result = Promise.promise();
+		capabilities().onComplete(info -> {
+			Map<String, Boolean> deleted = new HashMap<>();
+			JsonObject bulkDelete = info.result().getJsonObject("bulk_delete");
+			List<List<String>> batches = new ArrayList<>();
+			int batchSize = bulkDelete == null? 1 : Math.max(1, Math.min(config.getBulk_delete_size(),
+					bulkDelete.getInteger("max_deletes_per_request", config.getBulk_delete_size())));
+			List<String> batch = null;
+			for(String filename : filenames) {
+				if(batch == null || batch.size() == batchSize) batches.add(batch = new ArrayList<>(batchSize));
+				batch.add(filename);
+			}
+			Parallel.map(batches, config.getDelete_concurrency(), names ->
+			(bulkDelete == null? Future.<Map<String, Boolean>>succeededFuture(null) : bulkDeleter(names)).compose(bulk -> {
+				if(bulk != null) return Future.succeededFuture(bulk);
+				return Parallel.map(names, config.getDelete_concurrency(), filename ->
+				deleter(filename).map(status -> status == 204 || status == 404).otherwise(false)).map(statuses -> {
+					Map<String, Boolean> single = new HashMap<>();
+					for(int i = 0; i < names.size(); i++) single.put(names.get(i), statuses.get(i));
+					return single;
+				});
+			}).onSuccess(deleted::putAll)).onComplete(ar -> {
+				if(cache != null) deleted.forEach((filename, isDeleted) -> { if(isDeleted) cache.remove(filename); });
+				if(ar.succeeded()) result.complete(deleted);
+				else result.fail(ar.cause());
+			});
 		});
 		return result.future();
 	}
 
 	/**
 	 * Used to backup a folder on our remote swift container using a password protected zip file
+	 * The zip file is produced on a worker thread and streamed into the upload as it is written, nothing is written to disk
+	 * and memory stays bounded whatever the size of the folder
 	 * @param folderPath the source file, the last part will be used to generate the zip file name (e.g. ancestor/parent/child becomes child.zip)
 	 * @param password the password used to protect the zip file
-	 * @return a void promise, successful if the folder was zipped, sent and the temp zip was deleted 
+	 * @return a void future, successful if the folder was zipped and sent
 	 */
 	public Future<Void> backupFolder(String folderPath, String password) {
-		Promise<Void> result = Promise.promise();
 		String[] folders = folderPath.split("/");
 		String zipFileName = folders[folders.length-1]+".zip";
-		zipper.zipFolder(zipFileName, folderPath, password).compose(v ->
-		uploadFile(zipFileName).compose(isSent ->
-		localDeleteFile(zipFileName).onComplete(v2 -> {
-			if(v2.succeeded()) result.complete();
-		}))).otherwise(err -> {
-			result.fail(err.getCause());
-			return null;
+		return vertx.fileSystem().props(folderPath).transform(props -> {
+			if(props.failed() || !props.result().isDirectory()) return Future.failedFuture(new NoStackTraceThrowable("Folder not found"));
+			return archiveUploader(zipFileName, zipper.zipStream(folderPath, password));
+		});
+	}
+
+	/**
+	 * Backs up a folder incrementally: only the files added or changed since the previous backup are sent, in a password protected zip
+	 * Changes are detected against a local manifest of path, size, modification time and MD5 hash: directories are walked and files
+	 * hashed concurrently, files whose size and modification time did not change are not read. Each backup stores folder/snapshot.zip,
+	 * holding the changed files, and folder/snapshot.json, the manifest of the snapshot (every file and the archive holding it).
+	 * The local manifest is only replaced once the whole archive is stored (its stored length checked against the zip produced)
+	 * and the snapshot manifest after it, so a failed backup is sent again by the next one
+	 * @param folderPath the source folder, the last part will be used as prefix of the objects (e.g. ancestor/parent/child gives child/...)
+	 * @param password the password used to protect the zip files
+	 * @param manifestPath the local manifest file, outside of the folder, created by the first backup
+	 * @return a future to the manifest of the new snapshot
+	 */
+	public Future<BackupManifest> backupFolderIncremental(String folderPath, String password, String manifestPath) {
+		String[] folders = folderPath.split("/");
+		String prefix = folders[folders.length-1] + "/";
+		return vertx.fileSystem().props(folderPath).transform(props -> {
+			if(props.failed() || !props.result().isDirectory()) return Future.failedFuture(new NoStackTraceThrowable("Folder not found"));
+			return localManifest(manifestPath);
+		}).compose(previous -> {
+			Map<String, BackupEntry> known = new HashMap<>();
+			for(BackupEntry entry : previous.getFiles()) known.put(entry.getPath(), entry);
+			return vertx.<List<BackupEntry>>executeBlocking(promise -> {
+				try {
+					promise.complete(FolderScanner.scan(zipper.executor(), new File(folderPath), known));
+				}
+				catch (IOException e) {
+					promise.fail(e);
+				}
+			}, false).compose(files -> {
+				BackupManifest snapshot = new BackupManifest();
+				snapshot.setCreated(System.currentTimeMillis());
+				snapshot.setSnapshot(SNAPSHOT_DATE.print(snapshot.getCreated()));
+				snapshot.setPrevious(previous.getSnapshot());
+				snapshot.setFiles(files);
+				Set<String> changed = new HashSet<>();
+				for(BackupEntry entry : files) {
+					known.remove(entry.getPath());
+					if(entry.getArchive() != null) continue;
+					entry.setArchive(prefix + snapshot.getSnapshot() + ".zip");
+					changed.add(entry.getPath());
+				}
+				snapshot.setDeleted(new ArrayList<>(new TreeSet<>(known.keySet())));
+				if(!changed.isEmpty()) snapshot.setArchive(prefix + snapshot.getSnapshot() + ".zip");
+				Buffer manifest = Json.encodeToBuffer(snapshot);
+				Future<Void> archived = Future.succeededFuture();
+				if(!changed.isEmpty()) {
+					PipedReadStream zip = zipper.zipStream(folderPath, password, changed::contains);
+					archived = archiveUploader(snapshot.getArchive(), zip).compose(v -> archiveVerifier(snapshot.getArchive(), zip.length()));
+				}
+				return archived.compose(v ->
+				putter(prefix + snapshot.getSnapshot() + ".json", manifest, computeMD5(manifest))).compose(sent -> {
+					if(!sent) return Future.failedFuture(new NoStackTraceThrowable("Manifest not stored"));
+					return vertx.fileSystem().writeFile(manifestPath + ".tmp", manifest).compose(v ->
+					vertx.fileSystem().move(manifestPath + ".tmp", manifestPath, new CopyOptions().setReplaceExisting(true).setAtomicMove(true)));
+				}).map(snapshot);
+			});
 		});
-		return result.future();
 	}
 
 	/**
 	 * Closes the client and frees all resources
+	 * Container clients share the resources of the client they were obtained from, closing them has no effect
 	 */
 	public void close() {
+		if(!owner) return;
+		tokens.close();
+		zipper.close();
 		webclient.close();
+		authclient.close();
 	}
 
 	/**
 	 * A minimal Swift Client
-	 * @param username a Keystone user, with storage rights
-	 * @param password a Keystone password
+	 * @param vertx the Vert.x instance the client runs on
+	 * @param config the client config
 	 */
-	private SimpleSwiftClient(SwiftConfig config) {
+	private SimpleSwiftClient(Vertx vertx, SwiftConfig config) {
 		this.config = config;
-		this.vertx = Vertx.currentContext().owner();
-		this.webclient = WebClient.create(vertx);
-		this.zipper = Zipper.getZipper(vertx);
+		this.vertx = vertx;
+		this.owner = true;
+		if(config.isNative_transport() && !vertx.isNativeTransportEnabled())
+			log.warning("Native transport not enabled on this Vert.x instance, using NIO");
+		this.webclient = WebClient.create(vertx, clientOptions(config, config.getMax_pool_size())
+				.setProtocolVersion(config.isHttp2()? HttpVersion.HTTP_2 : HttpVersion.HTTP_1_1)
+				.setUseAlpn(config.isHttp2() && config.isSsl())
+				.setHttp2ClearTextUpgrade(false)
+				.setHttp2MaxPoolSize(config.getHttp2_max_pool_size()));
+		this.authclient = WebClient.create(vertx, clientOptions(config, config.getAuth_max_pool_size()));
+		log.fine("Transport " + (vertx.isNativeTransportEnabled()? "native" : "NIO") + ", SSL engine " + sslEngine(config).getClass().getSimpleName());
+		this.metrics = new ClientMetrics(Metrics.globalRegistry, config.getStorage_host() + ":" + config.getPort(), accountEndpoint(),
+				(config.getMetrics_client() != null)? config.getMetrics_client() : config.getStorage_endpoint().substring(accountEndpoint().length()));
+		this.tokens = new KeystoneToken(vertx, authclient, metrics, config);
+		this.retryPolicy = new ExponentialBackoff(config.getRetry_base_delay(), config.getRetry_max_delay(), config.getRetry_max(), config.getRetry_budget());
+		this.guard = new EndpointGuard(config.getStorage_host() + ":" + config.getPort(), config.getCircuit_window(), config.getCircuit_error_rate(),
+				config.getCircuit_open_time(), config.getLimit_min(), config.getLimit_max() > 0? config.getLimit_max() : config.getMax_pool_size(),
+				config.getLimit_latency());
+		metrics.bind(guard, tokens);
+		this.zipper = Zipper.create(vertx)
+				.setParallelism(config.getZip_parallelism())
+				.setCompressionLevel(config.getZip_compression_level())
+				.setStoredExtensions(Arrays.asList(config.getZip_store_extensions().split(",")));
+		if(config.getCache_ttl() > 0) this.cache = new MetadataCache(config.getCache_ttl() * 1000L, config.getCache_size());
+	}
+
+	/**
+	 * A Swift Client for another container, sharing the pools and the token of parent
+	 * @param parent the client to share resources with
+	 * @param config the container config
+	 */
+	private SimpleSwiftClient(SimpleSwiftClient parent, SwiftConfig config) {
+		this.config = config;
+		this.vertx = parent.vertx;
+		this.webclient = parent.webclient;
+		this.authclient = parent.authclient;
+		this.tokens = parent.tokens;
+		this.retryPolicy = parent.retryPolicy;
+		this.guard = parent.guard;
+		this.metrics = parent.metrics;
+		this.zipper = parent.zipper;
+		this.capabilities = parent.capabilities;
+		if(config.getCache_ttl() > 0) this.cache = new MetadataCache(config.getCache_ttl() * 1000L, config.getCache_size());
+	}
+
+	/**
+	 * Connection settings shared by the storage and the authentication pools
+	 * @param config the client config
+	 * @param poolSize the maximum number of HTTP/1.x connections
+	 * @return the web client options
+	 */
+	private WebClientOptions clientOptions(SwiftConfig config, int poolSize) {
+		return new WebClientOptions()
+				.setSslEngineOptions(sslEngine(config))
+				.setTcpQuickAck(config.isNative_transport() && vertx.isNativeTransportEnabled())
+				.setMaxPoolSize(poolSize)
+				.setKeepAlive(config.isKeep_alive())
+				.setKeepAliveTimeout(config.getKeep_alive_timeout())
+				.setPipelining(config.isPipelining())
+				.setPipeliningLimit(config.getPipelining_limit())
+				.setIdleTimeout(config.getIdle_timeout())
+				.setTcpNoDelay(config.isTcp_no_delay());
 	}
 
 	/**
-	 * Retrieve a valid token
-	 * Checks if there is a current valid token, otherwise it retrieves one
-	 * @param force ignores the validity check, retrieves a new token
-	 * @return a future to a valid token
+	 * The configured SSL engine, OpenSSL when requested and available, JDK otherwise
+	 * @param config the client config
+	 * @return the SSL engine options
 	 */
-	private Future<String> retrieveToken(boolean force) {
-		Promise<String> result = Promise.promise();
-		if(!force && token != null && token_expires != null && token_expires.isAfterNow()) {
-			result.complete(token);
+	private static SSLEngineOptions sslEngine(SwiftConfig config) {
+		if("openssl".equalsIgnoreCase(config.getSsl_engine())) {
+			if(OpenSSLEngineOptions.isAvailable()) return new OpenSSLEngineOptions();
+			log.warning("OpenSSL engine not available, using JDK engine");
 		}
-		else {
-			JsonObject authMessage = new AuthMessage(config.getUsername(), config.getPassword()).parse();
-			webclient.post(
-					config.getPort(),
-					config.getAuth_host(),
-					config.getAuth_endpoint())
-			.ssl(config.getPort()==443)
-			.putHeader("Content-Type", "application/json")
-			.sendJsonObject(authMessage, ar -> {
-				if(ar.succeeded() && (ar.result().statusCode() == 200 || ar.result().statusCode() == 201)) {
-					token = ar.result().getHeader("X-Subject-Token");
-					log.fine("Token " + token);
-					JsonObject bodyResponse = ar.result().bodyAsJsonObject();
-					token_expires = DateTime.parse(bodyResponse.getJsonObject("token").getString("expires_at"));
-					// Sets a timer to refresh token one hour before expiration
-					vertx.setTimer(token_expires.minusHours(1).getMillis()-DateTime.now().getMillis(), timer -> {
-						retrieveToken(true);
-					});
-					result.complete(token);
-				}
-				else {
-					//Fail, but retry after 1 minute
-					token = null;
-					vertx.setTimer(60000, timer -> {
-						retrieveToken(true);
-					});
-					//log.info(String.valueOf(ar.result().statusCode()));
-					//log.info(ar.result().bodyAsString());
-					result.fail(ar.succeeded()?new NoStackTraceThrowable("Status Code not 200 OK"):ar.cause());
-				}
+		return new JdkSSLEngineOptions();
+	}
+
+	/**
+	 * Runs an idempotent request with a valid token
+	 * @see #authorized(boolean, Function)
+	 */
+	private <T> Future<T> authorized(Function<String, Future<T>> call) {
+		return authorized(true, call);
+	}
+
+	/**
+	 * Runs a request with a valid token, retrying it once with a new token if the token is rejected,
+	 * and sending it again on transient failures as decided by the retry policy
+	 * Each attempt goes through the endpoint guard, failing fast when its circuit is open
+	 * @param idempotent true if the request can be sent twice safely
+	 * @param call the request, given the token to send, failing with TokenRejected on a 401 and TransientFailure on a 5xx
+	 * @return a future to the request result
+	 */
+	private <T> Future<T> authorized(boolean idempotent, Function<String, Future<T>> call) {
+		return attempt(1, idempotent, call);
+	}
+
+	/**
+	 * Runs an idempotent request on a local file, opened before the request is sent so that a local failure
+	 * (missing file, permissions) fails at once instead of being retried or counted against the endpoint
+	 * The first attempt gets that file, each retry opens it again: an attempt closes the file it is given
+	 * @param opener opens the local file
+	 * @param call the request, given the token to send and the open file
+	 * @return a future to the request result
+	 */
+	private <T> Future<T> fileAuthorized(Supplier<Future<AsyncFile>> opener, BiFunction<String, AsyncFile, Future<T>> call) {
+		return opener.get().compose(opened -> {
+			AtomicReference<AsyncFile> first = new AtomicReference<>(opened);
+			return authorized(authToken -> {
+				AsyncFile file = first.getAndSet(null);
+				return (file != null? Future.succeededFuture(file) : opener.get()).compose(current -> call.apply(authToken, current));
+			}).onComplete(ar -> {
+				// The circuit may reject the request before the first attempt
+				AsyncFile unused = first.getAndSet(null);
+				if(unused != null) unused.close();
 			});
-		}
-		return result.future();
+		});
+	}
+
+	private <T> Future<T> attempt(int attempt, boolean idempotent, Function<String, Future<T>> call) {
+		return tokens.retrieve(false).compose(used -> guard.run(() -> call.apply(used)).onSuccess(r -> tokens.accepted(used)).recover(err -> {
+			if(!(err instanceof TokenRejected)) return Future.failedFuture(err);
+			// Only the first request rejected with this token drops it, the others wait for the same new token
+			tokens.invalidate(used);
+			return tokens.retrieve(false).compose(fresh -> guard.run(() -> call.apply(fresh)).onSuccess(r -> tokens.accepted(fresh)));
+		})).transform(ar -> {
+			if(ar.succeeded()) {
+				retryPolicy.onSuccess();
+				return Future.succeededFuture(ar.result());
+			}
+			long delay = retryPolicy.retryDelay(attempt, ar.cause(), idempotent);
+			if(delay < 0) return Future.failedFuture(ar.cause());
+			log.fine("Retrying in " + delay + " ms: " + ar.cause().getMessage());
+			Promise<T> result = Promise.promise();
+			vertx.setTimer(Math.max(1, delay), timer -> attempt(attempt + 1, idempotent, call).onComplete(result));
+			return result.future();
+		});
+	}
+
+	/**
+	 * Runs a request whose body can only be sent once, through the endpoint guard
+	 * The token is checked with the storage first unless it was issued or accepted recently, so that a revoked token is replaced
+	 * before the body is consumed. The request is never sent again: a token rejected anyway is dropped for the next
+	 * requests and the request fails with the original failure
+	 * @param call the request, given the token to send, failing with TokenRejected on a 401 and TransientFailure on a 5xx
+	 * @return a future to the request result
+	 */
+	private <T> Future<T> authorizedOnce(Function<String, Future<T>> call) {
+		return acceptedToken().compose(used -> guard.run(() -> call.apply(used)).transform(ar -> {
+			if(ar.succeeded()) {
+				tokens.accepted(used);
+				retryPolicy.onSuccess();
+				return Future.succeededFuture(ar.result());
+			}
+			if(ar.cause() instanceof TokenRejected) tokens.invalidate(used);
+			return Future.failedFuture(ar.cause());
+		}));
+	}
+
+	/**
+	 * Retrieves a token issued or accepted by the storage less than token_check_age ago, checking it with a HEAD request on the container otherwise
+	 * Concurrent callers share the same check
+	 * @return a future to the token
+	 */
+	private Future<String> acceptedToken() {
+		return tokens.retrieve(false).compose(token -> {
+			if(tokens.acceptedWithin(config.getToken_check_age())) return Future.succeededFuture(token);
+			if(tokenCheck != null) return tokenCheck;
+			Future<String> check = authorized(authToken -> {
+				Promise<String> result = Promise.promise();
+				HttpRequest<Buffer> request = webclient.head(
+						config.getPort(),
+						config.getStorage_host(),
+						config.getStorage_endpoint())
+				.ssl(config.isSsl())
+				.putHeader("X-Auth-Token", authToken);
+				metrics.send(request, response -> {
+					if(response.failed()) result.fail(response.cause());
+					else if(rejection(response.result()) != null) result.fail(rejection(response.result()));
+					else result.complete(authToken);
+				});
+				return result.future();
+			});
+			tokenCheck = check;
+			return check.onComplete(ar -> {
+				if(tokenCheck == check) tokenCheck = null;
+			});
+		});
 	}
 
 	/**
@@ -275,55 +1005,348 @@ public class SimpleSwiftClient {
 	 * @return an HttpResponse with the result
 	 */
 	private Future<HttpResponse<Buffer>> getter(String filename) {
-		Promise<HttpResponse<Buffer>> result = Promise.promise();
-		String extra = (filename == null)? "?policy_extra=true" : "/" + filename;
-		webclient.get(
-				config.getPort(),
-				config.getStorage_host(),
-				config.getStorage_endpoint()+extra)
-		.ssl(config.getPort()==443)
-		.putHeader("Accept", "application/json")
-		.putHeader("X-Auth-Token", token)
-		.send(response -> {
-			if(response.succeeded())
-				result.complete(response.result());
-			else result.fail(response.cause());
+		return getter(filename, null);
+	}
+
+	/**
+	 * Multi purpose getter, for a range of a file
+	 * @param filename the file name
+	 * @param range the Range header value, null to retrieve the whole file
+	 * @return an HttpResponse with the result
+	 */
+	private Future<HttpResponse<Buffer>> getter(String filename, String range) {
+		return authorized(authToken -> {
+			Promise<HttpResponse<Buffer>> result = Promise.promise();
+			String extra = (filename == null)? "?policy_extra=true" : "/" + filename;
+			HttpRequest<Buffer> request = webclient.get(
+					config.getPort(),
+					config.getStorage_host(),
+					config.getStorage_endpoint()+extra)
+			.ssl(config.isSsl())
+			.putHeader("Accept", "application/json")
+			.putHeader("X-Auth-Token", authToken);
+			if(range != null) request.putHeader("Range", range);
+			metrics.send(request, response -> {
+				if(response.succeeded() && rejection(response.result()) != null) {
+					result.fail(rejection(response.result()));
+					return;
+				}
+				if(response.succeeded())
+					result.complete(response.result());
+				else result.fail(response.cause());
+			});
+			return result.future();
 		});
+	}
+
+	/**
+	 * Retrieves the whole paginated listing, refreshing the metadata cache when enabled
+	 * @return a future list of files
+	 */
+	private Future<List<SwiftFile>> fileLister() {
+		Promise<List<SwiftFile>> result = Promise.promise();
+		List<SwiftFile> files = new ArrayList<>();
+		listFiles(null, null)
+		.exceptionHandler(result::tryFail)
+		.endHandler(v -> {
+			if(cache != null) cache.putListing(files);
+			result.tryComplete(files);
+		})
+		.handler(files::add);
 		return result.future();
 	}
 
 	/**
-	 * Multi purpose deleter: can delete a container if empty (filename == null) or delete a file (returns 204 when successful)
+	 * Retrieves the container object count with a HEAD request
+	 * @return a future object count
+	 */
+	private Future<Long> containerHeader() {
+		return authorized(authToken -> {
+			Promise<Long> result = Promise.promise();
+			HttpRequest<Buffer> request = webclient.head(
+					config.getPort(),
+					config.getStorage_host(),
+					config.getStorage_endpoint())
+			.ssl(config.isSsl())
+			.putHeader("X-Auth-Token", authToken);
+			metrics.send(request, response -> {
+				if(response.succeeded() && rejection(response.result()) != null) {
+					result.fail(rejection(response.result()));
+					return;
+				}
+				if(response.failed()) result.fail(response.cause());
+				else if(response.result().getHeader("X-Container-Object-Count") == null)
+					result.fail(new Exception("Unknown status code: " + response.result().statusCode()));
+				else result.complete(Long.valueOf(response.result().getHeader("X-Container-Object-Count")));
+			});
+			return result.future();
+		});
+	}
+
+	/**
+	 * Writes an uploaded file through to the metadata cache, if enabled
+	 * @param filename the file name
+	 * @param length the file length
+	 * @param hash the file MD5, null if unknown
+	 */
+	private void cacheFile(String filename, long length, String hash) {
+		if(cache == null) return;
+		SwiftFile file = new SwiftFile();
+		file.setName(filename);
+		file.setBytes(length);
+		file.setHash(hash);
+		file.setLast_modified(DateTime.now());
+		cache.put(file);
+	}
+
+	/**
+	 * Retrieves the headers of a file, without its content
+	 * @param filename the file name
 	 * @return an HttpResponse with the result
 	 */
-	private Future<Boolean> deleter(String filename) {
-		Promise<Boolean> result = Promise.promise();
-		webclient.delete(
-				config.getPort(),
-				config.getStorage_host(),
-				config.getStorage_endpoint()+"/"+filename)
-		.ssl(config.getPort()==443)
-		.putHeader("Accept", "application/json")
-		.putHeader("X-Auth-Token", token)
-		.send(response -> {
-			if(response.succeeded())
-				result.complete(response.result().statusCode() == 204);
-			else result.fail(response.cause());
+	private Future<HttpResponse<Buffer>> header(String filename) {
+		return authorized(authToken -> {
+			Promise<HttpResponse<Buffer>> result = Promise.promise();
+			HttpRequest<Buffer> request = webclient.head(
+					config.getPort(),
+					config.getStorage_host(),
+					config.getStorage_endpoint()+"/"+filename)
+			.ssl(config.isSsl())
+			.putHeader("X-Auth-Token", authToken);
+			metrics.send(request, response -> {
+				if(response.succeeded() && rejection(response.result()) != null) {
+					result.fail(rejection(response.result()));
+					return;
+				}
+				if(response.succeeded())
+					result.complete(response.result());
+				else result.fail(response.cause());
+			});
+			return result.future();
 		});
-		return result.future();
 	}
 
 	/**
-	 * Reads target file
+	 * Retrieves a range of a file and writes it at the same position of a local file
 	 * @param filename the file name
-	 * @return a future data buffer to target file
+	 * @param path the local file, already allocated
+	 * @param start the first byte of the range
+	 * @param end the last byte of the range, inclusive
+	 * @return a void future, successful once the range has been written
 	 */
-	private Future<Buffer> localReadFile(String filename) {
-		Promise<Buffer> result = Promise.promise();
-		vertx.fileSystem().readFile(filename, ar -> {
-			if(ar.succeeded()) result.complete(ar.result());
+	private Future<Void> rangeGetter(String filename, String path, long start, long end) {
+		return fileAuthorized(() -> vertx.fileSystem().open(path, new OpenOptions().setWrite(true).setCreate(false)), (authToken, file) -> {
+			Promise<Void> result = Promise.promise();
+			file.setWritePos(start);
+			HttpRequest<Void> request = webclient.get(
+					config.getPort(),
+					config.getStorage_host(),
+					config.getStorage_endpoint()+"/"+filename)
+			.ssl(config.isSsl())
+			.putHeader("X-Auth-Token", authToken)
+			.putHeader("Range", "bytes=" + start + "-" + end)
+			.as(BodyCodec.pipe(file));
+			metrics.send(request, ResponsePredicate.create(ResponsePredicate.status(206),
+					ErrorConverter.create(predicate -> downloadFailure(predicate.response(), filename))), response -> {
+				if(response.succeeded()) result.complete();
+				else file.close(v -> result.fail(response.cause()));
+			});
+			return result.future();
+		});
+	}
+
+	/**
+	 * Multi purpose deleter: can delete a container if empty (filename == null) or delete a file (returns 204 when successful)
+	 * @return a future to the response status code
+	 */
+	private Future<Integer> deleter(String filename) {
+		return authorized(authToken -> {
+			Promise<Integer> result = Promise.promise();
+			HttpRequest<Buffer> request = webclient.delete(
+					config.getPort(),
+					config.getStorage_host(),
+					config.getStorage_endpoint()+"/"+filename)
+			.ssl(config.isSsl())
+			.putHeader("Accept", "application/json")
+			.putHeader("X-Auth-Token", authToken);
+			metrics.send(request, response -> {
+				if(response.succeeded() && rejection(response.result()) != null) {
+					result.fail(rejection(response.result()));
+					return;
+				}
+				if(response.succeeded())
+					result.complete(response.result().statusCode());
+				else result.fail(response.cause());
+			});
+			return result.future();
+		});
+	}
+
+	/**
+	 * Deletes a batch of files with a single bulk delete request
+	 * @param filenames the file names to delete
+	 * @return a future map of results by file name, null if the cluster did not accept the bulk request
+	 */
+	private Future<Map<String, Boolean>> bulkDeleter(List<String> filenames) {
+		return authorized(false, authToken -> {
+			Promise<Map<String, Boolean>> result = Promise.promise();
+			String container = "/" + containerName() + "/";
+			StringBuilder body = new StringBuilder();
+			for(String filename : filenames) body.append(container).append(urlEncode(filename)).append('\n');
+			HttpRequest<Buffer> request = webclient.post(
+					config.getPort(),
+					config.getStorage_host(),
+					accountEndpoint())
+			.ssl(config.isSsl())
+			.addQueryParam("bulk-delete", "true")
+			.putHeader("Content-Type", "text/plain")
+			.putHeader("Accept", "application/json")
+			.putHeader("X-Auth-Token", authToken);
+			metrics.sendBuffer(request, Buffer.buffer(body.toString()), response -> {
+				if(response.succeeded() && rejection(response.result()) != null) {
+					result.fail(rejection(response.result()));
+					return;
+				}
+				if(response.failed()) {
+					result.fail(response.cause());
+					return;
+				}
+				if(response.result().statusCode() != 200) {
+					log.fine("Bulk delete refused (" + response.result().statusCode() + "), deleting one by one");
+					result.complete(null);
+					return;
+				}
+				Map<String, Boolean> deleted = new HashMap<>();
+				for(String filename : filenames) deleted.put(filename, true);
+				JsonArray errors = response.result().bodyAsJsonObject().getJsonArray("Errors", new JsonArray());
+				for(int i = 0; i < errors.size(); i++) {
+					String path = urlDecode(errors.getJsonArray(i).getString(0));
+					deleted.put(path.startsWith(container)? path.substring(container.length()) : path, false);
+				}
+				result.complete(deleted);
+			});
+			return result.future();
+		});
+	}
+
+	/**
+	 * Retrieves the cluster capabilities (GET /info) once, an empty object if they cannot be retrieved
+	 * @return a future to the capabilities
+	 */
+	private Future<JsonObject> capabilities() {
+		if(capabilities == null) {
+			Promise<JsonObject> result = Promise.promise();
+			capabilities = result.future();
+			HttpRequest<Buffer> request = webclient.get(
+					config.getPort(),
+					config.getStorage_host(),
+					"/info")
+			.ssl(config.isSsl())
+			.putHeader("Accept", "application/json");
+			metrics.send(request, response -> {
+				try {
+					if(response.failed()) capabilities = null;
+					if(response.succeeded() && response.result().statusCode() == 200)
+						result.complete(response.result().bodyAsJsonObject());
+					else result.complete(new JsonObject());
+				}
+				catch (Exception e) {
+					result.complete(new JsonObject());
+				}
+			});
+		}
+		return capabilities;
+	}
+
+	/**
+	 * The account endpoint, storage endpoint without the container
+	 * @return the account endpoint
+	 */
+	private String accountEndpoint() {
+		String endpoint = config.getStorage_endpoint();
+		return endpoint.substring(0, endpoint.lastIndexOf('/')+1);
+	}
+
+	/**
+	 * Decodes a path returned by the cluster
+	 * @param path the encoded path
+	 * @return the decoded path
+	 */
+	private static String urlDecode(String path) {
+		try {
+			return URLDecoder.decode(path.replace("+", "%2B"), "UTF-8");
+		} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+			return path;
+		}
+	}
+
+	/**
+	 * Encodes a file name to be used in a path, keeping slashes
+	 * @param filename the file name
+	 * @return the encoded file name
+	 */
+	private static String urlEncode(String filename) {
+		try {
+			return URLEncoder.encode(filename, "UTF-8").replace("+", "%20").replace("%2F", "/");
+		} catch (UnsupportedEncodingException e) {
+			return filename;
+		}
+	}
+
+	/**
+	 * Expands a path as a URI template, encoding what is not allowed in a URI, so that the request keeps a plain URI
+	 * @param path the path
+	 * @return the expanded path
+	 */
+	private static String templatePath(String path) {
+		return UriTemplate.of(path).expandToString(Variables.variables());
+	}
+
+	/**
+	 * Maps a download response that did not return 200 to the matching failure
+	 * @param response the server response
+	 * @param filename the requested file name
+	 * @return the failure cause
+	 */
+	private static Throwable downloadFailure(HttpResponse<?> response, String filename) {
+		if(response.statusCode() == 429)
+			return new NoStackTraceThrowable("Not ready, try again in " + response.getHeader("Retry-After"));
+		else if(response.statusCode() == 404)
+			return new FileNotFoundException("File not found: " + filename);
+		else if(rejection(response) != null)
+			return rejection(response);
+		else return new Exception("Unknown status code: " + response.statusCode());
+	}
+
+	/**
+	 * Maps the responses that have to be handled by sending the request again
+	 * @param response the server response
+	 * @return TokenRejected on 401, a TransientFailure on server errors, null otherwise
+	 */
+	private static Throwable rejection(HttpResponse<?> response) {
+		if(response.statusCode() == 401) return new TokenRejected();
+		if(response.statusCode() >= 500) {
+			String retryAfter = response.getHeader("Retry-After");
+			long seconds = -1;
+			try {
+				if(retryAfter != null) seconds = Long.parseLong(retryAfter.trim());
+			}
+			catch (NumberFormatException e) {}
+			return new TransientFailure(response.statusCode(), seconds);
+		}
+		return null;
+	}
+
+	/**
+	 * Opens target file for reading
+	 * @param filename the file name
+	 * @return a future read stream to target file
+	 */
+	private Future<AsyncFile> localOpenFile(String filename) {
+		Promise<AsyncFile> result = Promise.promise();
+		vertx.fileSystem().open(filename, new OpenOptions().setRead(true).setWrite(false).setCreate(false), ar -> {
+			if(ar.succeeded()) result.complete(ar.result().setReadBufferSize(STREAM_BUFFER_SIZE));
 			else result.fail(ar.cause());
-//			log.debug("File length " + ar.result().length());
 		});
 		return result.future();
 	}
@@ -342,51 +1365,488 @@ public class SimpleSwiftClient {
 		return result.future();
 	}
 
+	/**
+	 * Streams a file from disk to default folder, under its own name
+	 * @param filename the source file name
+	 * @return a future result, failed with a FileNotFoundException if it is not a regular file
+	 */
+	private Future<UploadResult> fileUploader(String filename) {
+		long start = System.currentTimeMillis();
+		return vertx.fileSystem().props(filename).recover(err -> Future.failedFuture(new FileNotFoundException("File not found: " + filename)))
+		.compose(props -> {
+			if(!props.isRegularFile()) return Future.failedFuture(new FileNotFoundException("File not found: " + filename));
+			long length = props.size();
+			return streamPutter(filename, filename, 0, length).map(hash -> {
+				cacheFile(filename, length, hash);
+				return new UploadResult(filename, hash, null, length, System.currentTimeMillis() - start);
+			});
+		});
+	}
+
+	/**
+	 * Uploads a file of a batch, reporting its outcome
+	 * @param filename the source file name
+	 * @return a future result, always successful, holding the failure message if the file was not stored
+	 */
+	Future<UploadResult> fileResult(String filename) {
+		long start = System.currentTimeMillis();
+		return fileUploader(filename).otherwise(err ->
+			new UploadResult(filename, null, String.valueOf(err.getMessage()), 0, System.currentTimeMillis() - start));
+	}
+
 	/**
 	 * Puts a file names filename to default folder containing given fileContent
 	 * TODO Maybe allow to choose target folder
 	 * @param filename the file name
 	 * @param fileContent the data buffer to write
+	 * @param etag the MD5 of fileContent
 	 * @return a future boolean to result
 	 */
-	private Future<Boolean> putter(String filename, Buffer fileContent) {
-		Promise<Boolean> result = Promise.promise();
-		webclient.put(
-				config.getPort(),
-				config.getStorage_host(),
-				UriTemplate.of(config.getStorage_endpoint()+"/"+filename))
-		.ssl(config.getPort()==443)
-		.putHeader("X-Storage-Policy", "PCA")
-		.putHeader("X-Auth-Token", token)
-		.putHeader("Content-Length", Integer.toString(fileContent.length()))
-		.putHeader("Etag", computeMD5(fileContent))
-		.sendBuffer(fileContent, ar -> {
-			result.complete(ar.succeeded() && ar.result().statusCode() == 201);
-			if(!ar.succeeded()) result.fail(ar.cause());
+	private Future<Boolean> putter(String filename, Buffer fileContent, String etag) {
+		return authorized(authToken -> {
+			Promise<Boolean> result = Promise.promise();
+			HttpRequest<Buffer> request = webclient.put(
+					config.getPort(),
+					config.getStorage_host(),
+					templatePath(config.getStorage_endpoint()+"/"+filename))
+			.ssl(config.isSsl())
+			.putHeader("X-Storage-Policy", "PCA")
+			.putHeader("X-Auth-Token", authToken)
+			.putHeader("Content-Length", Integer.toString(fileContent.length()))
+			.putHeader("Etag", etag);
+			metrics.sendBuffer(request, fileContent, ar -> {
+				if(ar.succeeded() && rejection(ar.result()) != null) {
+					result.fail(rejection(ar.result()));
+					return;
+				}
+				if(ar.failed()) result.fail(ar.cause());
+				else result.complete(ar.result().statusCode() == 201);
+			});
+			return result.future();
+		});
+	}
+
+	/**
+	 * Puts a file named filename to default folder, streaming a part of a local file into the request body
+	 * Backpressure is honored: the source is paused while the connection cannot accept more data
+	 * The MD5 digest is computed while the data is sent and verified against the ETag returned by the server
+	 * The local file is opened before the request and again for each retry, so that the upload can be replayed with a new token
+	 * @param filename the object name
+	 * @param path the local file to read data from
+	 * @param offset the position of the data in the local file
+	 * @param length the exact number of bytes to send
+	 * @return a future to the verified MD5 of the data sent, failed if the file was not stored
+	 */
+	private Future<String> streamPutter(String filename, String path, long offset, long length) {
+		return fileAuthorized(() -> localOpenFile(path), (authToken, file) -> {
+			Promise<String> result = Promise.promise();
+			DigestReadStream digested = new DigestReadStream(file.setReadPos(offset).setReadLength(length));
+			HttpRequest<Buffer> request = webclient.put(
+					config.getPort(),
+					config.getStorage_host(),
+					templatePath(config.getStorage_endpoint()+"/"+filename))
+			.ssl(config.isSsl())
+			.putHeader("X-Storage-Policy", "PCA")
+			.putHeader("X-Auth-Token", authToken)
+			.putHeader("Content-Length", Long.toString(length));
+			metrics.sendStream(request, digested, ar -> {
+				if(ar.failed()) result.fail(ar.cause());
+				else if(rejection(ar.result()) != null) result.fail(rejection(ar.result()));
+				else if(ar.result().statusCode() != 201) result.fail(new Exception("Unknown status code: " + ar.result().statusCode()));
+				else if(!DigestReadStream.matches(ar.result().getHeader("Etag"), digested.hexDigest()))
+					result.fail(new IOException("ETag mismatch for " + filename + ": sent " + digested.hexDigest() + ", stored " + ar.result().getHeader("Etag")));
+				else result.complete(digested.hexDigest());
+			});
+			return result.future().onComplete(v -> file.close());
 		});
-		return result.future();
 	}
 
-	private final static char[] hexArray = "0123456789abcdef".toCharArray();
+	/**
+	 * Uploads a zip archive as it is produced, stopping the producer if the upload fails
+	 * @param filename the object name
+	 * @param zip the archive stream
+	 * @return a void future, failed with the zip failure if the archive could not be produced: it only succeeds once the producer has succeeded
+	 */
+	private Future<Void> archiveUploader(String filename, PipedReadStream zip) {
+		metrics.timeZip(zip.result());
+		return streamUploader(filename, zip).transform(ar -> {
+			if(zip.result().failed()) return Future.failedFuture(zip.result().cause());
+			if(ar.succeeded() && !zip.result().succeeded()) return Future.failedFuture(new NoStackTraceThrowable("Archive not complete"));
+			if(ar.failed()) {
+				zip.cancel();
+				return Future.failedFuture(ar.cause());
+			}
+			return Future.succeededFuture();
+		});
+	}
+
+	/**
+	 * Checks that an archive is stored whole, from the server rather than the cache
+	 * @param filename the object name
+	 * @param length the length of the archive produced
+	 * @return a void future, failed if the object is missing or its length differs
+	 */
+	private Future<Void> archiveVerifier(String filename, long length) {
+		return header(filename).compose(response -> {
+			String stored = response.getHeader("Content-Length");
+			if(response.statusCode() == 200 && stored != null && Long.parseLong(stored) == length) return Future.succeededFuture();
+			return Future.failedFuture(new IOException("Archive not stored whole: " + filename));
+		});
+	}
+
+	/**
+	 * Reads the local manifest of the previous incremental backup
+	 * @param manifestPath the manifest file
+	 * @return a future manifest, empty if the file does not exist or cannot be decoded (the next backup is then a full one)
+	 */
+	private Future<BackupManifest> localManifest(String manifestPath) {
+		return vertx.fileSystem().exists(manifestPath).compose(exists -> {
+			if(!exists) return Future.succeededFuture(new BackupManifest());
+			return vertx.fileSystem().readFile(manifestPath).map(content -> Json.decodeValue(content, BackupManifest.class)).otherwise(err -> {
+				log.warning("Backup manifest " + manifestPath + " unreadable, sending every file: " + err.getMessage());
+				return new BackupManifest();
+			});
+		});
+	}
+
+	/**
+	 * Streams data of unknown length to filename, as a Static Large Object if it does not fit in one segment
+	 * @param filename the object name
+	 * @param content the data to send
+	 * @return a void future, failed with the cause of the failure
+	 */
+	private Future<Void> streamUploader(String filename, ReadStream<Buffer> content) {
+		SegmentedReadStream segments = new SegmentedReadStream(content, config.getSegment_size());
+		String prefix = filename + SEGMENTS_SUFFIX;
+		return chunkedPutter(filename, segments.next()).compose(first -> {
+			if(!segments.hasNext()) {
+				cacheFile(filename, first.getSize_bytes(), first.getEtag());
+				return Future.succeededFuture();
+			}
+			String firstName = prefix + String.format("%08d", 0);
+			List<SwiftSegment> stored = new ArrayList<>();
+			stored.add(new SwiftSegment("/" + containerName() + "/" + firstName, first.getEtag(), first.getSize_bytes()));
+			return copier(filename, firstName).compose(v ->
+			segmentStreamer(segments, prefix, stored)).compose(all ->
+			manifestPutter(filename, all).onSuccess(v -> cacheFile(filename, all.stream().mapToLong(SwiftSegment::getSize_bytes).sum(), null)));
+		});
+	}
+
+	/**
+	 * Sends the remaining segments of a stream one after the other
+	 * @param segments the segmented stream
+	 * @param prefix the segments prefix
+	 * @param stored the segments already stored, completed with the new ones
+	 * @return a future to all the segments, in order
+	 */
+	private Future<List<SwiftSegment>> segmentStreamer(SegmentedReadStream segments, String prefix, List<SwiftSegment> stored) {
+		if(!segments.hasNext()) return Future.succeededFuture(stored);
+		return chunkedPutter(prefix + String.format("%08d", stored.size()), segments.next()).compose(segment -> {
+			stored.add(segment);
+			return segmentStreamer(segments, prefix, stored);
+		});
+	}
+
+	/**
+	 * Puts a file named filename to default folder, streaming data of unknown length with chunked transfer encoding
+	 * The MD5 digest is computed while the data is sent and verified against the ETag returned by the server
+	 * @param filename the object name
+	 * @param content the data to send, read once
+	 * @return a future to the segment stored, failed if the file was not stored
+	 * @see #authorizedOnce(Function)
+	 */
+	private Future<SwiftSegment> chunkedPutter(String filename, ReadStream<Buffer> content) {
+		return authorizedOnce(authToken -> {
+			Promise<SwiftSegment> result = Promise.promise();
+			DigestReadStream digested = new DigestReadStream(content);
+			HttpRequest<Buffer> request = webclient.put(
+					config.getPort(),
+					config.getStorage_host(),
+					templatePath(config.getStorage_endpoint()+"/"+filename))
+			.ssl(config.isSsl())
+			.putHeader("X-Storage-Policy", "PCA")
+			.putHeader("X-Auth-Token", authToken);
+			metrics.sendStream(request, digested, ar -> {
+				if(ar.failed()) result.fail(ar.cause());
+				else if(rejection(ar.result()) != null) result.fail(rejection(ar.result()));
+				else if(ar.result().statusCode() != 201) result.fail(new Exception("Unknown status code: " + ar.result().statusCode()));
+				else if(!DigestReadStream.matches(ar.result().getHeader("Etag"), digested.hexDigest()))
+					result.fail(new IOException("ETag mismatch for " + filename + ": sent " + digested.hexDigest() + ", stored " + ar.result().getHeader("Etag")));
+				else result.complete(new SwiftSegment("/" + containerName() + "/" + filename, digested.hexDigest(), digested.length()));
+			});
+			return result.future();
+		});
+	}
+
+	/**
+	 * Streams a tar archive to the container, expanded by the cluster into one object per entry (extract-archive)
+	 * The cluster reports the entries it could not create; if the counts do not add up (extraction aborted) no entry is reported created
+	 * @param names the entry names, as sent in the archive
+	 * @param gzip true if the archive is gzipped
+	 * @param content the archive, read once
+	 * @return a future map of results by entry name, failed if the archive was refused
+	 */
+	private Future<Map<String, Boolean>> extractPutter(Collection<String> names, boolean gzip, ReadStream<Buffer> content) {
+		return authorizedOnce(authToken -> {
+			Promise<Map<String, Boolean>> result = Promise.promise();
+			HttpRequest<Buffer> request = webclient.put(
+					config.getPort(),
+					config.getStorage_host(),
+					config.getStorage_endpoint())
+			.ssl(config.isSsl())
+			.addQueryParam("extract-archive", gzip? "tar.gz" : "tar")
+			.putHeader("X-Storage-Policy", "PCA")
+			.putHeader("Accept", "application/json")
+			.putHeader("X-Auth-Token", authToken);
+			metrics.sendStream(request, content, ar -> {
+				if(ar.failed()) {
+					result.fail(ar.cause());
+					return;
+				}
+				if(rejection(ar.result()) != null) {
+					result.fail(rejection(ar.result()));
+					return;
+				}
+				if(ar.result().statusCode() != 200 && ar.result().statusCode() != 201) {
+					result.fail(new Exception("Unknown status code: " + ar.result().statusCode()));
+					return;
+				}
+				// The cluster sends whitespace to keep the connection alive while extracting
+				JsonObject report = new JsonObject(ar.result().bodyAsString().trim());
+				JsonArray errors = report.getJsonArray("Errors", new JsonArray());
+				boolean complete = report.getInteger("Number Files Created", 0) + errors.size() == names.size();
+				if(!complete) log.fine("Archive extraction incomplete: " + report.getString("Response Status"));
+				String container = "/" + containerName() + "/";
+				Map<String, Boolean> created = new HashMap<>();
+				for(String name : names) {
+					created.put(name, complete);
+					if(cache != null) cache.remove(name);
+				}
+				for(int i = 0; i < errors.size(); i++) {
+					String path = urlDecode(errors.getJsonArray(i).getString(0));
+					int start = path.indexOf(container);
+					created.put((start < 0)? path : path.substring(start + container.length()), false);
+				}
+				result.complete(created);
+			});
+			return result.future();
+		});
+	}
 
-	private static String bytesToHex(byte[] bytes) {
-		char[] hexChars = new char[bytes.length * 2];
-		for ( int j = 0; j < bytes.length; j++ ) {
-			int v = bytes[j] & 0xFF;
-			hexChars[j * 2] = hexArray[v >>> 4];
-			hexChars[j * 2 + 1] = hexArray[v & 0x0F];
+	/**
+	 * Lists the regular files of a folder and groups them in bulk upload batches, blocking
+	 * @param folderPath the folder
+	 * @param prefix the object names prefix
+	 * @return the batches, each one the local file of each object by object name
+	 * @throws IOException if the folder cannot be walked
+	 */
+	private List<Map<String, String>> localBatches(String folderPath, String prefix) throws IOException {
+		List<Map<String, String>> batches = new ArrayList<>();
+		Map<String, String> batch = null;
+		long bytes = 0;
+		Path root = Paths.get(folderPath).toAbsolutePath();
+		List<Path> files;
+		try(Stream<Path> walk = Files.walk(root)) {
+			files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+		}
+		for(Path file : files) {
+			long size = Files.size(file);
+			if(batch == null || batch.size() >= config.getBulk_upload_files() || (!batch.isEmpty() && bytes + size > config.getBulk_upload_bytes())) {
+				batches.add(batch = new LinkedHashMap<>());
+				bytes = 0;
+			}
+			batch.put(prefix + root.relativize(file).toString().replace(File.separatorChar, '/'), file.toString());
+			bytes += size;
 		}
-		return new String(hexChars);
+		return batches;
 	}
 
-	private String computeMD5(Buffer fileContent) {
-		String result = null;
-		try {
-			MessageDigest md = MessageDigest.getInstance("MD5");
-			result = bytesToHex(md.digest(fileContent.getBytes()));
-		} catch (NoSuchAlgorithmException e) {
-			e.printStackTrace();
+	/**
+	 * Copies a file on the server side, without transferring its content
+	 * @param source the file to copy
+	 * @param target the copy name
+	 * @return a void future, successful if the copy was stored
+	 */
+	private Future<Void> copier(String source, String target) {
+		return authorized(authToken -> {
+			Promise<Void> result = Promise.promise();
+			HttpRequest<Buffer> request = webclient.put(
+					config.getPort(),
+					config.getStorage_host(),
+					templatePath(config.getStorage_endpoint()+"/"+target))
+			.ssl(config.isSsl())
+			.putHeader("X-Copy-From", "/" + containerName() + "/" + urlEncode(source))
+			.putHeader("Content-Length", "0")
+			.putHeader("X-Auth-Token", authToken);
+			metrics.send(request, ar -> {
+				if(ar.succeeded() && rejection(ar.result()) != null) {
+					result.fail(rejection(ar.result()));
+					return;
+				}
+				if(ar.failed()) result.fail(ar.cause());
+				else if(ar.result().statusCode() == 201) result.complete();
+				else result.fail(new Exception("Unknown status code: " + ar.result().statusCode()));
+			});
+			return result.future();
+		});
+	}
+
+	/**
+	 * Lists the segments already stored under a prefix
+	 * @param prefix the segments prefix
+	 * @return a future map of stored segments, by name
+	 */
+	private Future<Map<String, SwiftFile>> segmentLister(String prefix) {
+		Promise<Map<String, SwiftFile>> result = Promise.promise();
+		Map<String, SwiftFile> segments = new HashMap<>();
+		listFiles(prefix, null)
+		.exceptionHandler(result::tryFail)
+		.endHandler(v -> result.tryComplete(segments))
+		.handler(file -> {
+			if(file.getName() != null && file.getName().startsWith(prefix)) segments.put(file.getName(), file);
+		});
+		return result.future();
+	}
+
+	/**
+	 * Uploads a segment of a local file, unless it is already stored with the same content
+	 * @param filename the local file name
+	 * @param segmentName the segment object name
+	 * @param offset the segment position in the local file
+	 * @param length the segment length
+	 * @param existing the stored segment with the same name, null if none
+	 * @return a future to the segment MD5
+	 */
+	private Future<String> segmentUploader(String filename, String segmentName, long offset, long length, SwiftFile existing) {
+		if(existing == null || existing.getBytes() == null || existing.getBytes() != length)
+			return segmentPutter(filename, segmentName, offset, length, config.getSegment_retries());
+		return localDigest(filename, offset, length).compose(digest -> {
+			if(DigestReadStream.matches(existing.getHash(), digest)) {
+				log.fine("Segment " + segmentName + " already stored, skipping");
+				return Future.succeededFuture(digest);
+			}
+			return segmentPutter(filename, segmentName, offset, length, config.getSegment_retries());
+		});
+	}
+
+	/**
+	 * Streams a segment of a local file, retrying on failure
+	 * @param filename the local file name
+	 * @param segmentName the segment object name
+	 * @param offset the segment position in the local file
+	 * @param length the segment length
+	 * @param retries how many times the upload is retried
+	 * @return a future to the segment MD5
+	 */
+	private Future<String> segmentPutter(String filename, String segmentName, long offset, long length, int retries) {
+		return streamPutter(segmentName, filename, offset, length).recover(err -> {
+			if(retries <= 0) return Future.failedFuture(err);
+			log.fine("Retrying segment " + segmentName + ": " + err.getMessage());
+			return segmentPutter(filename, segmentName, offset, length, retries - 1);
+		});
+	}
+
+	/**
+	 * Commits a Static Large Object manifest
+	 * @param filename the object name
+	 * @param segments the ordered segments
+	 * @return a void future, successful if the manifest was stored
+	 */
+	private Future<Void> manifestPutter(String filename, List<SwiftSegment> segments) {
+		// Encoded once, sent as is by every attempt and measured from the same buffer
+		Buffer manifest = Json.encodeToBuffer(segments);
+		return authorized(authToken -> {
+			Promise<Void> result = Promise.promise();
+			HttpRequest<Buffer> request = webclient.put(
+					config.getPort(),
+					config.getStorage_host(),
+					templatePath(config.getStorage_endpoint()+"/"+filename))
+			.ssl(config.isSsl())
+			.addQueryParam("multipart-manifest", "put")
+			.putHeader("X-Storage-Policy", "PCA")
+			.putHeader("Content-Type", "application/json")
+			.putHeader("X-Auth-Token", authToken);
+			metrics.sendBuffer(request, manifest, ar -> {
+				if(ar.succeeded() && rejection(ar.result()) != null) {
+					result.fail(rejection(ar.result()));
+					return;
+				}
+				if(ar.failed()) result.fail(ar.cause());
+				else if(ar.result().statusCode() == 201) result.complete();
+				else result.fail(new Exception("Unknown status code: " + ar.result().statusCode()));
+			});
+			return result.future();
+		});
+	}
+
+	/**
+	 * Computes the MD5 of a portion of a local file, streaming it
+	 * @param filename the file name
+	 * @param offset the position of the first byte
+	 * @param length the number of bytes to hash
+	 * @return a future to the hex encoded digest
+	 */
+	private Future<String> localDigest(String filename, long offset, long length) {
+		return localOpenFile(filename).compose(file -> {
+			Promise<String> result = Promise.promise();
+			DigestReadStream digested = new DigestReadStream(file.setReadPos(offset).setReadLength(length));
+			digested.exceptionHandler(err -> {
+				file.close();
+				result.tryFail(err);
+			});
+			digested.endHandler(v -> {
+				file.close();
+				result.tryComplete(digested.hexDigest());
+			});
+			digested.handler(chunk -> {});
+			return result.future();
+		});
+	}
+
+	/**
+	 * The client config
+	 * @return the config
+	 */
+	SwiftConfig config() {
+		return config;
+	}
+
+	/**
+	 * The storage host and container this client writes to, identifies the client as a shard
+	 * @return the storage location
+	 */
+	String location() {
+		return config.getStorage_host() + ":" + config.getPort() + config.getStorage_endpoint();
+	}
+
+	/**
+	 * The container name, last part of the storage endpoint
+	 * @return the container name
+	 */
+	private String containerName() {
+		String[] parts = config.getStorage_endpoint().split("/");
+		return parts[parts.length-1];
+	}
+
+	/**
+	 * Computes the MD5 ETag of a buffer, hashing its NIO views without copying the payload
+	 * @param fileContent the data to hash
+	 * @return the hex encoded digest
+	 */
+	private static String computeMD5(Buffer fileContent) {
+		MessageDigest md = DigestReadStream.md5();
+		DigestReadStream.update(md, fileContent);
+		return DigestReadStream.bytesToHex(md.digest());
+	}
+
+	/**
+	 * A request was rejected with 401, the token has expired or has been revoked
+	 */
+	private static class TokenRejected extends NoStackTraceThrowable {
+		private static final long serialVersionUID = 1L;
+
+		private TokenRejected() {
+			super("Token rejected (401)");
 		}
-		return result;
 	}
 }
@@ -0,0 +1,124 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.function.BiFunction;
+
+import io.github.slacesa.simpleSwiftClient.resources.SwiftFile;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.parsetools.JsonEventType;
+import io.vertx.core.parsetools.JsonParser;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * A container listing, emitted file by file as pages are retrieved and parsed
+ * Pages are requested one at a time following the marker of the last entry, the next page is requested only once
+ * the previous one has been consumed, so at most one page is held in memory
+ * The listing ends with an empty page, or with a page shorter than the page size applied by the cluster when it is known
+ * @author SLC
+ *
+ */
+public class SwiftFileListStream implements ReadStream<SwiftFile> {
+
+	private final DemandQueue<SwiftFile> pending;
+	private final BiFunction<String, JsonParser, Future<Integer>> pageGetter;
+
+	private Handler<Throwable> exceptionHandler;
+	private Handler<Void> endHandler;
+	private String marker;
+	private int pageCount;
+	private boolean started, ended;
+
+	/**
+	 * @param context the context the stream is used from
+	 * @param pageSize the number of entries requested per page
+	 * @param pageGetter requests a page after the given marker (null for the first page) feeding its body to the parser,
+	 * completes with the page size applied by the cluster (0 if unknown), fails if the page cannot be retrieved
+	 */
+	SwiftFileListStream(Context context, int pageSize, BiFunction<String, JsonParser, Future<Integer>> pageGetter) {
+		this.pending = new DemandQueue<>(context, pageSize);
+		this.pageGetter = pageGetter;
+	}
+
+	@Override
+	public SwiftFileListStream exceptionHandler(Handler<Throwable> handler) {
+		this.exceptionHandler = handler;
+		return this;
+	}
+
+	@Override
+	public SwiftFileListStream handler(Handler<SwiftFile> handler) {
+		pending.handler(handler);
+		if(handler != null && !started) {
+			started = true;
+			nextPage();
+		}
+		return this;
+	}
+
+	@Override
+	public SwiftFileListStream pause() {
+		pending.pause();
+		return this;
+	}
+
+	@Override
+	public SwiftFileListStream resume() {
+		pending.resume();
+		return this;
+	}
+
+	@Override
+	public SwiftFileListStream fetch(long amount) {
+		pending.fetch(amount);
+		return this;
+	}
+
+	@Override
+	public SwiftFileListStream endHandler(Handler<Void> endHandler) {
+		this.endHandler = endHandler;
+		return this;
+	}
+
+	private void nextPage() {
+		pageCount = 0;
+		JsonParser parser = JsonParser.newParser().objectValueMode();
+		parser.handler(event -> {
+			if(event.type() != JsonEventType.VALUE || !event.isObject()) return;
+			SwiftFile file = event.mapTo(SwiftFile.class);
+			marker = (file.getName() != null)? file.getName() : file.getSubdir();
+			pageCount++;
+			pending.write(file);
+		});
+		parser.exceptionHandler(this::fail);
+		pageGetter.apply(marker, parser).onComplete(ar -> {
+			if(ar.failed()) fail(ar.cause());
+			else if(pending.isEmpty()) pageDone(ar.result());
+			else pending.emptyHandler(v -> {
+				pending.emptyHandler(null);
+				pageDone(ar.result());
+			});
+		});
+	}
+
+	/**
+	 * Ends the listing or requests the next page
+	 * @param pageSize the page size applied by the cluster, 0 if unknown: a short page may then come from a lower cluster limit
+	 */
+	private void pageDone(int pageSize) {
+		if(pageCount == 0 || pageCount < pageSize) end();
+		else nextPage();
+	}
+
+	private void end() {
+		if(ended) return;
+		ended = true;
+		if(endHandler != null) endHandler.handle(null);
+	}
+
+	private void fail(Throwable cause) {
+		if(ended) return;
+		ended = true;
+		if(exceptionHandler != null) exceptionHandler.handle(cause);
+	}
+}
@@ -0,0 +1,81 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.TimeoutException;
+
+import io.vertx.core.http.HttpClosedException;
+import io.vertx.core.http.StreamResetException;
+import io.vertx.core.impl.NoStackTraceThrowable;
+
+/**
+ * The cluster answered with a server error (5xx), the request may succeed if sent again
+ * @author SLC
+ *
+ */
+public class TransientFailure extends NoStackTraceThrowable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int statusCode;
+	private final long retryAfter;
+
+	/**
+	 * @param statusCode the response status code
+	 * @param retryAfter the Retry-After header value in seconds, negative if absent
+	 */
+	public TransientFailure(int statusCode, long retryAfter) {
+		super("Unknown status code: " + statusCode);
+		this.statusCode = statusCode;
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * The response status code
+	 * @return the status code
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * The delay the cluster asked to wait before retrying
+	 * @return the Retry-After value in seconds, negative if absent
+	 */
+	public long getRetryAfter() {
+		return retryAfter;
+	}
+
+	/**
+	 * If a failure comes from the cluster or the network being unavailable, rather than from the request itself
+	 * Local failures (files, streams, ETag mismatches) are not transient: sending the request again cannot fix them
+	 * @param failure the request failure
+	 * @return true for server errors and network failures
+	 */
+	static boolean isTransient(Throwable failure) {
+		if(failure instanceof TransientFailure) return true;
+		// A request the client resets because its body failed carries that local failure as cause
+		Throwable root = failure;
+		while(root.getCause() != null && root.getCause() != root) root = root.getCause();
+		return root instanceof TransientFailure || isNetwork(root);
+	}
+
+	/**
+	 * If a failure is a connection failure, a reset or a timeout
+	 * @param failure the failure
+	 * @return true for network failures
+	 */
+	private static boolean isNetwork(Throwable failure) {
+		return failure instanceof SocketException
+				|| failure instanceof SocketTimeoutException
+				|| failure instanceof UnknownHostException
+				|| failure instanceof ClosedChannelException
+				|| failure instanceof TimeoutException
+				|| failure instanceof HttpClosedException
+				|| failure instanceof StreamResetException
+				// The native transport reports resets with its own IOException, from an optional dependency
+				|| failure.getClass().getName().equals("io.netty.channel.unix.Errors$NativeIoException");
+	}
+}
@@ -0,0 +1,178 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import io.github.slacesa.simpleSwiftClient.resources.PolicyRetrievalStates;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+/**
+ * Unseals many cold storage files and tracks them until they are ready
+ * Unseal requests are sent with bounded concurrency, files being unsealed wait on a single timer wheel
+ * (one periodic timer for all of them) and are checked again once their Retry-After delay has passed
+ * A file that fails is forgotten at once, an unsealed file is forgotten after a time to live: it is checked again when unsealed later
+ * @author SLC
+ *
+ */
+public class UnsealScheduler {
+
+	private static final Logger log = Logger.getLogger(UnsealScheduler.class.getName());
+	private static final int SLOTS = 512;
+	private static final long TICK = 1000;
+
+	private final SimpleSwiftClient client;
+	private final Vertx vertx;
+	private final Parallel.Limiter limiter;
+	private final long ttl;
+	private final Map<String, Tracked> tracked = new HashMap<>();
+	private final Deque<Tracked> unsealed = new ArrayDeque<>();
+	private final List<List<Tracked>> wheel = new ArrayList<>(SLOTS);
+	private int cursor, waiting;
+	private long timerId = -1;
+
+	/**
+	 * @param client the client unseal requests are sent with
+	 * @param vertx the Vert.x instance the timer is set on
+	 * @param concurrency the maximum number of unseal requests in flight
+	 * @param ttl how long an unsealed file stays tracked, in milliseconds
+	 */
+	UnsealScheduler(SimpleSwiftClient client, Vertx vertx, int concurrency, long ttl) {
+		this.client = client;
+		this.vertx = vertx;
+		this.limiter = new Parallel.Limiter(concurrency);
+		this.ttl = ttl;
+		for(int i = 0; i < SLOTS; i++) wheel.add(new ArrayList<>());
+	}
+
+	/**
+	 * Unseals a file, a file already tracked is not requested twice
+	 * @param filename the file name
+	 * @return a void future, successful once the file is unsealed, failed if it does not exist
+	 */
+	public Future<Void> unseal(String filename) {
+		expire();
+		Tracked file = tracked.get(filename);
+		if(file == null) {
+			file = new Tracked(filename);
+			tracked.put(filename, file);
+			check(file);
+		}
+		return file.ready.future();
+	}
+
+	/**
+	 * Unseals many files
+	 * @param filenames the file names
+	 * @return a future for each file, in the same order, successful once the file is unsealed
+	 */
+	public Map<String, Future<Void>> unseal(Collection<String> filenames) {
+		Map<String, Future<Void>> result = new LinkedHashMap<>();
+		for(String filename : filenames) result.put(filename, unseal(filename));
+		return result;
+	}
+
+	/**
+	 * The last known state of a file
+	 * @param filename the file name
+	 * @return the state, null if the file is not tracked
+	 */
+	public PolicyRetrievalStates getState(String filename) {
+		expire();
+		Tracked file = tracked.get(filename);
+		return file == null? null : file.state;
+	}
+
+	/**
+	 * The number of files not unsealed yet
+	 * @return the number of pending files
+	 */
+	public int pending() {
+		int pending = 0;
+		for(Tracked file : tracked.values()) if(!file.ready.future().isComplete()) pending++;
+		return pending;
+	}
+
+	/**
+	 * Stops tracking files that are ready or failed, they will be requested again if unsealed later
+	 */
+	public void forgetCompleted() {
+		tracked.values().removeIf(file -> file.ready.future().isComplete());
+		unsealed.clear();
+	}
+
+	private void check(Tracked file) {
+		limiter.run(() -> client.unsealFile(file.name)).onComplete(ar -> {
+			if(ar.failed()) {
+				log.fine("Unseal of " + file.name + " failed: " + ar.cause().getMessage());
+				tracked.remove(file.name, file);
+				file.ready.tryFail(ar.cause());
+			}
+			else if(ar.result() == 0) {
+				file.state = PolicyRetrievalStates.UNSEALED;
+				file.unsealedAt = System.currentTimeMillis();
+				unsealed.add(file);
+				file.ready.tryComplete();
+			}
+			else {
+				file.state = PolicyRetrievalStates.UNSEALING;
+				schedule(file, ar.result());
+			}
+		});
+	}
+
+	/**
+	 * Forgets the files unsealed more than ttl ago, the oldest ones come first
+	 */
+	private void expire() {
+		long now = System.currentTimeMillis();
+		while(!unsealed.isEmpty() && now - unsealed.peek().unsealedAt >= ttl) {
+			Tracked file = unsealed.poll();
+			tracked.remove(file.name, file);
+		}
+	}
+
+	private void schedule(Tracked file, int delaySeconds) {
+		long ticks = Math.max(1, (delaySeconds * 1000L + TICK - 1) / TICK);
+		file.rounds = (ticks - 1) / SLOTS;
+		wheel.get((int) ((cursor + ticks) % SLOTS)).add(file);
+		waiting++;
+		if(timerId < 0) timerId = vertx.setPeriodic(TICK, id -> tick());
+	}
+
+	private void tick() {
+		cursor = (cursor + 1) % SLOTS;
+		Iterator<Tracked> iterator = wheel.get(cursor).iterator();
+		while(iterator.hasNext()) {
+			Tracked file = iterator.next();
+			if(file.rounds-- > 0) continue;
+			iterator.remove();
+			waiting--;
+			check(file);
+		}
+		if(waiting == 0) {
+			vertx.cancelTimer(timerId);
+			timerId = -1;
+		}
+	}
+
+	private static class Tracked {
+		private final String name;
+		private final Promise<Void> ready = Promise.promise();
+		private PolicyRetrievalStates state = PolicyRetrievalStates.SEALED;
+		private long rounds, unsealedAt;
+
+		private Tracked(String name) {
+			this.name = name;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package io.github.slacesa.simpleSwiftClient;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.function.Function;
+
+import io.github.slacesa.simpleSwiftClient.resources.UploadResult;
+import io.github.slacesa.simpleSwiftClient.resources.UploadStats;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * A batch upload, emitting the result of each file as it completes
+ * At most a given number of files are uploaded at the same time. File names are taken from the source only when there is room:
+ * names are read ahead up to the queue size, and uploads stop being launched while that many results wait to be consumed,
+ * so memory stays bounded whatever the number of files and however slow the consumer
+ * @author SLC
+ *
+ */
+public class UploadStream implements ReadStream<UploadResult> {
+
+	private final DemandQueue<UploadResult> results;
+	private final Function<String, Future<UploadResult>> uploader;
+	private final Deque<String> queue = new ArrayDeque<>();
+	private final UploadStats stats = new UploadStats();
+	private final int concurrency, queueSize;
+	private final Iterator<String> names;
+	private final ReadStream<String> source;
+
+	private Handler<Throwable> exceptionHandler;
+	private Handler<Void> endHandler;
+	private int inFlight;
+	private boolean started, sourceEnded, writable = true, ended;
+
+	/**
+	 * @param context the context the stream is used from
+	 * @param names the file names to upload, read as uploads are launched
+	 * @param source the file names to upload, paused when the queue is full (used when names is null)
+	 * @param concurrency the maximum number of uploads in flight
+	 * @param queueSize the maximum number of names read ahead and of results waiting to be consumed
+	 * @param uploader uploads a file, always succeeds with the file outcome
+	 */
+	UploadStream(Context context, Iterator<String> names, ReadStream<String> source, int concurrency, int queueSize, Function<String, Future<UploadResult>> uploader) {
+		this.results = new DemandQueue<>(context, queueSize);
+		this.names = names;
+		this.source = source;
+		this.concurrency = Math.max(1, concurrency);
+		this.queueSize = Math.max(1, queueSize);
+		this.uploader = uploader;
+		results.drainHandler(v -> {
+			writable = true;
+			launch();
+		});
+	}
+
+	/**
+	 * Aggregate figures of the batch, updated as files complete
+	 * @return the batch stats
+	 */
+	public UploadStats stats() {
+		return stats;
+	}
+
+	@Override
+	public UploadStream exceptionHandler(Handler<Throwable> handler) {
+		this.exceptionHandler = handler;
+		return this;
+	}
+
+	@Override
+	public UploadStream handler(Handler<UploadResult> handler) {
+		results.handler(handler);
+		if(handler != null && !started) {
+			started = true;
+			if(source != null) {
+				source.exceptionHandler(this::fail);
+				source.endHandler(v -> {
+					sourceEnded = true;
+					launch();
+				});
+				source.handler(name -> {
+					queue.add(name);
+					if(queue.size() >= queueSize) source.pause();
+					launch();
+				});
+			}
+			else launch();
+		}
+		return this;
+	}
+
+	@Override
+	public UploadStream pause() {
+		results.pause();
+		return this;
+	}
+
+	@Override
+	public UploadStream resume() {
+		results.resume();
+		return this;
+	}
+
+	@Override
+	public UploadStream fetch(long amount) {
+		results.fetch(amount);
+		return this;
+	}
+
+	@Override
+	public UploadStream endHandler(Handler<Void> endHandler) {
+		this.endHandler = endHandler;
+		return this;
+	}
+
+	private void launch() {
+		while(!ended && writable && inFlight < concurrency) {
+			String name = next();
+			if(name == null) break;
+			inFlight++;
+			stats.setIn_flight(inFlight);
+			uploader.apply(name).onComplete(ar -> {
+				inFlight--;
+				stats.setIn_flight(inFlight);
+				UploadResult result = ar.succeeded()? ar.result() : new UploadResult(name, null, String.valueOf(ar.cause().getMessage()), 0, 0);
+				stats.add(result);
+				if(!results.write(result)) writable = false;
+				launch();
+			});
+		}
+		if(!ended && inFlight == 0 && exhausted()) {
+			ended = true;
+			stats.end();
+			if(results.isEmpty()) end();
+			else results.emptyHandler(v -> {
+				results.emptyHandler(null);
+				end();
+			});
+		}
+	}
+
+	private String next() {
+		if(names != null) return names.hasNext()? names.next() : null;
+		String name = queue.poll();
+		if(name != null && !sourceEnded && queue.size() < queueSize / 2 + 1) source.resume();
+		return name;
+	}
+
+	private boolean exhausted() {
+		return (names != null)? !names.hasNext() : sourceEnded && queue.isEmpty();
+	}
+
+	private void end() {
+		if(endHandler != null) endHandler.handle(null);
+	}
+
+	private void fail(Throwable cause) {
+		if(ended) return;
+		ended = true;
+		stats.end();
+		if(exceptionHandler != null) exceptionHandler.handle(cause);
+	}
+}
@@ -0,0 +1,88 @@
+package io.github.slacesa.simpleSwiftClient.resources;
+
+/**
+ * A file of an incremental backup snapshot
+ * @author SLC
+ *
+ */
+public class BackupEntry {
+
+	private String
+		path,
+		hash,
+		archive;
+
+	private long
+		size,
+		mtime;
+
+	public BackupEntry() {}
+
+	public BackupEntry(String path, long size, long mtime, String hash, String archive) {
+		this.path = path;
+		this.size = size;
+		this.mtime = mtime;
+		this.hash = hash;
+		this.archive = archive;
+	}
+
+	/**
+	 * The file path, relative to the parent of the backed up folder, as named in the archives
+	 * @return the file path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	/**
+	 * The file length in bytes
+	 * @return the file length
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	/**
+	 * The last modification time of the file when it was hashed
+	 * @return the time in milliseconds since epoch
+	 */
+	public long getMtime() {
+		return mtime;
+	}
+
+	public void setMtime(long mtime) {
+		this.mtime = mtime;
+	}
+
+	/**
+	 * The MD5 hash of the file content
+	 * @return the hash value
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+	/**
+	 * The delta archive holding this version of the file
+	 * @return the archive object name
+	 */
+	public String getArchive() {
+		return archive;
+	}
+
+	public void setArchive(String archive) {
+		this.archive = archive;
+	}
+}
@@ -0,0 +1,98 @@
+package io.github.slacesa.simpleSwiftClient.resources;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The description of an incremental backup snapshot: every file of the folder, with the delta archive holding its content
+ * Kept locally to detect changes at the next backup, and stored next to the archives to restore the snapshot
+ * @author SLC
+ *
+ */
+public class BackupManifest {
+
+	private String
+		snapshot,
+		previous,
+		archive;
+
+	private long created;
+
+	private List<BackupEntry> files = new ArrayList<>();
+
+	private List<String> deleted = new ArrayList<>();
+
+	public BackupManifest() {}
+
+	/**
+	 * The snapshot name, the manifest object is stored as folder/snapshot.json
+	 * @return the snapshot name
+	 */
+	public String getSnapshot() {
+		return snapshot;
+	}
+
+	public void setSnapshot(String snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * The snapshot this one is based on
+	 * @return the previous snapshot name, null for the first backup
+	 */
+	public String getPrevious() {
+		return previous;
+	}
+
+	public void setPrevious(String previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * The delta archive uploaded by this snapshot, holding the new and changed files
+	 * @return the archive object name, null if nothing changed
+	 */
+	public String getArchive() {
+		return archive;
+	}
+
+	public void setArchive(String archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * When the snapshot was taken
+	 * @return the time in milliseconds since epoch
+	 */
+	public long getCreated() {
+		return created;
+	}
+
+	public void setCreated(long created) {
+		this.created = created;
+	}
+
+	/**
+	 * The files of the folder, sorted by path
+	 * @return the snapshot files
+	 */
+	public List<BackupEntry> getFiles() {
+		return files;
+	}
+
+	public void setFiles(List<BackupEntry> files) {
+		this.files = files;
+	}
+
+	/**
+	 * The paths of the files removed since the previous snapshot
+	 * @return the deleted paths
+	 */
+	public List<String> getDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(List<String> deleted) {
+		this.deleted = deleted;
+	}
+}
@@ -0,0 +1,97 @@
+package io.github.slacesa.simpleSwiftClient.resources;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The recipe of a deduplicated backup: the content addressed chunks to concatenate, in order, to restore it
+ * @author SLC
+ *
+ */
+public class DedupRecipe {
+
+	private String name;
+
+	private long
+		size_bytes,
+		created,
+		sent_bytes;
+
+	private int sent_chunks;
+
+	private List<SwiftSegment> chunks = new ArrayList<>();
+
+	public DedupRecipe() {}
+
+	/**
+	 * The backup name, the recipe object is stored as recipes/name.json
+	 * @return the backup name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * The length of the backed up data in bytes
+	 * @return the data length
+	 */
+	public long getSize_bytes() {
+		return size_bytes;
+	}
+
+	public void setSize_bytes(long size_bytes) {
+		this.size_bytes = size_bytes;
+	}
+
+	/**
+	 * When the backup was stored
+	 * @return the time in milliseconds since epoch
+	 */
+	public long getCreated() {
+		return created;
+	}
+
+	public void setCreated(long created) {
+		this.created = created;
+	}
+
+	/**
+	 * The number of chunks uploaded by this backup, the others were already stored
+	 * @return the new chunks count
+	 */
+	public int getSent_chunks() {
+		return sent_chunks;
+	}
+
+	public void setSent_chunks(int sent_chunks) {
+		this.sent_chunks = sent_chunks;
+	}
+
+	/**
+	 * The number of bytes uploaded by this backup, recipe excluded
+	 * @return the bytes sent
+	 */
+	public long getSent_bytes() {
+		return sent_bytes;
+	}
+
+	public void setSent_bytes(long sent_bytes) {
+		this.sent_bytes = sent_bytes;
+	}
+
+	/**
+	 * The chunks, in order: their path is the object name (chunks/ followed by the SHA-256 of the content), their etag the MD5
+	 * @return the chunks
+	 */
+	public List<SwiftSegment> getChunks() {
+		return chunks;
+	}
+
+	public void setChunks(List<SwiftSegment> chunks) {
+		this.chunks = chunks;
+	}
+}
@@ -13,10 +13,67 @@ public class SwiftConfig {
 	auth_host,
 	auth_endpoint,
 	storage_host,
-	storage_endpoint;
+	storage_endpoint,
+	ssl_engine = "jdk",
+	metrics_client,
+	zip_store_extensions = "zip,gz,tgz,bz2,xz,zst,7z,rar,jar,jpg,jpeg,png,gif,webp,mp3,mp4,m4a,mkv,avi,mov";
 	
 	private int port;
 
+	private Boolean ssl;
+
+	private long
+	segment_size = 256L * 1024 * 1024,
+	range_size = 64L * 1024 * 1024,
+	retry_base_delay = 200,
+	retry_max_delay = 30000,
+	circuit_open_time = 5000,
+	limit_latency = 0,
+	dedup_chunk_size = 1024 * 1024,
+	bulk_upload_bytes = 64L * 1024 * 1024,
+	token_check_age = 30000;
+
+	private int
+	segment_concurrency = 4,
+	segment_retries = 3,
+	range_concurrency = 4,
+	max_pool_size = 20,
+	auth_max_pool_size = 2,
+	http2_max_pool_size = 1,
+	keep_alive_timeout = 60,
+	pipelining_limit = 10,
+	idle_timeout = 0,
+	bulk_delete_size = 10000,
+	delete_concurrency = 8,
+	list_page_size = 10000,
+	cache_ttl = 0,
+	cache_size = 100000,
+	unseal_concurrency = 16,
+	unseal_ttl = 3600,
+	download_concurrency = 4,
+	upload_concurrency = 8,
+	upload_queue_size = 64,
+	retry_max = 4,
+	retry_budget = 100,
+	circuit_window = 20,
+	circuit_error_rate = 50,
+	limit_min = 1,
+	limit_max = 0,
+	zip_parallelism = 0,
+	zip_compression_level = 5,
+	dedup_concurrency = 8,
+	dedup_unseal_window = 1000,
+	bulk_upload_files = 1000,
+	bulk_upload_concurrency = 4;
+
+	private boolean
+	keep_alive = true,
+	pipelining = false,
+	tcp_no_delay = true,
+	http2 = false,
+	native_transport = false,
+	vertx_metrics = false;
+
 	public SwiftConfig() {}
 
 	/**
@@ -92,7 +149,7 @@ public class SwiftConfig {
 	}
 
 	/**
-	 * Port for both hosts, if 443 it will assume SSL is ON
+	 * Port for both hosts, if 443 it will assume SSL is ON unless ssl is set
 	 * @return port
 	 */
 	public int getPort() {
@@ -102,4 +159,607 @@ public class SwiftConfig {
 	public void setPort(int port) {
 		this.port = port;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * If SSL is ON for both hosts
+	 * @return ssl, defaults to true on port 443 only
+	 */
+	public boolean isSsl() {
+		return (ssl != null)? ssl : port == 443;
+	}
+
+	public void setSsl(boolean ssl) {
+		this.ssl = ssl;
+	}
+
+	/**
+	 * Segment size in bytes for Static Large Object uploads, files up to this size are sent with a single request
+	 * @return segment size, defaults to 256 MiB
+	 */
+	public long getSegment_size() {
+		return segment_size;
+	}
+
+	public void setSegment_size(long segment_size) {
+		this.segment_size = segment_size;
+	}
+
+	/**
+	 * Number of segments uploaded concurrently for Static Large Object uploads
+	 * @return segment concurrency, defaults to 4
+	 */
+	public int getSegment_concurrency() {
+		return segment_concurrency;
+	}
+
+	public void setSegment_concurrency(int segment_concurrency) {
+		this.segment_concurrency = segment_concurrency;
+	}
+
+	/**
+	 * Number of times a failed segment upload is retried before giving up
+	 * @return segment retries, defaults to 3
+	 */
+	public int getSegment_retries() {
+		return segment_retries;
+	}
+
+	public void setSegment_retries(int segment_retries) {
+		this.segment_retries = segment_retries;
+	}
+
+	/**
+	 * Range size in bytes for parallel downloads, files up to this size are retrieved with a single request
+	 * @return range size, defaults to 64 MiB
+	 */
+	public long getRange_size() {
+		return range_size;
+	}
+
+	public void setRange_size(long range_size) {
+		this.range_size = range_size;
+	}
+
+	/**
+	 * Number of ranges retrieved concurrently for parallel downloads
+	 * @return range concurrency, defaults to 4
+	 */
+	public int getRange_concurrency() {
+		return range_concurrency;
+	}
+
+	public void setRange_concurrency(int range_concurrency) {
+		this.range_concurrency = range_concurrency;
+	}
+
+	/**
+	 * Maximum number of HTTP/1.x connections to the storage host
+	 * @return pool size, defaults to 20
+	 */
+	public int getMax_pool_size() {
+		return max_pool_size;
+	}
+
+	public void setMax_pool_size(int max_pool_size) {
+		this.max_pool_size = max_pool_size;
+	}
+
+	/**
+	 * Maximum number of connections to the Keystone host, which uses its own pool
+	 * @return pool size, defaults to 2
+	 */
+	public int getAuth_max_pool_size() {
+		return auth_max_pool_size;
+	}
+
+	public void setAuth_max_pool_size(int auth_max_pool_size) {
+		this.auth_max_pool_size = auth_max_pool_size;
+	}
+
+	/**
+	 * Maximum number of HTTP/2 connections to the storage host, each one multiplexes many requests
+	 * @return pool size, defaults to 1
+	 */
+	public int getHttp2_max_pool_size() {
+		return http2_max_pool_size;
+	}
+
+	public void setHttp2_max_pool_size(int http2_max_pool_size) {
+		this.http2_max_pool_size = http2_max_pool_size;
+	}
+
+	/**
+	 * If connections are kept open and reused between requests
+	 * @return keep alive, defaults to true
+	 */
+	public boolean isKeep_alive() {
+		return keep_alive;
+	}
+
+	public void setKeep_alive(boolean keep_alive) {
+		this.keep_alive = keep_alive;
+	}
+
+	/**
+	 * Seconds an unused kept alive connection stays in the pool
+	 * @return keep alive timeout, defaults to 60
+	 */
+	public int getKeep_alive_timeout() {
+		return keep_alive_timeout;
+	}
+
+	public void setKeep_alive_timeout(int keep_alive_timeout) {
+		this.keep_alive_timeout = keep_alive_timeout;
+	}
+
+	/**
+	 * If HTTP/1.1 requests are pipelined on kept alive connections
+	 * @return pipelining, defaults to false
+	 */
+	public boolean isPipelining() {
+		return pipelining;
+	}
+
+	public void setPipelining(boolean pipelining) {
+		this.pipelining = pipelining;
+	}
+
+	/**
+	 * Maximum number of pipelined requests per connection
+	 * @return pipelining limit, defaults to 10
+	 */
+	public int getPipelining_limit() {
+		return pipelining_limit;
+	}
+
+	public void setPipelining_limit(int pipelining_limit) {
+		this.pipelining_limit = pipelining_limit;
+	}
+
+	/**
+	 * Seconds without reads or writes before a connection is closed, 0 disables it
+	 * @return idle timeout, defaults to 0
+	 */
+	public int getIdle_timeout() {
+		return idle_timeout;
+	}
+
+	public void setIdle_timeout(int idle_timeout) {
+		this.idle_timeout = idle_timeout;
+	}
+
+	/**
+	 * If Nagle's algorithm is disabled on connections
+	 * @return TCP no delay, defaults to true
+	 */
+	public boolean isTcp_no_delay() {
+		return tcp_no_delay;
+	}
+
+	public void setTcp_no_delay(boolean tcp_no_delay) {
+		this.tcp_no_delay = tcp_no_delay;
+	}
+
+	/**
+	 * If HTTP/2 is used with the storage host, negotiated with ALPN when SSL is ON, with prior knowledge otherwise
+	 * @return HTTP/2, defaults to false
+	 */
+	public boolean isHttp2() {
+		return http2;
+	}
+
+	public void setHttp2(boolean http2) {
+		this.http2 = http2;
+	}
+
+	/**
+	 * SSL engine used when SSL is ON: jdk or openssl (requires netty-tcnative, falls back to jdk when unavailable)
+	 * @return SSL engine, defaults to jdk
+	 */
+	public String getSsl_engine() {
+		return ssl_engine;
+	}
+
+	public void setSsl_engine(String ssl_engine) {
+		this.ssl_engine = ssl_engine;
+	}
+
+	/**
+	 * If the native transport (epoll) is preferred, it has to be enabled on the Vert.x instance as well
+	 * @see io.github.slacesa.simpleSwiftClient.SimpleSwiftClient#vertxOptions(SwiftConfig)
+	 * @return native transport, defaults to false
+	 */
+	public boolean isNative_transport() {
+		return native_transport;
+	}
+
+	public void setNative_transport(boolean native_transport) {
+		this.native_transport = native_transport;
+	}
+
+	/**
+	 * Maximum number of objects per bulk delete request, capped by the cluster limit
+	 * @return bulk delete size, defaults to 10000
+	 */
+	public int getBulk_delete_size() {
+		return bulk_delete_size;
+	}
+
+	public void setBulk_delete_size(int bulk_delete_size) {
+		this.bulk_delete_size = bulk_delete_size;
+	}
+
+	/**
+	 * Number of concurrent bulk delete requests, or of single deletes when bulk delete is not available
+	 * @return delete concurrency, defaults to 8
+	 */
+	public int getDelete_concurrency() {
+		return delete_concurrency;
+	}
+
+	public void setDelete_concurrency(int delete_concurrency) {
+		this.delete_concurrency = delete_concurrency;
+	}
+
+	/**
+	 * Number of entries requested per listing page, the cluster may cap it (10000 by default on Swift)
+	 * @return page size, defaults to 10000
+	 */
+	public int getList_page_size() {
+		return list_page_size;
+	}
+
+	public void setList_page_size(int list_page_size) {
+		this.list_page_size = list_page_size;
+	}
+
+	/**
+	 * Seconds file metadata and listings are cached in process, 0 disables the cache
+	 * @return cache time to live, defaults to 0
+	 */
+	public int getCache_ttl() {
+		return cache_ttl;
+	}
+
+	public void setCache_ttl(int cache_ttl) {
+		this.cache_ttl = cache_ttl;
+	}
+
+	/**
+	 * Maximum number of files held by the metadata cache, least recently used ones are evicted first
+	 * @return cache size, defaults to 100000
+	 */
+	public int getCache_size() {
+		return cache_size;
+	}
+
+	public void setCache_size(int cache_size) {
+		this.cache_size = cache_size;
+	}
+
+	/**
+	 * Number of concurrent unseal requests when unsealing many files
+	 * @return unseal concurrency, defaults to 16
+	 */
+	public int getUnseal_concurrency() {
+		return unseal_concurrency;
+	}
+
+	public void setUnseal_concurrency(int unseal_concurrency) {
+		this.unseal_concurrency = unseal_concurrency;
+	}
+
+	/**
+	 * Seconds an unsealed file stays tracked by the unseal scheduler, it is checked again when unsealed after that
+	 * @return unsealed files time to live, defaults to 3600
+	 */
+	public int getUnseal_ttl() {
+		return unseal_ttl;
+	}
+
+	public void setUnseal_ttl(int unseal_ttl) {
+		this.unseal_ttl = unseal_ttl;
+	}
+
+	/**
+	 * Number of concurrent downloads when retrieving many files
+	 * @return download concurrency, defaults to 4
+	 */
+	public int getDownload_concurrency() {
+		return download_concurrency;
+	}
+
+	public void setDownload_concurrency(int download_concurrency) {
+		this.download_concurrency = download_concurrency;
+	}
+
+	/**
+	 * Maximum number of files uploaded at the same time by a batch upload
+	 * @return upload concurrency, defaults to 8
+	 */
+	public int getUpload_concurrency() {
+		return upload_concurrency;
+	}
+
+	public void setUpload_concurrency(int upload_concurrency) {
+		this.upload_concurrency = upload_concurrency;
+	}
+
+	/**
+	 * Maximum number of file names and results a batch upload holds before pausing its source
+	 * @return queue size, defaults to 64
+	 */
+	public int getUpload_queue_size() {
+		return upload_queue_size;
+	}
+
+	public void setUpload_queue_size(int upload_queue_size) {
+		this.upload_queue_size = upload_queue_size;
+	}
+
+	/**
+	 * Maximum number of times a failed request is sent again
+	 * @return maximum retries, defaults to 4
+	 */
+	public int getRetry_max() {
+		return retry_max;
+	}
+
+	public void setRetry_max(int retry_max) {
+		this.retry_max = retry_max;
+	}
+
+	/**
+	 * Maximum number of retries saved up, each successful request gives back a tenth of a retry
+	 * @return retry budget, defaults to 100
+	 */
+	public int getRetry_budget() {
+		return retry_budget;
+	}
+
+	public void setRetry_budget(int retry_budget) {
+		this.retry_budget = retry_budget;
+	}
+
+	/**
+	 * Delay before the first retry in milliseconds, doubled on each retry
+	 * @return base delay, defaults to 200
+	 */
+	public long getRetry_base_delay() {
+		return retry_base_delay;
+	}
+
+	public void setRetry_base_delay(long retry_base_delay) {
+		this.retry_base_delay = retry_base_delay;
+	}
+
+	/**
+	 * Maximum delay between retries in milliseconds, a longer Retry-After makes the request fail
+	 * @return maximum delay, defaults to 30000
+	 */
+	public long getRetry_max_delay() {
+		return retry_max_delay;
+	}
+
+	public void setRetry_max_delay(long retry_max_delay) {
+		this.retry_max_delay = retry_max_delay;
+	}
+
+	/**
+	 * Number of last requests the circuit breaker computes the error rate on
+	 * @return window size, defaults to 20
+	 */
+	public int getCircuit_window() {
+		return circuit_window;
+	}
+
+	public void setCircuit_window(int circuit_window) {
+		this.circuit_window = circuit_window;
+	}
+
+	/**
+	 * Error rate opening the circuit, in percent of the last circuit_window requests
+	 * @return error rate, defaults to 50
+	 */
+	public int getCircuit_error_rate() {
+		return circuit_error_rate;
+	}
+
+	public void setCircuit_error_rate(int circuit_error_rate) {
+		this.circuit_error_rate = circuit_error_rate;
+	}
+
+	/**
+	 * How long the circuit stays open before a probe request is sent, in milliseconds
+	 * @return open time, defaults to 5000
+	 */
+	public long getCircuit_open_time() {
+		return circuit_open_time;
+	}
+
+	public void setCircuit_open_time(long circuit_open_time) {
+		this.circuit_open_time = circuit_open_time;
+	}
+
+	/**
+	 * Minimum adaptive concurrency limit
+	 * @return minimum limit, defaults to 1
+	 */
+	public int getLimit_min() {
+		return limit_min;
+	}
+
+	public void setLimit_min(int limit_min) {
+		this.limit_min = limit_min;
+	}
+
+	/**
+	 * Maximum adaptive concurrency limit, also the initial one
+	 * @return maximum limit, defaults to 0 (max_pool_size)
+	 */
+	public int getLimit_max() {
+		return limit_max;
+	}
+
+	public void setLimit_max(int limit_max) {
+		this.limit_max = limit_max;
+	}
+
+	/**
+	 * Latency over which a request lowers the concurrency limit, in milliseconds
+	 * @return latency target, defaults to 0 (only failures lower the limit)
+	 */
+	public long getLimit_latency() {
+		return limit_latency;
+	}
+
+	public void setLimit_latency(long limit_latency) {
+		this.limit_latency = limit_latency;
+	}
+
+	/**
+	 * If vertxOptions() enables Vert.x Micrometer metrics (connection pools, HTTP client) on the global registry
+	 * @return true to enable Vert.x metrics, defaults to false
+	 */
+	public boolean isVertx_metrics() {
+		return vertx_metrics;
+	}
+
+	public void setVertx_metrics(boolean vertx_metrics) {
+		this.vertx_metrics = vertx_metrics;
+	}
+
+	/**
+	 * Value of the client tag of the client meters, to tell apart clients of the same account sharing a registry
+	 * @return client tag, defaults to null (the container name)
+	 */
+	public String getMetrics_client() {
+		return metrics_client;
+	}
+
+	public void setMetrics_client(String metrics_client) {
+		this.metrics_client = metrics_client;
+	}
+
+	/**
+	 * Number of entries compressed and encrypted at the same time by backupFolder
+	 * @return zip parallelism, defaults to 0 (the number of available processors)
+	 */
+	public int getZip_parallelism() {
+		return zip_parallelism;
+	}
+
+	public void setZip_parallelism(int zip_parallelism) {
+		this.zip_parallelism = zip_parallelism;
+	}
+
+	/**
+	 * Deflate level of backupFolder entries, from 1 (fastest) to 9 (smallest), 0 to store them without compression
+	 * @return compression level, defaults to 5
+	 */
+	public int getZip_compression_level() {
+		return zip_compression_level;
+	}
+
+	public void setZip_compression_level(int zip_compression_level) {
+		this.zip_compression_level = zip_compression_level;
+	}
+
+	/**
+	 * Comma separated extensions of the files backupFolder stores without compression, as they are already compressed
+	 * @return stored extensions, defaults to common archive, image and media formats
+	 */
+	public String getZip_store_extensions() {
+		return zip_store_extensions;
+	}
+
+	public void setZip_store_extensions(String zip_store_extensions) {
+		this.zip_store_extensions = zip_store_extensions;
+	}
+
+	/**
+	 * Average size of the content defined chunks of the dedup store, chunks are between a quarter and four times this size
+	 * Changing it moves every chunk boundary: new backups no longer share chunks with older ones
+	 * @return average chunk size in bytes, defaults to 1 MiB
+	 */
+	public long getDedup_chunk_size() {
+		return dedup_chunk_size;
+	}
+
+	public void setDedup_chunk_size(long dedup_chunk_size) {
+		this.dedup_chunk_size = dedup_chunk_size;
+	}
+
+	/**
+	 * Number of chunks the dedup store uploads or fetches at the same time
+	 * @return dedup concurrency, defaults to 8
+	 */
+	public int getDedup_concurrency() {
+		return dedup_concurrency;
+	}
+
+	public void setDedup_concurrency(int dedup_concurrency) {
+		this.dedup_concurrency = dedup_concurrency;
+	}
+
+	/**
+	 * Number of chunks a dedup restore unseals ahead of the chunk being written
+	 * @return unseal look-ahead, defaults to 1000
+	 */
+	public int getDedup_unseal_window() {
+		return dedup_unseal_window;
+	}
+
+	public void setDedup_unseal_window(int dedup_unseal_window) {
+		this.dedup_unseal_window = dedup_unseal_window;
+	}
+
+	/**
+	 * Maximum number of files in each archive sent by uploadFolder
+	 * @return files per archive, defaults to 1000
+	 */
+	public int getBulk_upload_files() {
+		return bulk_upload_files;
+	}
+
+	public void setBulk_upload_files(int bulk_upload_files) {
+		this.bulk_upload_files = bulk_upload_files;
+	}
+
+	/**
+	 * Maximum size of the files in each archive sent by uploadFolder, a larger file is sent in an archive of its own
+	 * @return bytes per archive, defaults to 64 MiB
+	 */
+	public long getBulk_upload_bytes() {
+		return bulk_upload_bytes;
+	}
+
+	public void setBulk_upload_bytes(long bulk_upload_bytes) {
+		this.bulk_upload_bytes = bulk_upload_bytes;
+	}
+
+	/**
+	 * Number of archives uploadFolder sends at the same time
+	 * @return bulk upload concurrency, defaults to 4
+	 */
+	public int getBulk_upload_concurrency() {
+		return bulk_upload_concurrency;
+	}
+
+	public void setBulk_upload_concurrency(int bulk_upload_concurrency) {
+		this.bulk_upload_concurrency = bulk_upload_concurrency;
+	}
+
+	/**
+	 * How long a token issued or accepted by the storage is trusted for a request whose body can only be sent once, in milliseconds
+	 * An older token is checked with a HEAD request on the container first, so that a revoked token is replaced before the body is consumed
+	 * @return token check age, defaults to 30000
+	 */
+	public long getToken_check_age() {
+		return token_check_age;
+	}
+
+	public void setToken_check_age(long token_check_age) {
+		this.token_check_age = token_check_age;
+	}
+}
@@ -2,21 +2,25 @@ package io.github.slacesa.simpleSwiftClient.resources;
 
 import org.joda.time.DateTime;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
 /**
  * A File descriptor, contains the information retrieved by the Swift Server
  * @author SLC
  *
  */
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class SwiftFile {
 	
 	private String
 		hash,
 		name,
+		subdir,
 		content_type; 
 
-	private Integer
-		bytes,
-		policy_retrieval_delay;
+	private Long bytes;
+
+	private Integer policy_retrieval_delay;
 
 	private DateTime last_modified;
 	
@@ -48,12 +52,24 @@ public class SwiftFile {
 		this.name = name;
 	}
 
+	/**
+	 * The pseudo folder, only set for folder entries of a listing with a delimiter (name is then null)
+	 * @return the pseudo folder, including the trailing delimiter
+	 */
+	public String getSubdir() {
+		return subdir;
+	}
+
+	public void setSubdir(String subdir) {
+		this.subdir = subdir;
+	}
+
 	/**
 	 * When the file was last modified, compatible with DateTime format
 	 * @return the last edit
 	 */
 	public String getLast_modified() {
-		return last_modified.toString();
+		return last_modified == null? null : last_modified.toString();
 	}
 
 	public void setLast_modified(DateTime last_modified) {
@@ -93,11 +109,11 @@ public class SwiftFile {
 	 * The file length in bytes
 	 * @return the file length
 	 */
-	public Integer getBytes() {
+	public Long getBytes() {
 		return bytes;
 	}
 
-	public void setBytes(Integer bytes) {
+	public void setBytes(Long bytes) {
 		this.bytes = bytes;
 	}
 
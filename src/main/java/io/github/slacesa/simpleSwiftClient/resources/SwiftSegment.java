@@ -0,0 +1,59 @@
+package io.github.slacesa.simpleSwiftClient.resources;
+
+/**
+ * A segment of a Static Large Object, as described in the manifest
+ * @author SLC
+ *
+ */
+public class SwiftSegment {
+
+	private String
+		path,
+		etag;
+
+	private long size_bytes;
+
+	public SwiftSegment() {}
+
+	public SwiftSegment(String path, String etag, long size_bytes) {
+		this.path = path;
+		this.etag = etag;
+		this.size_bytes = size_bytes;
+	}
+
+	/**
+	 * The segment location, as /container/object
+	 * @return the path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	/**
+	 * The MD5 hash of the segment content
+	 * @return the hash value
+	 */
+	public String getEtag() {
+		return etag;
+	}
+
+	public void setEtag(String etag) {
+		this.etag = etag;
+	}
+
+	/**
+	 * The segment length in bytes
+	 * @return the segment length
+	 */
+	public long getSize_bytes() {
+		return size_bytes;
+	}
+
+	public void setSize_bytes(long size_bytes) {
+		this.size_bytes = size_bytes;
+	}
+}
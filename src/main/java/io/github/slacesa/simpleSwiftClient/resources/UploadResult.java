@@ -0,0 +1,96 @@
+package io.github.slacesa.simpleSwiftClient.resources;
+
+/**
+ * The outcome of one file of a batch upload
+ * @author SLC
+ *
+ */
+public class UploadResult {
+
+	private String
+		name,
+		hash,
+		error;
+
+	private long
+		bytes,
+		duration;
+
+	public UploadResult() {}
+
+	public UploadResult(String name, String hash, String error, long bytes, long duration) {
+		this.name = name;
+		this.hash = hash;
+		this.error = error;
+		this.bytes = bytes;
+		this.duration = duration;
+	}
+
+	/**
+	 * The uploaded file name
+	 * @return the file name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * The MD5 hash of the stored content
+	 * @return the hash value, null if the upload failed
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+	/**
+	 * Why the upload failed
+	 * @return the failure message, null if the upload succeeded
+	 */
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	/**
+	 * The file length in bytes
+	 * @return the number of bytes sent
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Time spent uploading the file, waiting time excluded
+	 * @return the duration in milliseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	public void setDuration(long duration) {
+		this.duration = duration;
+	}
+
+	/**
+	 * If the file has been stored
+	 * @return true if the upload succeeded
+	 */
+	public boolean isSuccess() {
+		return error == null;
+	}
+}
@@ -0,0 +1,105 @@
+package io.github.slacesa.simpleSwiftClient.resources;
+
+/**
+ * Aggregate figures of a batch upload, updated as files complete
+ * @author SLC
+ *
+ */
+public class UploadStats {
+
+	private int
+		succeeded,
+		failed,
+		in_flight;
+
+	private long
+		bytes,
+		started = System.currentTimeMillis(),
+		ended;
+
+	public UploadStats() {}
+
+	/**
+	 * Accounts for a completed file
+	 * @param result the file outcome
+	 */
+	public synchronized void add(UploadResult result) {
+		if(result.isSuccess()) {
+			succeeded++;
+			bytes += result.getBytes();
+		}
+		else failed++;
+	}
+
+	/**
+	 * Number of files stored
+	 * @return the succeeded count
+	 */
+	public synchronized int getSucceeded() {
+		return succeeded;
+	}
+
+	/**
+	 * Number of files that could not be stored
+	 * @return the failed count
+	 */
+	public synchronized int getFailed() {
+		return failed;
+	}
+
+	/**
+	 * Number of files being uploaded
+	 * @return the in flight count
+	 */
+	public synchronized int getIn_flight() {
+		return in_flight;
+	}
+
+	public synchronized void setIn_flight(int in_flight) {
+		this.in_flight = in_flight;
+	}
+
+	/**
+	 * Number of bytes stored
+	 * @return the bytes count
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Time since the batch started, until it ended if it did
+	 * @return the elapsed time in milliseconds
+	 */
+	public synchronized long getElapsed() {
+		return ((ended > 0)? ended : System.currentTimeMillis()) - started;
+	}
+
+	/**
+	 * Marks the end of the batch
+	 */
+	public synchronized void end() {
+		if(ended == 0) ended = System.currentTimeMillis();
+	}
+
+	/**
+	 * Sustained throughput of the batch
+	 * @return the bytes stored per second
+	 */
+	public synchronized double getThroughput() {
+		return bytes * 1000.0 / Math.max(1, getElapsed());
+	}
+
+	/**
+	 * Files stored per second
+	 * @return the file rate
+	 */
+	public synchronized double getFile_rate() {
+		return succeeded * 1000.0 / Math.max(1, getElapsed());
+	}
+
+	@Override
+	public synchronized String toString() {
+		return succeeded + " stored, " + failed + " failed, " + bytes + " bytes in " + getElapsed() + " ms (" + (long) getThroughput() + " B/s)";
+	}
+}
@@ -0,0 +1,306 @@
+package io.github.slacesa.zipper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.lingala.zip4j.io.outputstream.ZipOutputStream;
+import net.lingala.zip4j.model.ZipParameters;
+import net.lingala.zip4j.model.enums.CompressionMethod;
+
+/**
+ * Writes a zip archive of a folder, compressing and encrypting entries concurrently
+ * Each entry is written by zip4j as a single entry archive: its local header and data are copied to the target in order,
+ * its central directory record is relocated to the entry position, then a central directory joining all the records is written
+ * (in zip64 format when offsets or the entry count do not fit the classic one). Entries up to the inline threshold are compressed
+ * ahead on the pool, within an in-flight budget; larger entries are compressed by the writing thread straight into the target,
+ * while the pool keeps compressing the following ones
+ * @author SLC
+ *
+ */
+final class ParallelZipWriter {
+
+	private static final long INLINE_THRESHOLD = 8L * 1024 * 1024;
+	private static final long IN_FLIGHT_BUDGET = 64L * 1024 * 1024;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int CENTRAL_HEADER = 0x02014b50;
+	private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+
+	private final ExecutorService pool;
+	private final ZipParameters params;
+	private final Set<String> storedExtensions;
+	private final char[] password;
+
+	/**
+	 * @param pool the pool entries are compressed on
+	 * @param params the parameters of every entry (encryption, compression method and level)
+	 * @param storedExtensions the lower case extensions of files stored without compression
+	 * @param password the encryption password
+	 */
+	ParallelZipWriter(ExecutorService pool, ZipParameters params, Set<String> storedExtensions, char[] password) {
+		this.pool = pool;
+		this.params = params;
+		this.storedExtensions = storedExtensions;
+		this.password = password;
+	}
+
+	/**
+	 * Writes the archive, blocking until complete
+	 * Entries are named relative to the parent of the folder, as ZipFile.addFolder does
+	 * @param folder the folder to zip
+	 * @param filter selects the entries written, by name
+	 * @param target the stream the archive is written to, not closed
+	 * @throws IOException if a file cannot be read or the target written
+	 */
+	void write(File folder, Predicate<String> filter, OutputStream target) throws IOException {
+		if(!folder.isDirectory()) throw new IOException("Folder not found");
+		Path root = folder.toPath().toAbsolutePath().getParent();
+		List<Path> paths;
+		try(Stream<Path> walk = Files.walk(folder.toPath().toAbsolutePath())) {
+			paths = walk.sorted().collect(Collectors.toList());
+		}
+		List<Source> sources = new ArrayList<>(paths.size());
+		for(Path path : paths) {
+			boolean directory = Files.isDirectory(path);
+			String name = root.relativize(path).toString().replace(File.separatorChar, '/') + (directory? "/" : "");
+			if(filter.test(name)) sources.add(new Source(path, name, directory, directory? 0 : Files.size(path)));
+		}
+
+		long offset = 0;
+		long inFlight = 0;
+		int submitted = 0;
+		Map<Integer, CompletableFuture<Entry>> pending = new HashMap<>();
+		List<byte[]> records = new ArrayList<>(sources.size());
+		try {
+			for(int i = 0; i < sources.size(); i++) {
+				// Submits the next small entries, within the budget, the current one being always submitted
+				for(; submitted < sources.size(); submitted++) {
+					Source next = sources.get(submitted);
+					if(next.size > INLINE_THRESHOLD) continue;
+					if(inFlight > 0 && inFlight + next.size > IN_FLIGHT_BUDGET) break;
+					inFlight += next.size;
+					pending.put(submitted, CompletableFuture.supplyAsync(() -> compress(next, null), pool));
+				}
+				Source source = sources.get(i);
+				Entry entry;
+				if(source.size > INLINE_THRESHOLD) entry = compress(source, target);
+				else {
+					entry = join(pending.remove(i));
+					inFlight -= source.size;
+					target.write(entry.data);
+				}
+				records.add(relocate(entry.record, offset));
+				offset += entry.length;
+			}
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		finally {
+			for(CompletableFuture<Entry> future : pending.values()) future.cancel(false);
+		}
+		writeCentralDirectory(target, records, offset);
+	}
+
+	private Entry compress(Source source, OutputStream direct) {
+		EntrySink sink = new EntrySink(direct);
+		ZipParameters entry = new ZipParameters(params);
+		entry.setFileNameInZip(source.name);
+		try {
+			entry.setLastModifiedFileTime(Files.getLastModifiedTime(source.path).toMillis());
+			if(source.directory) entry.setEncryptFiles(false);
+			else {
+				entry.setEntrySize(source.size);
+				if(stored(source.name)) entry.setCompressionMethod(CompressionMethod.STORE);
+			}
+			try(ZipOutputStream zip = new ZipOutputStream(sink, password)) {
+				zip.putNextEntry(entry);
+				if(!source.directory) {
+					byte[] buffer = new byte[BUFFER_SIZE];
+					try(InputStream in = Files.newInputStream(source.path)) {
+						int read;
+						while((read = in.read(buffer)) > 0) zip.write(buffer, 0, read);
+					}
+				}
+				zip.closeEntry();
+				sink.entryEnd();
+			}
+			return sink.entry();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private boolean stored(String name) {
+		int dot = name.lastIndexOf('.');
+		return dot >= 0 && storedExtensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+	}
+
+	private static Entry join(CompletableFuture<Entry> future) throws IOException {
+		try {
+			return future.join();
+		}
+		catch (CompletionException e) {
+			if(e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Moves a central directory record of a single entry archive to the position of the entry in the assembled archive
+	 * Offsets that do not fit 32 bits go to the zip64 extended information extra field, after the sizes it may already hold
+	 * @param record the record, whose local header offset is 0
+	 * @param offset the position of the local header
+	 * @return the relocated record
+	 */
+	static byte[] relocate(byte[] record, long offset) {
+		ByteBuffer header = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
+		if(offset < ZIP64_LIMIT) {
+			header.putInt(42, (int) offset);
+			return record;
+		}
+		int nameLength = header.getShort(28) & 0xFFFF;
+		int extraLength = header.getShort(30) & 0xFFFF;
+		int commentLength = header.getShort(32) & 0xFFFF;
+		int extraStart = 46 + nameLength;
+		ByteArrayOutputStream extra = new ByteArrayOutputStream();
+		boolean zip64 = false;
+		for(int position = extraStart; position + 4 <= extraStart + extraLength;) {
+			int id = header.getShort(position) & 0xFFFF;
+			int size = header.getShort(position + 2) & 0xFFFF;
+			ByteBuffer field = ByteBuffer.allocate(4 + size + ((id == 1)? 8 : 0)).order(ByteOrder.LITTLE_ENDIAN);
+			field.putShort((short) id).putShort((short) (size + ((id == 1)? 8 : 0))).put(record, position + 4, size);
+			if(id == 1) {
+				field.putLong(offset);
+				zip64 = true;
+			}
+			extra.write(field.array(), 0, field.capacity());
+			position += 4 + size;
+		}
+		if(!zip64) {
+			ByteBuffer field = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+			field.putShort((short) 1).putShort((short) 8).putLong(offset);
+			extra.write(field.array(), 0, 12);
+		}
+		byte[] extraBytes = extra.toByteArray();
+		ByteBuffer relocated = ByteBuffer.allocate(extraStart + extraBytes.length + commentLength).order(ByteOrder.LITTLE_ENDIAN);
+		relocated.put(record, 0, extraStart).put(extraBytes).put(record, extraStart + extraLength, commentLength);
+		relocated.putShort(6, (short) Math.max(45, relocated.getShort(6) & 0xFFFF));
+		relocated.putShort(30, (short) extraBytes.length);
+		relocated.putInt(42, (int) ZIP64_LIMIT);
+		return relocated.array();
+	}
+
+	/**
+	 * Writes the central directory and its end records, in zip64 format when needed
+	 */
+	private static void writeCentralDirectory(OutputStream target, List<byte[]> records, long offset) throws IOException {
+		long size = 0;
+		for(byte[] record : records) {
+			target.write(record);
+			size += record.length;
+		}
+		long entries = records.size();
+		if(entries >= 0xFFFF || offset >= ZIP64_LIMIT || size >= ZIP64_LIMIT) {
+			ByteBuffer zip64 = ByteBuffer.allocate(56 + 20).order(ByteOrder.LITTLE_ENDIAN);
+			zip64.putInt(0x06064b50).putLong(44).putShort((short) 45).putShort((short) 45).putInt(0).putInt(0)
+			.putLong(entries).putLong(entries).putLong(size).putLong(offset);
+			zip64.putInt(0x07064b50).putInt(0).putLong(offset + size).putInt(1);
+			target.write(zip64.array());
+		}
+		ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+		end.putInt(0x06054b50).putShort((short) 0).putShort((short) 0)
+		.putShort((short) Math.min(entries, 0xFFFF)).putShort((short) Math.min(entries, 0xFFFF))
+		.putInt((int) Math.min(size, ZIP64_LIMIT)).putInt((int) Math.min(offset, ZIP64_LIMIT)).putShort((short) 0);
+		target.write(end.array());
+	}
+
+	private static class Source {
+		private final Path path;
+		private final String name;
+		private final boolean directory;
+		private final long size;
+
+		private Source(Path path, String name, boolean directory, long size) {
+			this.path = path;
+			this.name = name;
+			this.directory = directory;
+			this.size = size;
+		}
+	}
+
+	private static class Entry {
+		private final byte[] data, record;
+		private final long length;
+
+		private Entry(byte[] data, long length, byte[] record) {
+			this.data = data;
+			this.length = length;
+			this.record = record;
+		}
+	}
+
+	/**
+	 * Receives the output of a single entry archive: the entry goes to the target, or to memory without target,
+	 * what follows the entry (its central directory) is kept apart
+	 */
+	private static class EntrySink extends OutputStream {
+		private final OutputStream direct;
+		private final ByteArrayOutputStream memory = new ByteArrayOutputStream(), tail = new ByteArrayOutputStream();
+		private long length;
+		private boolean ended;
+
+		private EntrySink(OutputStream direct) {
+			this.direct = direct;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int count) throws IOException {
+			if(ended) tail.write(bytes, offset, count);
+			else {
+				length += count;
+				if(direct != null) direct.write(bytes, offset, count);
+				else memory.write(bytes, offset, count);
+			}
+		}
+
+		private void entryEnd() {
+			ended = true;
+		}
+
+		private Entry entry() throws IOException {
+			byte[] directory = tail.toByteArray();
+			ByteBuffer header = ByteBuffer.wrap(directory).order(ByteOrder.LITTLE_ENDIAN);
+			if(directory.length < 46 || header.getInt(0) != CENTRAL_HEADER) throw new IOException("Central directory record not found");
+			int recordLength = 46 + (header.getShort(28) & 0xFFFF) + (header.getShort(30) & 0xFFFF) + (header.getShort(32) & 0xFFFF);
+			byte[] record = new byte[recordLength];
+			System.arraycopy(directory, 0, record, 0, recordLength);
+			return new Entry((direct != null)? null : memory.toByteArray(), length, record);
+		}
+	}
+}
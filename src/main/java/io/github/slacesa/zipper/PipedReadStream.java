@@ -0,0 +1,219 @@
+package io.github.slacesa.zipper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.impl.InboundBuffer;
+
+/**
+ * Bridges a blocking OutputStream, written by a worker thread, to a read stream consumed on a Vert.x context
+ * Written bytes are grouped in chunks handed to the context. The writer blocks while more than the high water mark
+ * has been handed but not consumed yet, so a paused consumer (a request whose connection is busy) stops the producer
+ * and memory stays bounded
+ * @author SLC
+ *
+ */
+public class PipedReadStream implements ReadStream<Buffer> {
+
+	private final Context context;
+	private final InboundBuffer<Buffer> chunks;
+	private final int chunkSize;
+	private final long highWaterMark;
+	private final Promise<Void> result = Promise.promise();
+	private final OutputStream output;
+
+	private long pending;
+	private volatile long length;
+	private boolean cancelled;
+	private volatile boolean failed;
+	private Handler<Buffer> handler;
+	private Handler<Throwable> exceptionHandler;
+	private Handler<Void> endHandler;
+
+	/**
+	 * @param context the context the stream is consumed on
+	 * @param chunkSize the size of the chunks emitted
+	 * @param highWaterMark the number of bytes handed but not consumed over which the writer blocks
+	 */
+	public PipedReadStream(Context context, int chunkSize, long highWaterMark) {
+		this.context = context;
+		this.chunkSize = chunkSize;
+		this.highWaterMark = Math.max(chunkSize, highWaterMark);
+		this.chunks = new InboundBuffer<>(context);
+		this.output = new ChunkedOutputStream();
+		chunks.pause();
+		chunks.handler(chunk -> {
+			synchronized(this) {
+				pending -= chunk.length();
+				notifyAll();
+			}
+			if(handler != null) handler.handle(chunk);
+		});
+	}
+
+	/**
+	 * The stream the producer writes to, from a worker thread
+	 * Closing it ends the read stream once every chunk has been consumed, unless the stream has been failed:
+	 * a failing producer must call fail before the output stream is closed, so that a truncated output is never ended cleanly
+	 * @return the output stream
+	 */
+	public OutputStream outputStream() {
+		return output;
+	}
+
+	/**
+	 * Fails the read stream, to be called by the producer: later writes fail and closing no longer ends the stream
+	 * @param cause the failure cause
+	 */
+	public void fail(Throwable cause) {
+		failed = true;
+		context.runOnContext(v -> {
+			if(result.tryFail(cause) && exceptionHandler != null) exceptionHandler.handle(cause);
+		});
+	}
+
+	/**
+	 * Stops the producer: its next write fails, it does not stay blocked if the consumer is gone
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+		notifyAll();
+	}
+
+	/**
+	 * The number of bytes produced, the whole output length once the result is successful
+	 * @return the bytes handed to the consumer
+	 */
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * The outcome of the producer
+	 * @return a future completed when the output stream is closed, failed if the producer failed
+	 */
+	public Future<Void> result() {
+		return result.future();
+	}
+
+	@Override
+	public PipedReadStream exceptionHandler(Handler<Throwable> handler) {
+		this.exceptionHandler = handler;
+		return this;
+	}
+
+	@Override
+	public PipedReadStream handler(Handler<Buffer> handler) {
+		this.handler = handler;
+		if(handler != null) chunks.resume();
+		else chunks.pause();
+		// The producer may fail before the consumer starts reading
+		if(handler != null && result.future().failed() && exceptionHandler != null) exceptionHandler.handle(result.future().cause());
+		return this;
+	}
+
+	@Override
+	public PipedReadStream pause() {
+		chunks.pause();
+		return this;
+	}
+
+	@Override
+	public PipedReadStream resume() {
+		chunks.resume();
+		return this;
+	}
+
+	@Override
+	public PipedReadStream fetch(long amount) {
+		chunks.fetch(amount);
+		return this;
+	}
+
+	@Override
+	public PipedReadStream endHandler(Handler<Void> endHandler) {
+		this.endHandler = endHandler;
+		return this;
+	}
+
+	private void emit(Buffer chunk) throws IOException {
+		synchronized(this) {
+			while(pending >= highWaterMark && !cancelled) {
+				try {
+					wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted", e);
+				}
+			}
+			if(cancelled) throw new IOException("Stream cancelled");
+			if(failed) throw new IOException("Stream failed");
+			pending += chunk.length();
+			length += chunk.length();
+		}
+		context.runOnContext(v -> chunks.write(chunk));
+	}
+
+	private void end() {
+		context.runOnContext(v -> {
+			if(!result.tryComplete()) return;
+			if(chunks.isEmpty()) ended();
+			else chunks.emptyHandler(empty -> {
+				chunks.emptyHandler(null);
+				ended();
+			});
+		});
+	}
+
+	private void ended() {
+		if(endHandler != null) endHandler.handle(null);
+	}
+
+	private class ChunkedOutputStream extends OutputStream {
+
+		private byte[] chunk = new byte[chunkSize];
+		private int count;
+		private boolean closed;
+
+		@Override
+		public void write(int b) throws IOException {
+			if(count == chunk.length) flushChunk();
+			chunk[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			while(length > 0) {
+				if(count == chunk.length) flushChunk();
+				int copied = Math.min(length, chunk.length - count);
+				System.arraycopy(bytes, offset, chunk, count, copied);
+				count += copied;
+				offset += copied;
+				length -= copied;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if(closed) return;
+			closed = true;
+			if(failed) return;
+			if(count > 0) flushChunk();
+			end();
+		}
+
+		private void flushChunk() throws IOException {
+			Buffer full = Buffer.buffer(count);
+			full.appendBytes(chunk, 0, count);
+			count = 0;
+			emit(full);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package io.github.slacesa.zipper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Writes regular files as a POSIX (ustar) tar archive
+ * Names longer than 100 bytes and files of 8 GiB or more are described by a PAX extended header, as read by GNU tar and Python tarfile
+ * @author SLC
+ *
+ */
+final class TarWriter {
+
+	private static final int BLOCK = 512;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long MAX_OCTAL_SIZE = 077777777777L;
+
+	private TarWriter() {}
+
+	/**
+	 * Writes the archive, blocking until complete
+	 * @param entries the local file of each entry, by entry name, in archive order
+	 * @param target the stream the archive is written to, not closed
+	 * @throws IOException if a file cannot be read, or shrinks while it is archived, or the target cannot be written
+	 */
+	static void write(Map<String, String> entries, OutputStream target) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		for(Map.Entry<String, String> entry : entries.entrySet()) {
+			Path path = Paths.get(entry.getValue());
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			long size = attributes.size();
+			byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			if(name.length > 100 || size > MAX_OCTAL_SIZE) {
+				ByteArrayOutputStream records = new ByteArrayOutputStream();
+				if(name.length > 100) paxRecord(records, "path", entry.getKey());
+				if(size > MAX_OCTAL_SIZE) paxRecord(records, "size", Long.toString(size));
+				target.write(header(("PaxHeaders/" + path.getFileName()).getBytes(StandardCharsets.UTF_8), records.size(), 0, 'x'));
+				records.writeTo(target);
+				pad(target, records.size());
+			}
+			target.write(header(name, size, attributes.lastModifiedTime().toMillis() / 1000, '0'));
+			long remaining = size;
+			try(InputStream in = Files.newInputStream(path)) {
+				while(remaining > 0) {
+					int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+					if(read < 0) throw new IOException("File shrank while archived: " + entry.getValue());
+					target.write(buffer, 0, read);
+					remaining -= read;
+				}
+			}
+			pad(target, size);
+		}
+		target.write(new byte[2 * BLOCK]);
+	}
+
+	private static byte[] header(byte[] name, long size, long mtime, char type) {
+		byte[] header = new byte[BLOCK];
+		System.arraycopy(name, 0, header, 0, Math.min(name.length, 100));
+		octal(header, 100, 8, 0644);
+		octal(header, 108, 8, 0);
+		octal(header, 116, 8, 0);
+		octal(header, 124, 12, Math.min(size, MAX_OCTAL_SIZE));
+		octal(header, 136, 12, mtime);
+		header[156] = (byte) type;
+		System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+		Arrays.fill(header, 148, 156, (byte) ' ');
+		long checksum = 0;
+		for(byte b : header) checksum += b & 0xFF;
+		octal(header, 148, 7, checksum);
+		return header;
+	}
+
+	/**
+	 * Writes a zero padded octal number followed by a NUL, filling length bytes
+	 */
+	private static void octal(byte[] header, int offset, int length, long value) {
+		String digits = Long.toOctalString(value);
+		for(int i = 0; i < length - 1; i++) {
+			int digit = digits.length() - (length - 1) + i;
+			header[offset + i] = (byte) ((digit < 0)? '0' : digits.charAt(digit));
+		}
+		header[offset + length - 1] = 0;
+	}
+
+	/**
+	 * Writes a PAX record, "length key=value\n", its length counting its own digits
+	 */
+	private static void paxRecord(ByteArrayOutputStream records, String key, String value) throws IOException {
+		byte[] content = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+		int length = content.length + 1;
+		while(length != content.length + Integer.toString(length).length()) length = content.length + Integer.toString(length).length();
+		records.write(Integer.toString(length).getBytes(StandardCharsets.US_ASCII));
+		records.write(content);
+	}
+
+	private static void pad(OutputStream target, long size) throws IOException {
+		int padding = (int) ((BLOCK - size % BLOCK) % BLOCK);
+		if(padding > 0) target.write(new byte[padding]);
+	}
+}
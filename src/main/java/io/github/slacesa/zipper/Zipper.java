@@ -1,18 +1,33 @@
 package io.github.slacesa.zipper;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
 
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.impl.NoStackTraceThrowable;
-import net.lingala.zip4j.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
 import net.lingala.zip4j.model.ZipParameters;
+import net.lingala.zip4j.model.enums.CompressionLevel;
+import net.lingala.zip4j.model.enums.CompressionMethod;
 import net.lingala.zip4j.model.enums.EncryptionMethod;
 
 /**
  * Utility class to wrap an asynchronous zipper for Vert.X using zip4j
+ * Entries are compressed and encrypted concurrently on a pool sized by setParallelism, then assembled in order.
+ * Also streams plain tar archives, for bulk uploads.
  * Needs to import net.lingala.zip4j 2.3.2
  * @see net.lingala.zip4j
  * @author SLC
@@ -20,8 +35,14 @@ import net.lingala.zip4j.model.enums.EncryptionMethod;
  */
 public class Zipper {
 
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final long HIGH_WATER_MARK = 1024 * 1024;
+
 	private ZipParameters params;
 	private Vertx vertx;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private Set<String> storedExtensions = Collections.emptySet();
+	private ForkJoinPool pool;
 
 	private static Zipper singleton;
 
@@ -32,6 +53,21 @@ public class Zipper {
 		this.vertx = vertx;
 	}
 
+	/**
+	 * Creates an independent zipper
+	 * @param vertx the Vert.x instance blocking zip operations run on
+	 * @return a new zipper, null if vertx is null
+	 */
+	public static Zipper create(Vertx vertx) {
+		if(vertx == null) return null;
+		return new Zipper(vertx);
+	}
+
+	/**
+	 * The shared zipper, created on first use with the given Vert.x instance
+	 * @param vertx the Vert.x instance blocking zip operations run on
+	 * @return the shared zipper, null if vertx is null
+	 */
 	public static Zipper getZipper(Vertx vertx) {
 		if(vertx == null) return null;
 		if(singleton == null)
@@ -39,26 +75,188 @@ public class Zipper {
 		return singleton;
 	}
 
+	/**
+	 * Sets the number of entries compressed at the same time
+	 * @param parallelism the number of threads compressing entries, 0 for the number of available processors
+	 * @return this zipper
+	 */
+	public synchronized Zipper setParallelism(int parallelism) {
+		this.parallelism = (parallelism > 0)? parallelism : Runtime.getRuntime().availableProcessors();
+		if(pool != null) pool.shutdown();
+		pool = null;
+		return this;
+	}
+
+	/**
+	 * Sets the deflate level of the entries
+	 * @param level from 1 (fastest) to 9 (smallest), 0 to store entries without compression
+	 * @return this zipper
+	 */
+	public Zipper setCompressionLevel(int level) {
+		ZipParameters updated = new ZipParameters(params);
+		if(level <= 0) updated.setCompressionMethod(CompressionMethod.STORE);
+		else {
+			updated.setCompressionMethod(CompressionMethod.DEFLATE);
+			for(CompressionLevel candidate : CompressionLevel.values())
+				if(candidate.getLevel() == Math.min(level, 9)) updated.setCompressionLevel(candidate);
+		}
+		params = updated;
+		return this;
+	}
+
+	/**
+	 * Sets the extensions of the files stored without compression, as they are already compressed (e.g. zip, jpg, mp4)
+	 * @param extensions the file extensions, without dot, case insensitive
+	 * @return this zipper
+	 */
+	public Zipper setStoredExtensions(Collection<String> extensions) {
+		Set<String> lowerCase = new HashSet<>();
+		for(String extension : extensions) lowerCase.add(extension.trim().toLowerCase(Locale.ROOT));
+		storedExtensions = lowerCase;
+		return this;
+	}
+
+	/**
+	 * Zips a folder to a file
+	 * @param zipFileName the zip file to write
+	 * @param sourceFolder the folder to zip
+	 * @param password the password used to encrypt the entries
+	 * @return a void future, failed if the folder cannot be zipped
+	 */
 	public Future<Void> zipFolder(String zipFileName, String sourceFolder, String password) {
 		Promise<Void> result = Promise.promise();
 		vertx.executeBlocking(
 				promise -> {
-					try {
-						new ZipFile(zipFileName, password.toCharArray())
-						.addFolder(new File(sourceFolder), params);
-						promise.complete();
-					}
-					catch (ZipException ze) {
-						promise.fail(ze.getCause());
+					try(OutputStream target = new BufferedOutputStream(new FileOutputStream(zipFileName), CHUNK_SIZE)) {
+						zipTo(sourceFolder, password, target);
 					}
 					catch (Exception e) {
-						promise.fail(e.getCause());
+						promise.fail(e);
+						return;
 					}
-				},
+					promise.complete();
+				}, false,
 				res -> {
 					if(res.succeeded())result.complete();
-					else result.fail(new NoStackTraceThrowable("Folder not found"));
+					else result.fail(new NoStackTraceThrowable(new File(sourceFolder).isDirectory()?
+							"Zip failed: " + res.cause().getMessage() : "Folder not found"));
 				});
 		return result.future();
-    }
+	}
+
+	/**
+	 * Zips a folder into a stream, without writing the archive to disk
+	 * The archive is produced on a worker thread as the stream is consumed, the worker waits while the consumer is paused.
+	 * Entries are named as with zipFolder, relative to the parent of the folder
+	 * @param sourceFolder the folder to zip
+	 * @param password the password used to encrypt the entries
+	 * @return the archive stream, whose result() fails if the folder cannot be zipped
+	 */
+	public PipedReadStream zipStream(String sourceFolder, String password) {
+		return zipStream(sourceFolder, password, name -> true);
+	}
+
+	/**
+	 * Zips some entries of a folder into a stream, without writing the archive to disk
+	 * @see #zipStream(String, String)
+	 * @param sourceFolder the folder to zip
+	 * @param password the password used to encrypt the entries
+	 * @param filter selects the entries by name (e.g. child/sub/file, directories ending with /)
+	 * @return the archive stream, whose result() fails if the folder cannot be zipped
+	 */
+	public PipedReadStream zipStream(String sourceFolder, String password, Predicate<String> filter) {
+		PipedReadStream stream = new PipedReadStream(vertx.getOrCreateContext(), CHUNK_SIZE, HIGH_WATER_MARK);
+		vertx.executeBlocking(promise -> {
+			OutputStream target = stream.outputStream();
+			try {
+				zipTo(sourceFolder, password, filter, target);
+				target.close();
+				promise.complete();
+			}
+			catch (Exception e) {
+				// Failed before closing, closing would end a truncated archive as a complete one
+				stream.fail(new NoStackTraceThrowable(new File(sourceFolder).isDirectory()?
+						"Zip failed: " + e.getMessage() : "Folder not found"));
+				promise.fail(e);
+			}
+		}, false);
+		return stream;
+	}
+
+	/**
+	 * Archives files as a tar stream, optionally gzipped, without writing the archive to disk
+	 * The archive is produced on a worker thread as the stream is consumed, the worker waits while the consumer is paused
+	 * @param entries the local file of each entry, by entry name, in archive order
+	 * @param gzip true to compress the archive with gzip
+	 * @return the archive stream, whose result() fails if a file cannot be read
+	 */
+	public PipedReadStream tarStream(Map<String, String> entries, boolean gzip) {
+		PipedReadStream stream = new PipedReadStream(vertx.getOrCreateContext(), CHUNK_SIZE, HIGH_WATER_MARK);
+		vertx.executeBlocking(promise -> {
+			OutputStream target = stream.outputStream();
+			try {
+				if(gzip) target = new GZIPOutputStream(target, CHUNK_SIZE);
+				TarWriter.write(entries, target);
+				target.close();
+				promise.complete();
+			}
+			catch (Exception e) {
+				// Failed before closing, closing would end a truncated archive as a complete one
+				stream.fail(new NoStackTraceThrowable("Tar failed: " + e.getMessage()));
+				try {
+					// Releases the deflater, nothing is emitted once failed
+					target.close();
+				}
+				catch (IOException ignored) {}
+				promise.fail(e);
+			}
+		}, false);
+		return stream;
+	}
+
+	/**
+	 * Zips a folder into an output stream, blocking: to be called from a worker thread
+	 * Entries are named relative to the parent of the folder (e.g. parent/child/file for the folder parent/child)
+	 * @param sourceFolder the folder to zip
+	 * @param password the password used to encrypt the entries
+	 * @param target the stream the archive is written to, not closed
+	 * @throws IOException if a file cannot be read or the target written
+	 */
+	public void zipTo(String sourceFolder, String password, OutputStream target) throws IOException {
+		zipTo(sourceFolder, password, name -> true, target);
+	}
+
+	/**
+	 * Zips some entries of a folder into an output stream, blocking: to be called from a worker thread
+	 * @see #zipTo(String, String, OutputStream)
+	 * @param sourceFolder the folder to zip
+	 * @param password the password used to encrypt the entries
+	 * @param filter selects the entries by name (e.g. child/sub/file, directories ending with /)
+	 * @param target the stream the archive is written to, not closed
+	 * @throws IOException if a file cannot be read or the target written
+	 */
+	public void zipTo(String sourceFolder, String password, Predicate<String> filter, OutputStream target) throws IOException {
+		new ParallelZipWriter(pool(), params, storedExtensions, password.toCharArray()).write(new File(sourceFolder), filter, target);
+	}
+
+	/**
+	 * The pool entries are compressed on, for other CPU bound tasks over many files (e.g. hashing)
+	 * @return the pool, sized by setParallelism
+	 */
+	public ForkJoinPool executor() {
+		return pool();
+	}
+
+	/**
+	 * Stops the compression threads, they are started again if needed
+	 */
+	public synchronized void close() {
+		if(pool != null) pool.shutdown();
+		pool = null;
+	}
+
+	private synchronized ForkJoinPool pool() {
+		if(pool == null) pool = new ForkJoinPool(parallelism);
+		return pool;
+	}
 }
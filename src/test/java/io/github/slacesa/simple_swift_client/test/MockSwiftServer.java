@@ -0,0 +1,830 @@
+package io.github.slacesa.simple_swift_client.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import io.github.slacesa.simpleSwiftClient.resources.AuthMessage;
+import io.github.slacesa.simpleSwiftClient.resources.PolicyRetrievalStates;
+import io.github.slacesa.simpleSwiftClient.resources.SwiftConfig;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A configurable Keystone v3 and Swift stand-in, to exercise and load test the client without a real cluster
+ * Objects are kept in memory, by container. Besides the basic object and container routes, it implements listing pagination
+ * (prefix, marker, end_marker, delimiter, limit), ranged GET, server side copy, Static Large Object manifests, bulk delete, archive extraction, sealed objects
+ * answering 429 with Retry-After until unsealed, and token expiry. Latency, bandwidth and error injection can be set
+ * at any time, they apply to the next requests
+ * @author SLC
+ *
+ */
+public class MockSwiftServer {
+
+	private static final Logger log = Logger.getLogger(MockSwiftServer.class.getName());
+	private static final DateTimeFormatter LAST_MODIFIED = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'000'");
+	private static final DateTimeFormatter HTTP_DATE = DateTimeFormat.forPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'").withZoneUTC();
+
+	private final Vertx vertx;
+	private final SwiftConfig config;
+	private final String accountEndpoint;
+	private final Map<String, NavigableMap<String, StoredObject>> containers = new ConcurrentHashMap<>();
+	private final Map<String, Long> tokens = new ConcurrentHashMap<>();
+	private final AtomicLong requests = new AtomicLong(), injected = new AtomicLong(), received = new AtomicLong(), sent = new AtomicLong();
+
+	private HttpServer server;
+	private volatile long minLatency, maxLatency, bandwidth, tokenLifetime = 86400000;
+	private volatile int failureRate, failureStatus = 503, retryAfter, listingLimit = 10000, bulkDeleteLimit = 1000, maxSegments = 1000;
+	private volatile boolean listingLimitAdvertised = true;
+
+	/**
+	 * @param vertx the Vert.x instance the server runs on
+	 * @param config the credentials, endpoints and port to serve, the last element of storage_endpoint is a container
+	 */
+	public MockSwiftServer(Vertx vertx, SwiftConfig config) {
+		this.vertx = vertx;
+		this.config = config;
+		String endpoint = config.getStorage_endpoint();
+		this.accountEndpoint = endpoint.substring(0, endpoint.lastIndexOf('/')+1);
+		container(endpoint.substring(endpoint.lastIndexOf('/')+1));
+	}
+
+	/**
+	 * Starts listening on the config port
+	 * @return a future to this server, once listening
+	 */
+	public Future<MockSwiftServer> start() {
+		return vertx.createHttpServer().requestHandler(this::handle).listen(config.getPort()).map(listening -> {
+			server = listening;
+			log.fine("Mock Swift server listening on " + listening.actualPort());
+			return this;
+		});
+	}
+
+	/**
+	 * Stops listening
+	 * @return a future completed once closed
+	 */
+	public Future<Void> close() {
+		return (server == null)? Future.succeededFuture() : server.close();
+	}
+
+	/**
+	 * Delays every response by a random time between min and max, after the request body is received
+	 * @param min the minimum latency, in milliseconds
+	 * @param max the maximum latency, in milliseconds
+	 * @return this server
+	 */
+	public MockSwiftServer setLatency(long min, long max) {
+		this.minLatency = min;
+		this.maxLatency = Math.max(min, max);
+		return this;
+	}
+
+	/**
+	 * Throttles request and response bodies, each request on its own
+	 * @param bytesPerSecond the bandwidth of a request, 0 for unlimited
+	 * @return this server
+	 */
+	public MockSwiftServer setBandwidth(long bytesPerSecond) {
+		this.bandwidth = bytesPerSecond;
+		return this;
+	}
+
+	/**
+	 * Answers a share of the storage requests with an error status, as an overloaded proxy would
+	 * @param percent the share of requests to fail, in percent
+	 * @param status the status code to answer with, typically 429 or 503
+	 * @param retryAfter the Retry-After header value, in seconds
+	 * @return this server
+	 */
+	public MockSwiftServer setFailures(int percent, int status, int retryAfter) {
+		this.failureRate = percent;
+		this.failureStatus = status;
+		this.retryAfter = retryAfter;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of entries of a listing page, whatever the limit requested, advertised by /info
+	 * @param limit the page size limit, 10000 on Swift
+	 * @return this server
+	 */
+	public MockSwiftServer setListingLimit(int limit) {
+		return setListingLimit(limit, true);
+	}
+
+	/**
+	 * Sets the maximum number of entries of a listing page, whatever the limit requested
+	 * @param limit the page size limit, 10000 on Swift
+	 * @param advertised true to report it in /info as container_listing_limit
+	 * @return this server
+	 */
+	public MockSwiftServer setListingLimit(int limit, boolean advertised) {
+		this.listingLimit = limit;
+		this.listingLimitAdvertised = advertised;
+		return this;
+	}
+
+	/**
+	 * Sets the limits advertised by /info and enforced on bulk deletes and manifests
+	 * @param bulkDeletes the maximum number of deletes per bulk request
+	 * @param segments the maximum number of segments of a manifest
+	 * @return this server
+	 */
+	public MockSwiftServer setLimits(int bulkDeletes, int segments) {
+		this.bulkDeleteLimit = bulkDeletes;
+		this.maxSegments = segments;
+		return this;
+	}
+
+	/**
+	 * Sets the lifetime of the tokens issued next
+	 * @param lifetime the token lifetime, in milliseconds
+	 * @return this server
+	 */
+	public MockSwiftServer setTokenLifetime(long lifetime) {
+		this.tokenLifetime = lifetime;
+		return this;
+	}
+
+	/**
+	 * Revokes every issued token, requests sent with them are rejected with 401
+	 * @return this server
+	 */
+	public MockSwiftServer revokeTokens() {
+		tokens.clear();
+		return this;
+	}
+
+	/**
+	 * Stores an object
+	 * @param container the container name
+	 * @param name the object name
+	 * @param content the object content
+	 * @return this server
+	 */
+	public MockSwiftServer put(String container, String name, Buffer content) {
+		container(container).put(name, new StoredObject(content, "application/octet-stream", null));
+		return this;
+	}
+
+	/**
+	 * Seals an object, it has to be unsealed before it can be downloaded
+	 * The first GET starts unsealing it, GETs answer 429 with the time left in Retry-After until the delay has passed
+	 * @param container the container name
+	 * @param name the object name
+	 * @param delay the retrieval delay, in seconds
+	 * @return this server
+	 */
+	public MockSwiftServer seal(String container, String name, int delay) {
+		StoredObject object = container(container).get(name);
+		if(object != null) {
+			object.retrievalDelay = delay;
+			object.unsealedAt = -1;
+		}
+		return this;
+	}
+
+	/**
+	 * Retrieves an object content, assembling Static Large Objects
+	 * @param container the container name
+	 * @param name the object name
+	 * @return the content, null if not found
+	 */
+	public Buffer content(String container, String name) {
+		StoredObject object = container(container).get(name);
+		return (object == null)? null : content(object);
+	}
+
+	/**
+	 * The names of the objects of a container
+	 * @param container the container name
+	 * @return the object names, in order
+	 */
+	public Set<String> names(String container) {
+		return container(container).keySet();
+	}
+
+	/**
+	 * The number of requests received so far
+	 * @return the request count
+	 */
+	public long requestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * The number of requests answered with an injected failure
+	 * @return the failure count
+	 */
+	public long injectedCount() {
+		return injected.get();
+	}
+
+	/**
+	 * The request body bytes received so far
+	 * @return the received byte count
+	 */
+	public long bytesReceived() {
+		return received.get();
+	}
+
+	/**
+	 * The response body bytes sent so far
+	 * @return the sent byte count
+	 */
+	public long bytesSent() {
+		return sent.get();
+	}
+
+	private NavigableMap<String, StoredObject> container(String name) {
+		return containers.computeIfAbsent(name, k -> new ConcurrentSkipListMap<>());
+	}
+
+	private void handle(HttpServerRequest request) {
+		requests.incrementAndGet();
+		Buffer body = Buffer.buffer();
+		request.handler(chunk -> {
+			body.appendBuffer(chunk);
+			received.addAndGet(chunk.length());
+			if(bandwidth > 0) {
+				request.pause();
+				vertx.setTimer(Math.max(1, chunk.length() * 1000L / bandwidth), timer -> request.resume());
+			}
+		});
+		request.exceptionHandler(err -> log.fine("Request failed: " + err.getMessage()));
+		request.endHandler(v -> {
+			long latency = (maxLatency <= 0)? 0 : ThreadLocalRandom.current().nextLong(minLatency, maxLatency + 1);
+			if(latency <= 0) dispatch(request, body);
+			else vertx.setTimer(latency, timer -> dispatch(request, body));
+		});
+	}
+
+	private void dispatch(HttpServerRequest request, Buffer body) {
+		String path = request.path();
+		HttpServerResponse response = request.response();
+		if(path.equals(config.getAuth_endpoint())) {
+			auth(request, body);
+			return;
+		}
+		if(path.equals("/info")) {
+			JsonObject info = new JsonObject()
+					.put("bulk_delete", new JsonObject().put("max_deletes_per_request", bulkDeleteLimit))
+					.put("bulk_upload", new JsonObject().put("max_containers_per_extraction", 10000).put("max_failed_extractions", 1000))
+					.put("slo", new JsonObject().put("max_manifest_segments", maxSegments));
+			if(listingLimitAdvertised) info.put("swift", new JsonObject().put("container_listing_limit", listingLimit));
+			response.putHeader("Content-Type", "application/json").end(info.encode());
+			return;
+		}
+		Long expires = tokens.get(String.valueOf(request.getHeader("X-Auth-Token")));
+		if(expires == null || expires < System.currentTimeMillis()) {
+			response.setStatusCode(401).end();
+			return;
+		}
+		if(!path.startsWith(accountEndpoint)) {
+			response.setStatusCode(404).end();
+			return;
+		}
+		if(failureRate > 0 && ThreadLocalRandom.current().nextInt(100) < failureRate) {
+			injected.incrementAndGet();
+			response.putHeader("Retry-After", Integer.toString(retryAfter)).setStatusCode(failureStatus).end();
+			return;
+		}
+		String rest = path.substring(accountEndpoint.length());
+		int slash = rest.indexOf('/');
+		if(request.method() == HttpMethod.PUT && request.getParam("extract-archive") != null && slash != 0 && !rest.isEmpty()) {
+			extractArchive(request, rest, body);
+			return;
+		}
+		if(rest.isEmpty()) {
+			if(request.method() == HttpMethod.POST && request.getParam("bulk-delete") != null) bulkDelete(request, body);
+			else response.setStatusCode(405).end();
+		}
+		else if(slash < 0 || slash == rest.length() - 1)
+			containerRequest(request, decode(slash < 0? rest : rest.substring(0, slash)));
+		else objectRequest(request, decode(rest.substring(0, slash)), decode(rest.substring(slash + 1)), body);
+	}
+
+	private void auth(HttpServerRequest request, Buffer body) {
+		JsonObject message;
+		try {
+			message = body.toJsonObject();
+		}
+		catch (Exception e) {
+			message = null;
+		}
+		if(request.method() == HttpMethod.POST && new AuthMessage(config.getUsername(), config.getPassword()).parse().equals(message)) {
+			String token = Long.toHexString(ThreadLocalRandom.current().nextLong()) + Long.toHexString(ThreadLocalRandom.current().nextLong());
+			long expires = System.currentTimeMillis() + tokenLifetime;
+			tokens.put(token, expires);
+			request.response().setStatusCode(201)
+			.putHeader("Content-Type", "application/json")
+			.putHeader("X-Subject-Token", token)
+			.end(new JsonObject().put("token", new JsonObject().put("expires_at", new DateTime(expires).toString())).encode());
+		}
+		else request.response().setStatusCode(401).putHeader("Content-Type", "application/json")
+		.end(new JsonObject().put("error", new JsonObject().put("code", 401).put("message", "The request you have made requires authentication.")).encode());
+	}
+
+	private void containerRequest(HttpServerRequest request, String name) {
+		HttpServerResponse response = request.response();
+		NavigableMap<String, StoredObject> objects = containers.get(name);
+		if(request.method() == HttpMethod.PUT) {
+			boolean created = objects == null;
+			container(name);
+			response.setStatusCode(created? 201 : 202).end();
+			return;
+		}
+		if(objects == null) {
+			response.setStatusCode(404).end();
+			return;
+		}
+		long bytes = 0;
+		for(StoredObject object : objects.values()) bytes += object.length();
+		response.putHeader("X-Container-Object-Count", Integer.toString(objects.size()))
+		.putHeader("X-Container-Bytes-Used", Long.toString(bytes));
+		if(request.method() == HttpMethod.HEAD) response.setStatusCode(204).end();
+		else if(request.method() == HttpMethod.DELETE) {
+			if(!objects.isEmpty()) response.setStatusCode(409).end();
+			else {
+				containers.remove(name);
+				response.setStatusCode(204).end();
+			}
+		}
+		else if(request.method() == HttpMethod.GET) {
+			JsonArray page = list(objects, request);
+			if(page.isEmpty()) response.setStatusCode(204).end();
+			else response.putHeader("Content-Type", "application/json; charset=utf-8").setStatusCode(200).end(page.toBuffer());
+		}
+		else response.setStatusCode(405).end();
+	}
+
+	private JsonArray list(NavigableMap<String, StoredObject> objects, HttpServerRequest request) {
+		String prefix = request.getParam("prefix", "");
+		String marker = request.getParam("marker", "");
+		String endMarker = request.getParam("end_marker");
+		String delimiter = request.getParam("delimiter");
+		int limit = Math.min(listingLimit, Integer.parseInt(request.getParam("limit", Integer.toString(listingLimit))));
+		JsonArray page = new JsonArray();
+		for(Map.Entry<String, StoredObject> entry : objects.tailMap(marker, false).entrySet()) {
+			String name = entry.getKey();
+			if(page.size() >= limit || (endMarker != null && name.compareTo(endMarker) >= 0)) break;
+			if(!name.startsWith(prefix)) {
+				if(name.compareTo(prefix) > 0) break;
+				continue;
+			}
+			int folder = (delimiter == null || delimiter.isEmpty())? -1 : name.indexOf(delimiter, prefix.length());
+			if(folder >= 0) {
+				String subdir = name.substring(0, folder + delimiter.length());
+				if(page.isEmpty() || !subdir.equals(page.getJsonObject(page.size() - 1).getString("subdir")))
+					page.add(new JsonObject().put("subdir", subdir));
+				continue;
+			}
+			StoredObject object = entry.getValue();
+			JsonObject file = new JsonObject()
+					.put("name", name)
+					.put("hash", object.etag)
+					.put("bytes", object.length())
+					.put("content_type", object.contentType)
+					.put("last_modified", LAST_MODIFIED.print(object.lastModified));
+			if(object.retrievalDelay >= 0) {
+				file.put("policy_retrieval_state", object.state().getValue());
+				file.put("policy_retrieval_delay", (int) Math.max(0, object.remaining() / 1000));
+			}
+			page.add(file);
+		}
+		return page;
+	}
+
+	private void objectRequest(HttpServerRequest request, String container, String name, Buffer body) {
+		HttpServerResponse response = request.response();
+		NavigableMap<String, StoredObject> objects = containers.get(container);
+		if(objects == null) {
+			response.setStatusCode(404).end();
+			return;
+		}
+		if(request.method() == HttpMethod.PUT) {
+			put(request, objects, name, body);
+			return;
+		}
+		StoredObject object = objects.get(name);
+		if(object == null) {
+			response.setStatusCode(404).end();
+			return;
+		}
+		if(request.method() == HttpMethod.DELETE) {
+			objects.remove(name);
+			if(object.segments != null && "delete".equals(request.getParam("multipart-manifest")))
+				for(Segment segment : object.segments) remove(segment.path);
+			response.setStatusCode(204).end();
+		}
+		else if(request.method() == HttpMethod.POST) response.setStatusCode(202).end();
+		else if(request.method() == HttpMethod.HEAD) {
+			headers(response, object).putHeader("Content-Length", Long.toString(object.length())).setStatusCode(200).end();
+		}
+		else if(request.method() == HttpMethod.GET) {
+			if(object.segments != null && "get".equals(request.getParam("multipart-manifest"))) {
+				JsonArray manifest = new JsonArray();
+				for(Segment segment : object.segments)
+					manifest.add(new JsonObject().put("name", segment.path).put("hash", segment.etag).put("bytes", segment.size));
+				response.putHeader("Content-Type", "application/json; charset=utf-8").end(manifest.toBuffer());
+				return;
+			}
+			if(object.retrievalDelay >= 0) {
+				if(object.unsealedAt < 0) object.unsealedAt = System.currentTimeMillis() + object.retrievalDelay * 1000L;
+				long remaining = object.remaining();
+				if(remaining > 0) {
+					response.putHeader("Retry-After", Long.toString((remaining + 999) / 1000)).setStatusCode(429).end();
+					return;
+				}
+			}
+			Buffer content = content(object);
+			if(content == null) {
+				response.setStatusCode(409).end();
+				return;
+			}
+			headers(response, object);
+			long[] range = range(request.getHeader("Range"), content.length());
+			if(range == null) send(response.setStatusCode(200), content);
+			else if(range.length == 0) response.putHeader("Content-Range", "bytes */" + content.length()).setStatusCode(416).end();
+			else send(response.setStatusCode(206).putHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + content.length()),
+					content.slice((int) range[0], (int) range[1] + 1));
+		}
+		else response.setStatusCode(405).end();
+	}
+
+	private void put(HttpServerRequest request, NavigableMap<String, StoredObject> objects, String name, Buffer body) {
+		HttpServerResponse response = request.response();
+		String length = request.getHeader("Content-Length");
+		if(length != null && Long.parseLong(length) != body.length()) {
+			response.setStatusCode(400).end();
+			return;
+		}
+		String contentType = request.getHeader("Content-Type");
+		if(contentType == null) contentType = "application/octet-stream";
+		String copyFrom = request.getHeader("X-Copy-From");
+		if(copyFrom != null) {
+			StoredObject source = resolve(decode(copyFrom));
+			Buffer content = (source == null)? null : content(source);
+			if(content == null) response.setStatusCode(404).end();
+			else {
+				StoredObject copy = new StoredObject(content, source.contentType, null);
+				objects.put(name, copy);
+				response.setStatusCode(201).putHeader("Etag", copy.etag).end();
+			}
+			return;
+		}
+		if("put".equals(request.getParam("multipart-manifest"))) {
+			List<Segment> segments = new ArrayList<>();
+			StringBuilder errors = new StringBuilder();
+			try {
+				JsonArray manifest = body.toJsonArray();
+				if(manifest.isEmpty() || manifest.size() > maxSegments) errors.append("Invalid segment count ").append(manifest.size()).append('\n');
+				for(int i = 0; i < manifest.size(); i++) {
+					JsonObject entry = manifest.getJsonObject(i);
+					Segment segment = new Segment(entry.getString("path"), entry.getString("etag"), entry.getLong("size_bytes"));
+					StoredObject stored = resolve(segment.path);
+					if(stored == null) errors.append(segment.path).append(", 404 Not Found\n");
+					else if(segment.etag != null && !segment.etag.equals(stored.etag)) errors.append(segment.path).append(", Etag Mismatch\n");
+					else if(segment.size != null && segment.size != stored.length()) errors.append(segment.path).append(", Size Mismatch\n");
+					else segments.add(new Segment(segment.path, stored.etag, stored.length()));
+				}
+			}
+			catch (Exception e) {
+				errors.append("Invalid manifest\n");
+			}
+			if(errors.length() > 0) {
+				response.setStatusCode(400).end(errors.toString());
+				return;
+			}
+			StoredObject manifest = new StoredObject(null, contentType, segments);
+			objects.put(name, manifest);
+			response.setStatusCode(201).putHeader("Etag", "\"" + manifest.etag + "\"").end();
+			return;
+		}
+		StoredObject object = new StoredObject(body, contentType, null);
+		String expected = request.getHeader("Etag");
+		if(expected != null && !expected.equalsIgnoreCase(object.etag)) {
+			response.setStatusCode(422).end();
+			return;
+		}
+		objects.put(name, object);
+		response.setStatusCode(201).putHeader("Etag", object.etag).end();
+	}
+
+	private void bulkDelete(HttpServerRequest request, Buffer body) {
+		int deleted = 0, notFound = 0;
+		String[] paths = body.toString().split("\n");
+		if(paths.length > bulkDeleteLimit) {
+			request.response().setStatusCode(413).end();
+			return;
+		}
+		for(String path : paths) {
+			if(path.trim().isEmpty()) continue;
+			if(remove(decode(path.trim()))) deleted++;
+			else notFound++;
+		}
+		request.response().setStatusCode(200).putHeader("Content-Type", "application/json")
+		.end(new JsonObject()
+				.put("Number Deleted", deleted)
+				.put("Number Not Found", notFound)
+				.put("Response Status", "200 OK")
+				.put("Errors", new JsonArray()).encode());
+	}
+
+	/**
+	 * Expands a tar archive (ustar, with PAX path and size records), optionally gzipped, into one object per regular file
+	 * Names longer than 1024 characters are reported as errors, as by Swift
+	 */
+	private void extractArchive(HttpServerRequest request, String rest, Buffer body) {
+		int slash = rest.indexOf('/');
+		String container = decode((slash < 0)? rest : rest.substring(0, slash));
+		String prefix = (slash < 0 || slash == rest.length() - 1)? "" : decode(rest.substring(slash + 1)) + "/";
+		NavigableMap<String, StoredObject> objects = containers.get(container);
+		String format = request.getParam("extract-archive");
+		if(objects == null) {
+			request.response().setStatusCode(404).end();
+			return;
+		}
+		byte[] tar;
+		try {
+			if(format.equals("tar")) tar = body.getBytes();
+			else if(format.equals("tar.gz")) {
+				ByteArrayOutputStream expanded = new ByteArrayOutputStream();
+				try(InputStream in = new GZIPInputStream(new ByteArrayInputStream(body.getBytes()))) {
+					byte[] buffer = new byte[65536];
+					int read;
+					while((read = in.read(buffer)) > 0) expanded.write(buffer, 0, read);
+				}
+				tar = expanded.toByteArray();
+			}
+			else {
+				request.response().setStatusCode(400).end("Unsupported archive format");
+				return;
+			}
+		}
+		catch (IOException e) {
+			request.response().setStatusCode(400).end("Invalid archive");
+			return;
+		}
+		int created = 0;
+		JsonArray errors = new JsonArray();
+		String paxPath = null;
+		long paxSize = -1;
+		for(int position = 0; position + 512 <= tar.length;) {
+			if(tar[position] == 0) break;
+			String name = field(tar, position, 100);
+			String namePrefix = field(tar, position + 345, 155);
+			if(!namePrefix.isEmpty()) name = namePrefix + "/" + name;
+			long size = (paxSize >= 0)? paxSize : Long.parseLong(field(tar, position + 124, 12).trim(), 8);
+			char type = (char) tar[position + 156];
+			int data = position + 512;
+			position = data + (int) ((size + 511) / 512 * 512);
+			if(type == 'x') {
+				for(int start = data; start < data + size;) {
+					int space = start;
+					while(tar[space] != ' ') space++;
+					int length = Integer.parseInt(new String(tar, start, space - start, StandardCharsets.US_ASCII));
+					String record = new String(tar, space + 1, start + length - space - 2, StandardCharsets.UTF_8);
+					start += length;
+					if(record.startsWith("path=")) paxPath = record.substring(5);
+					else if(record.startsWith("size=")) paxSize = Long.parseLong(record.substring(5));
+				}
+				continue;
+			}
+			if(paxPath != null) name = paxPath;
+			paxPath = null;
+			paxSize = -1;
+			if(type != '0' && type != 0) continue;
+			String objectName = prefix + name;
+			if(objectName.length() > 1024) errors.add(new JsonArray().add(encode(accountEndpoint + container + "/" + objectName)).add("400 Bad Request"));
+			else {
+				objects.put(objectName, new StoredObject(Buffer.buffer(Arrays.copyOfRange(tar, data, data + (int) size)), "application/octet-stream", null));
+				created++;
+			}
+		}
+		request.response().setStatusCode(200).putHeader("Content-Type", "application/json")
+		.end(new JsonObject()
+				.put("Number Files Created", created)
+				.put("Response Status", errors.isEmpty()? "201 Created" : "400 Bad Request")
+				.put("Response Body", "")
+				.put("Errors", errors).encode());
+	}
+
+	private static String field(byte[] header, int offset, int length) {
+		int end = offset;
+		while(end < offset + length && header[end] != 0) end++;
+		return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Finds an object from its /container/object path
+	 */
+	private StoredObject resolve(String path) {
+		String[] parts = split(path);
+		if(parts == null || !containers.containsKey(parts[0])) return null;
+		return containers.get(parts[0]).get(parts[1]);
+	}
+
+	private boolean remove(String path) {
+		String[] parts = split(path);
+		if(parts == null || !containers.containsKey(parts[0])) return false;
+		return containers.get(parts[0]).remove(parts[1]) != null;
+	}
+
+	private static String[] split(String path) {
+		String trimmed = path.startsWith("/")? path.substring(1) : path;
+		int slash = trimmed.indexOf('/');
+		return (slash <= 0)? null : new String[] {trimmed.substring(0, slash), trimmed.substring(slash + 1)};
+	}
+
+	private Buffer content(StoredObject object) {
+		if(object.segments == null) return object.content;
+		Buffer content = Buffer.buffer((int) object.length());
+		for(Segment segment : object.segments) {
+			StoredObject stored = resolve(segment.path);
+			if(stored == null) return null;
+			content.appendBuffer(content(stored));
+		}
+		return content;
+	}
+
+	private HttpServerResponse headers(HttpServerResponse response, StoredObject object) {
+		response.putHeader("Etag", (object.segments == null)? object.etag : "\"" + object.etag + "\"")
+		.putHeader("Content-Type", object.contentType)
+		.putHeader("Last-Modified", HTTP_DATE.print(object.lastModified))
+		.putHeader("Accept-Ranges", "bytes");
+		if(object.segments != null) response.putHeader("X-Static-Large-Object", "True");
+		return response;
+	}
+
+	/**
+	 * Parses a single byte range
+	 * @return null to send the whole content, an empty array if not satisfiable, the first and last positions otherwise
+	 */
+	private static long[] range(String header, long length) {
+		if(header == null || !header.startsWith("bytes=") || header.contains(",")) return null;
+		String[] bounds = header.substring("bytes=".length()).split("-", -1);
+		try {
+			long start, end;
+			if(bounds[0].isEmpty()) {
+				start = Math.max(0, length - Long.parseLong(bounds[1]));
+				end = length - 1;
+			}
+			else {
+				start = Long.parseLong(bounds[0]);
+				end = bounds[1].isEmpty()? length - 1 : Math.min(Long.parseLong(bounds[1]), length - 1);
+			}
+			if(start >= length || start > end) return new long[0];
+			return new long[] {start, end};
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Sends a response body, in chunks paced by the bandwidth if it is set
+	 */
+	private void send(HttpServerResponse response, Buffer content) {
+		response.putHeader("Content-Length", Integer.toString(content.length()));
+		if(bandwidth <= 0) {
+			sent.addAndGet(content.length());
+			response.end(content);
+			return;
+		}
+		int chunk = (int) Math.max(1024, Math.min(65536, bandwidth / 20));
+		sendChunk(response, content, 0, chunk);
+	}
+
+	private void sendChunk(HttpServerResponse response, Buffer content, int offset, int chunk) {
+		if(response.closed()) return;
+		int end = Math.min(content.length(), offset + chunk);
+		sent.addAndGet(end - offset);
+		if(end == content.length()) {
+			response.end(content.slice(offset, end));
+			return;
+		}
+		response.write(content.slice(offset, end));
+		vertx.setTimer(Math.max(1, (end - offset) * 1000L / bandwidth), timer -> {
+			if(response.writeQueueFull()) response.drainHandler(v -> sendChunk(response, content, end, chunk));
+			else sendChunk(response, content, end, chunk);
+		});
+	}
+
+	private static String encode(String path) {
+		try {
+			return URLEncoder.encode(path, "UTF-8").replace("+", "%20").replace("%2F", "/");
+		}
+		catch (UnsupportedEncodingException e) {
+			return path;
+		}
+	}
+
+	private static String decode(String path) {
+		try {
+			return URLDecoder.decode(path.replace("+", "%2B"), "UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			return path;
+		}
+	}
+
+	private static String md5(Buffer content) {
+		try {
+			StringBuilder hex = new StringBuilder();
+			for(byte b : MessageDigest.getInstance("MD5").digest(content.getBytes()))
+				hex.append(String.format("%02x", b));
+			return hex.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	private static class Segment {
+		private final String path, etag;
+		private final Long size;
+
+		private Segment(String path, String etag, Long size) {
+			this.path = path;
+			this.etag = etag;
+			this.size = size;
+		}
+	}
+
+	private static class StoredObject {
+		private final Buffer content;
+		private final String contentType, etag;
+		private final List<Segment> segments;
+		private final DateTime lastModified = DateTime.now();
+		private final long length;
+		private volatile int retrievalDelay = -1;
+		private volatile long unsealedAt = -1;
+
+		private StoredObject(Buffer content, String contentType, List<Segment> segments) {
+			this.content = content;
+			this.contentType = contentType;
+			this.segments = segments;
+			if(segments == null) {
+				this.etag = md5(content);
+				this.length = content.length();
+			}
+			else {
+				// Static Large Objects ETag: MD5 of the concatenated segment ETags
+				StringBuilder etags = new StringBuilder();
+				long total = 0;
+				for(Segment segment : segments) {
+					etags.append(segment.etag);
+					total += segment.size;
+				}
+				this.etag = md5(Buffer.buffer(etags.toString()));
+				this.length = total;
+			}
+		}
+
+		private long length() {
+			return length;
+		}
+
+		private long remaining() {
+			return (unsealedAt < 0)? retrievalDelay * 1000L : unsealedAt - System.currentTimeMillis();
+		}
+
+		private PolicyRetrievalStates state() {
+			if(unsealedAt < 0) return PolicyRetrievalStates.SEALED;
+			return (remaining() > 0)? PolicyRetrievalStates.UNSEALING : PolicyRetrievalStates.UNSEALED;
+		}
+	}
+}
@@ -3,6 +3,17 @@ package io.github.slacesa.simple_swift_client.test;
 
 
 
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.logging.Logger;
 
 import org.junit.jupiter.api.AfterAll;
@@ -11,18 +22,43 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import io.github.slacesa.simpleSwiftClient.DedupStore;
+import io.github.slacesa.simpleSwiftClient.EndpointGuard;
+import io.github.slacesa.simpleSwiftClient.ExponentialBackoff;
+import io.github.slacesa.simpleSwiftClient.RetryPolicy;
+import io.github.slacesa.simpleSwiftClient.ShardedSwiftClient;
 import io.github.slacesa.simpleSwiftClient.SimpleSwiftClient;
+import io.github.slacesa.simpleSwiftClient.UploadStream;
+import io.github.slacesa.simpleSwiftClient.resources.BackupManifest;
+import io.github.slacesa.simpleSwiftClient.resources.DedupRecipe;
+import io.github.slacesa.simpleSwiftClient.resources.PolicyRetrievalStates;
 import io.github.slacesa.simpleSwiftClient.resources.SwiftConfig;
 import io.github.slacesa.simpleSwiftClient.resources.SwiftFile;
+import io.github.slacesa.simpleSwiftClient.resources.SwiftSegment;
+import io.github.slacesa.simpleSwiftClient.resources.UploadResult;
+import io.github.slacesa.simpleSwiftClient.resources.UploadStats;
+import io.github.slacesa.zipper.Zipper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileSystemException;
+import io.vertx.core.file.OpenOptions;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.impl.NoStackTraceThrowable;
 import io.vertx.core.json.Json;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.junit5.Checkpoint;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
+import net.lingala.zip4j.ZipFile;
+import net.lingala.zip4j.model.FileHeader;
+import net.lingala.zip4j.model.enums.CompressionMethod;
 
 /**
  * Lunches a dummy web server and then performs authentication, and a few actions with storage.
@@ -97,6 +133,67 @@ public class SimpleSwiftClientTest {
 		});
 	}
 
+	@Test
+	@DisplayName("listFiles")
+	void listFiles(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		Checkpoint all = testContext.checkpoint(1);
+		Checkpoint prefixed = testContext.checkpoint(1);
+		List<SwiftFile> allFiles = new ArrayList<>();
+		List<SwiftFile> prefixedFiles = new ArrayList<>();
+
+		client.listFiles()
+		.exceptionHandler(testContext::failNow)
+		.endHandler(v -> {
+			if(allFiles.size() == 4 && allFiles.get(0).getName().equals("archived.txt")) all.flag();
+			else testContext.failNow(new NoStackTraceThrowable("Unexpected listing " + allFiles.size()));
+		})
+		.handler(allFiles::add);
+
+		client.listFiles("no_", "_").exceptionHandler(testContext::failNow)
+		.endHandler(v -> {
+			if(prefixedFiles.size() == 1 && "no_policy_".equals(prefixedFiles.get(0).getSubdir())) prefixed.flag();
+			else testContext.failNow(new NoStackTraceThrowable("Unexpected listing " + prefixedFiles.size()));
+		})
+		.handler(prefixedFiles::add);
+	}
+
+	@Test
+	@DisplayName("metadataCache")
+	void metadataCache(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		client.getFileList().compose(files ->
+		client.uploadFile("cached.txt", Buffer.buffer("cached"))).compose(isSent ->
+		client.getFileList()).compose(files -> {
+			if(files.stream().noneMatch(file -> "cached.txt".equals(file.getName())))
+				return Future.failedFuture(new NoStackTraceThrowable("Upload not written through"));
+			return client.deleteFile("cached.txt");
+		}).compose(isDeleted ->
+		client.getFileList()).onComplete(ar -> {
+			if(ar.succeeded() && ar.result().stream().noneMatch(file -> "cached.txt".equals(file.getName()))) testContext.completeNow();
+			else if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Delete not written through"));
+			else testContext.failNow(ar.cause());
+		});
+	}
+
+	@Test
+	@DisplayName("getFileInfo")
+	void getFileInfo(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		Checkpoint notFound = testContext.checkpoint(1);
+		Checkpoint success = testContext.checkpoint(1);
+
+		client.getFileInfo("notfound.txt").onComplete(ar ->{
+			if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Expected to fail, file not found"));
+			else if(ar.cause().getMessage().toLowerCase().contains("file not found"))
+				notFound.flag();
+			else testContext.failNow(ar.cause());
+		});
+
+		client.getFileInfo("existing.txt").onComplete(ar ->{
+			if(ar.succeeded() && ar.result().getBytes() != null && ar.result().getLast_modified() != null) success.flag();
+			else if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Unexpected file information"));
+			else testContext.failNow(ar.cause());
+		});
+	}
+
 	@Test
 	@DisplayName("downloadFile")
 	void downloadFile(Vertx vertx, VertxTestContext testContext) throws Throwable {
@@ -124,6 +221,56 @@ public class SimpleSwiftClientTest {
 		});
 	}
 
+	@Test
+	@DisplayName("downloadToFile")
+	void downloadToFile(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		Checkpoint notFound = testContext.checkpoint(1);
+		Checkpoint sealed = testContext.checkpoint(1);
+		Checkpoint success = testContext.checkpoint(1);
+
+		client.downloadToFile("notfound.txt", "target/notfound.txt").onComplete(ar ->{
+			if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Expected to fail, file not found"));
+			else if(ar.cause().getMessage().toLowerCase().contains("file not found") && !vertx.fileSystem().existsBlocking("target/notfound.txt"))
+				notFound.flag();
+			else testContext.failNow(ar.cause());
+		});
+
+		client.downloadToFile("sealed.txt", "target/sealed.txt").onComplete(ar ->{
+			if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Expected to fail, file sealed"));
+			else if(ar.cause().getMessage().toLowerCase().contains("try again"))
+				sealed.flag();
+			else testContext.failNow(ar.cause());
+		});
+
+		client.downloadToFile("existing.txt", "target/existing.txt").onComplete(ar ->{
+			if(ar.succeeded() && vertx.fileSystem().propsBlocking("target/existing.txt").size() == 100) success.flag();
+			else if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Unexpected file size"));
+			else testContext.failNow(ar.cause());
+		});
+	}
+
+	@Test
+	@DisplayName("downloadLargeFile")
+	void downloadLargeFile(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		Checkpoint sealed = testContext.checkpoint(1);
+		Checkpoint success = testContext.checkpoint(1);
+
+		client.downloadLargeFile("sealed.txt", "target/sealed_ranges.txt", 16).onComplete(ar ->{
+			if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Expected to fail, file sealed"));
+			else if(ar.cause().getMessage().toLowerCase().contains("try again"))
+				sealed.flag();
+			else testContext.failNow(ar.cause());
+		});
+
+		client.downloadLargeFile("existing.txt", "target/existing_ranges.txt", 16).compose(v ->
+		client.downloadFile("existing.txt").compose(expected ->
+		vertx.fileSystem().readFile("target/existing_ranges.txt").map(expected::equals))).onComplete(ar ->{
+			if(ar.succeeded() && ar.result()) success.flag();
+			else if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Assembled file differs"));
+			else testContext.failNow(ar.cause());
+		});
+	}
+
 	@Test
 	@DisplayName("unsealFile")
 	void unsealFile(Vertx vertx, VertxTestContext testContext) throws Throwable {
@@ -150,6 +297,32 @@ public class SimpleSwiftClientTest {
 		});
 	}
 
+	@Test
+	@DisplayName("unsealAndDownload")
+	void unsealAndDownload(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig expiring = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		expiring.setUnseal_ttl(1);
+		client.unsealAndDownload(Arrays.asList("archived.txt", "notfound.txt"), "target").onComplete(ar -> {
+			// A failed file is not tracked anymore, it is requested again next time
+			if(ar.succeeded() && ar.result().get("archived.txt") && !ar.result().get("notfound.txt")
+					&& client.unsealer().getState("archived.txt") == PolicyRetrievalStates.UNSEALED
+					&& client.unsealer().getState("notfound.txt") == null
+					&& vertx.fileSystem().existsBlocking("target/archived.txt"))
+				SimpleSwiftClient.create(vertx, expiring).onComplete(created -> {
+					SimpleSwiftClient other = created.result();
+					other.unsealer().unseal("archived.txt").onComplete(unsealed -> vertx.setTimer(1100, timer -> {
+						PolicyRetrievalStates expired = other.unsealer().getState("archived.txt");
+						other.close();
+						if(unsealed.failed()) testContext.failNow(unsealed.cause());
+						else if(expired != null) testContext.failNow(new NoStackTraceThrowable("Unsealed file still tracked after its time to live"));
+						else testContext.completeNow();
+					}));
+				});
+			else if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Unexpected results " + ar.result()));
+			else testContext.failNow(ar.cause());
+		});
+	}
+
 	@Test
 	@DisplayName("uploadFile")
 	void uploadFile(Vertx vertx, VertxTestContext testContext) throws Throwable {
@@ -169,6 +342,54 @@ public class SimpleSwiftClientTest {
 		});
 	}
 
+	@Test
+	@DisplayName("uploadFiles")
+	void uploadFiles(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		List<String> filenames = Arrays.asList("src/test/data/testconfig.json", "src/test/data/notfound.json", "src/test/data/testsample.json");
+		List<UploadResult> results = new ArrayList<>();
+		UploadStream upload = client.uploadFiles(filenames);
+		upload.exceptionHandler(testContext::failNow).endHandler(v -> {
+			UploadStats stats = upload.stats();
+			if(results.size() != 3 || stats.getSucceeded() != 2 || stats.getFailed() != 1 || stats.getIn_flight() != 0)
+				testContext.failNow(new NoStackTraceThrowable("Unexpected stats " + stats));
+			else if(results.stream().filter(result -> !result.isSuccess()).noneMatch(result -> result.getName().equals("src/test/data/notfound.json")))
+				testContext.failNow(new NoStackTraceThrowable("Missing file not reported"));
+			else testContext.completeNow();
+		});
+		// Results are consumed one at a time, after the uploads have been launched
+		upload.pause().handler(result -> {
+			results.add(result);
+			vertx.setTimer(10, id -> upload.fetch(1));
+		});
+		vertx.setTimer(100, id -> upload.fetch(1));
+	}
+
+	@Test
+	@DisplayName("uploadLargeFile")
+	void uploadLargeFile(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		String largeFilePath = "target/large_upload.bin";
+		vertx.fileSystem().writeFile(largeFilePath, Buffer.buffer(new byte[4 * 1024 * 1024 + 17])).compose(v ->
+		client.uploadFile(largeFilePath)).onComplete(ar -> {
+			vertx.fileSystem().delete(largeFilePath);
+			if(ar.succeeded() && ar.result()) testContext.completeNow();
+			else if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Not the desired status code"));
+			else testContext.failNow(ar.cause());
+		});
+	}
+
+	@Test
+	@DisplayName("uploadSegmentedFile")
+	void uploadSegmentedFile(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		String largeFilePath = "target/segmented_upload.bin";
+		vertx.fileSystem().writeFile(largeFilePath, Buffer.buffer(new byte[4 * 1024 * 1024 + 17])).compose(v ->
+		client.uploadLargeFile(largeFilePath, 1024 * 1024)).onComplete(ar -> {
+			vertx.fileSystem().delete(largeFilePath);
+			if(ar.succeeded() && ar.result()) testContext.completeNow();
+			else if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Segmented upload failed"));
+			else testContext.failNow(ar.cause());
+		});
+	}
+
 	@Test
 	@DisplayName("deleteFile")
 	void deleteFile(Vertx vertx, VertxTestContext testContext) throws Throwable {
@@ -188,6 +409,355 @@ public class SimpleSwiftClientTest {
 		});
 	}
 
+	@Test
+	@DisplayName("deleteFiles")
+	void deleteFiles(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		List<String> filenames = Arrays.asList("existing.txt", "sealed.txt", "notfound.txt", "folder/other file.txt", "last.txt");
+		client.deleteFiles(filenames).onComplete(ar -> {
+			if(ar.succeeded() && ar.result().keySet().containsAll(filenames) && !ar.result().containsValue(false)) testContext.completeNow();
+			else if(ar.succeeded()) testContext.failNow(new NoStackTraceThrowable("Unexpected results " + ar.result()));
+			else testContext.failNow(ar.cause());
+		});
+	}
+
+	@Test
+	@DisplayName("tokenRefresh")
+	void tokenRefresh(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		int authCount = SimpleSwiftTestServer.authCount();
+		SimpleSwiftTestServer.revokeToken();
+		List<Future<Integer>> requests = new ArrayList<>();
+		for(int i = 0; i < 5; i++) requests.add(client.unsealFile("existing.txt"));
+		CompositeFuture.all(new ArrayList<>(requests)).onComplete(ar -> {
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(SimpleSwiftTestServer.authCount() != authCount + 1)
+				testContext.failNow(new NoStackTraceThrowable("Expected a single authentication, got " + (SimpleSwiftTestServer.authCount() - authCount)));
+			else testContext.completeNow();
+		});
+	}
+
+	@Test
+	@DisplayName("tokenConfig")
+	void tokenConfig(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig same = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		SwiftConfig wrong = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		wrong.setPassword("wrongPassword");
+		// The second retrieval is forced while the first one is in flight: it must use its own credentials
+		Future<SimpleSwiftClient> first = SimpleSwiftClient.retrieveClient(same);
+		Future<SimpleSwiftClient> second = SimpleSwiftClient.retrieveClient(wrong);
+		CompositeFuture.join(first, second).onComplete(both -> SimpleSwiftClient.retrieveClient(config).onComplete(restored -> {
+			if(first.failed() || second.succeeded())
+				testContext.failNow(new NoStackTraceThrowable("Retrieval reused the request sent with the previous credentials"));
+			else if(restored.failed()) testContext.failNow(restored.cause());
+			else testContext.completeNow();
+		}));
+	}
+
+	@Test
+	@DisplayName("revokedStream")
+	void revokedStream(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig mocked = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		mocked.setPort(5010);
+		mocked.setStorage_endpoint("/v1/AUTH_test/backups");
+		mocked.setToken_check_age(500);
+		MockSwiftServer mock = new MockSwiftServer(vertx, mocked);
+		String folder = "src/test/data";
+		mock.start().compose(started -> SimpleSwiftClient.create(vertx, mocked)).compose(other -> {
+			// A token older than token_check_age is checked before the archive is streamed, and replaced
+			Promise<Void> idle = Promise.promise();
+			vertx.setTimer(600, timer -> idle.complete());
+			return idle.future().compose(v -> {
+				mock.revokeTokens();
+				return other.backupFolder(folder, "testPassword");
+			}).compose(v -> other.uploadFile("used.txt", Buffer.buffer("used"))).compose(isSent -> {
+				// A token accepted just now is not checked: the archive is rejected with the original failure, not sent twice
+				mock.revokeTokens();
+				return other.backupFolder(folder, "testPassword").transform(ar -> ar.succeeded() || !ar.cause().getMessage().contains("401")?
+						Future.<Void>failedFuture(new NoStackTraceThrowable("Unexpected failure " + ar.cause())) : other.backupFolder(folder, "testPassword"));
+			}).onComplete(v -> other.close());
+		}).onComplete(ar -> {
+			mock.close();
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(!mock.names("backups").contains("data.zip")) testContext.failNow(new NoStackTraceThrowable("Archive not stored"));
+			else testContext.completeNow();
+		});
+	}
+
+	@Test
+	@DisplayName("independentClients")
+	void independentClients(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SimpleSwiftClient.create(vertx, config).onComplete(ar -> {
+			if(ar.failed() || ar.result() == client) {
+				testContext.failNow(ar.failed()? ar.cause() : new NoStackTraceThrowable("Singleton returned"));
+				return;
+			}
+			SimpleSwiftClient other = ar.result();
+			SimpleSwiftClient container = other.container("storage");
+			int authCount = SimpleSwiftTestServer.authCount();
+			CompositeFuture.all(container.unsealFile("existing.txt"), other.unsealFile("existing.txt")).onComplete(res -> {
+				container.close();
+				if(res.failed()) testContext.failNow(res.cause());
+				else if(SimpleSwiftTestServer.authCount() != authCount)
+					testContext.failNow(new NoStackTraceThrowable("Container client authenticated again"));
+				else other.unsealFile("existing.txt").onComplete(after -> {
+					other.close();
+					if(after.succeeded()) testContext.completeNow();
+					else testContext.failNow(after.cause());
+				});
+			});
+		});
+	}
+
+	@Test
+	@DisplayName("shardedClient")
+	void shardedClient(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		// Both shards point to the single test container: routing must be stable and the merged listing must not repeat names
+		ShardedSwiftClient sharded = ShardedSwiftClient.containers(vertx, client, Arrays.asList("storage", "storage"));
+		if(sharded.shard("existing.txt") != sharded.shard("existing.txt")) testContext.failNow(new NoStackTraceThrowable("Unstable routing"));
+		List<String> expected = new ArrayList<>();
+		List<String> merged = new ArrayList<>();
+		client.listFiles().handler(file -> expected.add(file.getName())).exceptionHandler(testContext::failNow).endHandler(v ->
+		sharded.listFiles().handler(file -> merged.add(file.getName())).exceptionHandler(testContext::failNow).endHandler(w ->
+		sharded.uploadFile("existing.txt", Buffer.buffer("content")).onComplete(ar -> {
+			if(ar.failed() || !ar.result()) testContext.failNow(new NoStackTraceThrowable("Upload failed"));
+			else if(!merged.equals(expected)) testContext.failNow(new NoStackTraceThrowable("Unexpected listing " + merged));
+			else testContext.completeNow();
+		})));
+	}
+
+	@Test
+	@DisplayName("mergedListing")
+	void mergedListing(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig mocked = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		mocked.setPort(5008);
+		mocked.setStorage_endpoint("/v1/AUTH_test/first");
+		// Uneven latency: shards answer out of order, and a shard ends while its last entry still waits to be merged
+		MockSwiftServer mock = new MockSwiftServer(vertx, mocked).setLatency(0, 100);
+		for(String name : Arrays.asList("b", "e")) mock.put("first", name, Buffer.buffer(name));
+		for(String name : Arrays.asList("a", "c", "d", "f")) mock.put("second", name, Buffer.buffer(name));
+		List<String> expected = Arrays.asList("a", "b", "c", "d", "e", "f");
+		mock.start().compose(started -> SimpleSwiftClient.create(vertx, mocked)).compose(other -> {
+			ShardedSwiftClient sharded = ShardedSwiftClient.containers(vertx, other, Arrays.asList("first", "second"));
+			Future<Void> runs = Future.succeededFuture();
+			for(int i = 0; i < 20; i++) runs = runs.compose(v -> {
+				Promise<Void> listed = Promise.promise();
+				List<String> merged = new ArrayList<>();
+				sharded.listFiles().handler(file -> merged.add(file.getName())).exceptionHandler(listed::tryFail).endHandler(end -> {
+					if(merged.equals(expected)) listed.tryComplete();
+					else listed.tryFail(new NoStackTraceThrowable("Unexpected listing " + merged));
+				});
+				return listed.future();
+			});
+			return runs.onComplete(v -> other.close());
+		}).onComplete(ar -> {
+			mock.close();
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else testContext.completeNow();
+		});
+	}
+
+	@Test
+	@DisplayName("listingLimit")
+	void listingLimit(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig mocked = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		mocked.setPort(5009);
+		mocked.setStorage_endpoint("/v1/AUTH_test/backups");
+		mocked.setList_page_size(10);
+		// The cluster serves shorter pages than requested: a short page must not end the listing
+		MockSwiftServer mock = new MockSwiftServer(vertx, mocked).setListingLimit(3);
+		List<String> expected = new ArrayList<>();
+		for(int i = 0; i < 8; i++) {
+			expected.add("file-" + i);
+			mock.put("backups", "file-" + i, Buffer.buffer("content " + i));
+		}
+		mock.start().compose(started -> listNames(vertx, mocked, false)).compose(advertised -> {
+			if(!advertised.equals(expected)) return Future.failedFuture(new NoStackTraceThrowable("Unexpected listing " + advertised));
+			mock.setListingLimit(3, false);
+			// Consumed one file at a time: pages must follow the demand
+			return listNames(vertx, mocked, true);
+		}).onComplete(ar -> {
+			mock.close();
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(!ar.result().equals(expected)) testContext.failNow(new NoStackTraceThrowable("Unexpected listing " + ar.result()));
+			else testContext.completeNow();
+		});
+	}
+
+	/**
+	 * Lists the names of the files of a container with a new client
+	 * @param fetched whether the listing is paused and files fetched one by one
+	 */
+	private static Future<List<String>> listNames(Vertx vertx, SwiftConfig config, boolean fetched) {
+		return SimpleSwiftClient.create(vertx, config).compose(other -> {
+			Promise<List<String>> listed = Promise.promise();
+			List<String> names = new ArrayList<>();
+			ReadStream<SwiftFile> files = other.listFiles();
+			if(fetched) files.pause();
+			files.handler(file -> {
+				names.add(file.getName());
+				if(fetched) vertx.setTimer(1, id -> files.fetch(1));
+			}).exceptionHandler(listed::tryFail).endHandler(v -> listed.tryComplete(names));
+			if(fetched) files.fetch(1);
+			return listed.future().onComplete(v -> other.close());
+		});
+	}
+
+	@Test
+	@DisplayName("retryPolicy")
+	void retryPolicy(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		ExponentialBackoff policy = new ExponentialBackoff(1, 10, 3, 10);
+		if(policy.retryDelay(1, new FileSystemException(new NoSuchFileException("missing/path")), true) >= 0
+				|| policy.retryDelay(1, new IOException("ETag mismatch"), true) >= 0
+				|| policy.retryDelay(1, new ConnectException("Connection refused"), true) < 0) {
+			testContext.failNow(new NoStackTraceThrowable("Local failures must not be retried, network failures must"));
+			return;
+		}
+		SimpleSwiftTestServer.failNext(2, 503);
+		client.downloadFile("existing.txt").compose(content -> {
+			SimpleSwiftTestServer.failNext(1, 500);
+			return client.uploadFile("retried.txt", Buffer.buffer("retried"));
+		}).compose(isSent -> {
+			if(!isSent) return Future.failedFuture(new NoStackTraceThrowable("Upload not retried"));
+			SimpleSwiftTestServer.failNext(1, 503);
+			client.setRetryPolicy(RetryPolicy.none());
+			return client.downloadFile("existing.txt").transform(ar -> ar.failed()?
+					Future.succeededFuture() : Future.failedFuture(new NoStackTraceThrowable("Retried without policy")));
+		}).onComplete(ar -> {
+			client.setRetryPolicy(new ExponentialBackoff(config.getRetry_base_delay(), config.getRetry_max_delay(), config.getRetry_max(), config.getRetry_budget()));
+			if(ar.succeeded()) testContext.completeNow();
+			else testContext.failNow(ar.cause());
+		});
+	}
+
+	@Test
+	@DisplayName("endpointGuard")
+	void endpointGuard(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig guarded = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		guarded.setCircuit_window(2);
+		guarded.setCircuit_open_time(300);
+		SimpleSwiftClient.create(vertx, guarded).onComplete(created -> {
+			SimpleSwiftClient other = created.result().setRetryPolicy(RetryPolicy.none());
+			int limit = other.guard().getLimit();
+			SimpleSwiftTestServer.failNext(2, 503);
+			other.downloadFile("existing.txt").transform(first -> other.downloadFile("existing.txt")).transform(second -> {
+				if(other.guard().getState() != EndpointGuard.State.OPEN || other.guard().getLimit() >= limit)
+					return Future.failedFuture(new NoStackTraceThrowable("Unexpected guard " + other.guard()));
+				return other.downloadFile("existing.txt").transform(open -> open.cause() instanceof EndpointGuard.CircuitOpenException?
+						Future.succeededFuture() : Future.failedFuture(new NoStackTraceThrowable("Circuit did not fail fast")));
+			}).compose(v -> halfOpen(vertx, other, true)).compose(v -> halfOpen(vertx, other, false)).onComplete(ar -> {
+				other.close();
+				if(ar.failed()) testContext.failNow(ar.cause());
+				else if(other.guard().getState() != EndpointGuard.State.CLOSED)
+					testContext.failNow(new NoStackTraceThrowable("Circuit not closed " + other.guard()));
+				else testContext.completeNow();
+			});
+		});
+	}
+
+	/**
+	 * Sends a probe and queued requests once the circuit is half open: a single request must be sent until the probe completes,
+	 * the queued requests fail with the circuit if the probe fails and are sent if it succeeds
+	 */
+	private static Future<Void> halfOpen(Vertx vertx, SimpleSwiftClient client, boolean probeFails) {
+		Promise<Void> result = Promise.promise();
+		vertx.setTimer(400, timer -> {
+			if(probeFails) SimpleSwiftTestServer.failNext(1, 503);
+			List<Future<Buffer>> downloads = new ArrayList<>();
+			for(int i = 0; i < 4; i++) downloads.add(client.downloadFile("existing.txt"));
+			if(client.guard().getState() != EndpointGuard.State.HALF_OPEN || client.guard().getInFlight() != 1 || client.guard().getQueued() != 3) {
+				result.fail(new NoStackTraceThrowable("Queued requests not held " + client.guard()));
+				return;
+			}
+			CompositeFuture.join(new ArrayList<>(downloads)).onComplete(all -> {
+				for(Future<Buffer> queued : downloads.subList(1, downloads.size())) {
+					if(probeFails? !(queued.cause() instanceof EndpointGuard.CircuitOpenException) : queued.failed()) {
+						result.tryFail(new NoStackTraceThrowable("Queued request not " + (probeFails? "rejected" : "sent") + " " + client.guard()));
+						return;
+					}
+				}
+				if(downloads.get(0).succeeded() == probeFails) result.tryFail(new NoStackTraceThrowable("Unexpected probe result"));
+				else result.tryComplete();
+			});
+		});
+		return result.future();
+	}
+
+	@Test
+	@DisplayName("metrics")
+	void metrics(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry(), moved = new SimpleMeterRegistry();
+		String streamedPath = "src/test/data/testconfig.json";
+		long streamedLength = Files.size(Paths.get(streamedPath));
+		int[] expiries = new int[2];
+		SwiftConfig named = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		named.setMetrics_client("second");
+		SimpleSwiftClient.create(vertx, config).compose(other -> SimpleSwiftClient.create(vertx, named).compose(second -> {
+			// Same endpoint and registry: clients named apart keep their own gauges, and leave none behind when moved
+			other.setMeterRegistry(registry);
+			second.setMeterRegistry(registry);
+			expiries[0] = registry.find("swift.client.token.expiry").gauges().size();
+			second.setMeterRegistry(moved);
+			expiries[1] = registry.find("swift.client.token.expiry").gauges().size();
+			second.close();
+			return other.downloadFile("existing.txt").compose(content ->
+			other.uploadFile("metered.txt", Buffer.buffer("metered"))).compose(v ->
+			vertx.fileSystem().open(streamedPath, new OpenOptions().setRead(true).setWrite(false))).compose(file ->
+			other.uploadStream("streamed.txt", file).eventually(v -> file.close())).compose(v ->
+			// A piped download rejected by its expectation is still recorded with its status
+			other.downloadToFile("notfound.txt", "target/metered_missing.txt").transform(missing -> missing.failed()?
+					Future.succeededFuture() : Future.failedFuture(new NoStackTraceThrowable("Missing file downloaded"))));
+		}).onComplete(v -> other.close())).onComplete(ar -> {
+			Timer downloads = registry.find("swift.client.requests").tags("operation", "download", "container", "storage", "status", "200").timer();
+			Timer missing = registry.find("swift.client.requests").tags("operation", "download", "status", "404", "outcome", "CLIENT_ERROR").timer();
+			DistributionSummary sent = registry.find("swift.client.bytes").tags("operation", "upload", "direction", "sent").summary();
+			Gauge expiry = registry.find("swift.client.token.expiry").tags("client", "storage").gauge();
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(downloads == null || downloads.count() != 1 || missing == null || sent == null || sent.totalAmount() != 7 + streamedLength || expiry == null || expiry.value() <= 0)
+				testContext.failNow(new NoStackTraceThrowable("Unexpected meters " + registry.getMetersAsString()));
+			else if(expiries[0] != 2 || expiries[1] != 1 || moved.find("swift.client.token.expiry").gauges().size() != 1)
+				testContext.failNow(new NoStackTraceThrowable("Unexpected gauges " + Arrays.toString(expiries)));
+			else testContext.completeNow();
+		});
+	}
+
+	@Test
+	@DisplayName("mockServer")
+	void mockServer(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig mocked = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		mocked.setPort(5001);
+		mocked.setStorage_endpoint("/v1/AUTH_test/backups");
+		MockSwiftServer mock = new MockSwiftServer(vertx, mocked).setLatency(1, 5).setFailures(10, 503, 0).setListingLimit(3);
+		mock.put("backups", "sealed.bin", Buffer.buffer("sealed")).seal("backups", "sealed.bin", 1);
+		String largeFilePath = "src/test/data/testsample.json";
+		mock.start().compose(started -> SimpleSwiftClient.create(vertx, mocked)).compose(other -> {
+			List<Future<Boolean>> uploads = new ArrayList<>();
+			for(int i = 0; i < 5; i++) uploads.add(other.uploadFile("upload-" + i, Buffer.buffer("content " + i)));
+			return CompositeFuture.all(new ArrayList<>(uploads)).compose(uploaded ->
+			other.uploadLargeFile(largeFilePath, 256)).compose(uploaded -> {
+				Promise<List<SwiftFile>> listed = Promise.promise();
+				List<SwiftFile> files = new ArrayList<>();
+				other.listFiles("upload-", null).exceptionHandler(listed::tryFail).endHandler(v -> listed.tryComplete(files)).handler(files::add);
+				return listed.future();
+			}).compose(files -> {
+				if(files.size() != 5) return Future.failedFuture(new NoStackTraceThrowable("Unexpected listing " + files.size()));
+				return CompositeFuture.all(other.downloadFile(largeFilePath), vertx.fileSystem().readFile(largeFilePath));
+			}).compose(downloaded -> {
+				if(!downloaded.<Buffer>resultAt(0).equals(downloaded.<Buffer>resultAt(1)))
+					return Future.failedFuture(new NoStackTraceThrowable("Static Large Object not assembled"));
+				return other.unsealFile("sealed.bin");
+			}).compose(delay -> {
+				if(delay != 1) return Future.failedFuture(new NoStackTraceThrowable("Unexpected retrieval delay " + delay));
+				Promise<Buffer> unsealed = Promise.promise();
+				vertx.setTimer(1100, timer -> other.downloadFile("sealed.bin").onComplete(unsealed));
+				return unsealed.future();
+			}).onComplete(v -> other.close());
+		}).onComplete(ar -> {
+			mock.close();
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(!ar.result().toString().equals("sealed")) testContext.failNow(new NoStackTraceThrowable("Unexpected content " + ar.result()));
+			else testContext.completeNow();
+		});
+	}
+
 	@Test
 	@DisplayName("backupFolder")
 	void backupFolder(Vertx vertx, VertxTestContext testContext) throws Throwable {
@@ -197,6 +767,335 @@ public class SimpleSwiftClientTest {
 		});
 	}
 
+	@Test
+	@DisplayName("streamedBackup")
+	void streamedBackup(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig mocked = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		mocked.setPort(5002);
+		mocked.setStorage_endpoint("/v1/AUTH_test/backups");
+		mocked.setSegment_size(500);
+		MockSwiftServer mock = new MockSwiftServer(vertx, mocked);
+		String zipPath = "target/streamed_backup.zip";
+		mock.start().compose(started -> SimpleSwiftClient.create(vertx, mocked)).compose(other ->
+		other.backupFolder("src/test/data", "testPassword").compose(v ->
+		other.backupFolder("src/test/missing", "testPassword").transform(missing -> missing.failed()?
+				Future.succeededFuture() : Future.failedFuture(new NoStackTraceThrowable("Missing folder backed up")))).onComplete(v -> other.close())).compose(v -> {
+			if(!mock.names("backups").contains("data.zip_segments/00000001"))
+				return Future.failedFuture(new NoStackTraceThrowable("Backup not segmented " + mock.names("backups")));
+			return vertx.fileSystem().writeFile(zipPath, mock.content("backups", "data.zip"));
+		}).compose(v -> vertx.executeBlocking(promise -> {
+			try(ZipFile zip = new ZipFile(zipPath, "testPassword".toCharArray())) {
+				zip.extractFile("data/testconfig.json", "target/streamed_backup");
+				promise.complete(zip.getFileHeaders().size());
+			}
+			catch (IOException e) {
+				promise.fail(e);
+			}
+		})).onComplete(ar -> {
+			mock.close();
+			vertx.fileSystem().delete(zipPath);
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(!ar.result().equals(3)) testContext.failNow(new NoStackTraceThrowable("Unexpected entries " + ar.result()));
+			else testContext.completeNow();
+		});
+	}
+
+	@Test
+	@DisplayName("failedBackup")
+	void failedBackup(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig mocked = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		mocked.setPort(5006);
+		mocked.setStorage_endpoint("/v1/AUTH_test/backups");
+		mocked.setCircuit_window(2);
+		MockSwiftServer mock = new MockSwiftServer(vertx, mocked);
+		String folder = "target/failed_backup/data";
+		vertx.<Void>executeBlocking(promise -> {
+			try {
+				Files.createDirectories(Paths.get(folder));
+				Files.write(Paths.get(folder, "file.txt"), "content".getBytes());
+				Files.createSymbolicLink(Paths.get(folder, "dangling"), Paths.get("missing"));
+				promise.complete();
+			}
+			catch (IOException e) {
+				promise.fail(e);
+			}
+		}).compose(v -> mock.start()).compose(started -> SimpleSwiftClient.create(vertx, mocked)).compose(other ->
+		other.backupFolder(folder, "testPassword").transform(first -> other.backupFolder(folder, "testPassword").transform(ar -> {
+			if(ar.succeeded() || first.succeeded()) return Future.<Void>failedFuture(new NoStackTraceThrowable("Failed zip backed up"));
+			// Local failures say nothing about the endpoint, they must not open its circuit
+			if(other.guard().getState() != EndpointGuard.State.CLOSED || other.guard().getErrorRate() != 0)
+				return Future.<Void>failedFuture(new NoStackTraceThrowable("Local failure counted against the endpoint " + other.guard()));
+			return Future.<Void>succeededFuture();
+		})).onComplete(v -> other.close())).onComplete(ar -> {
+			mock.close();
+			vertx.fileSystem().deleteRecursive("target/failed_backup", true);
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(mock.names("backups").contains("data.zip")) testContext.failNow(new NoStackTraceThrowable("Truncated zip stored"));
+			else testContext.completeNow();
+		});
+	}
+
+	@Test
+	@DisplayName("parallelZip")
+	void parallelZip(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		String folder = "target/parallel_zip/folder", zipPath = "target/parallel_zip.zip";
+		Zipper zipper = Zipper.create(vertx).setParallelism(4).setCompressionLevel(1).setStoredExtensions(Arrays.asList("jpg"));
+		vertx.<Void>executeBlocking(promise -> {
+			try {
+				Random random = new Random(42);
+				Files.createDirectories(Paths.get(folder, "sub"));
+				for(int i = 0; i < 40; i++) {
+					StringBuilder content = new StringBuilder();
+					for(int j = 0; j < i * 100; j++) content.append("content ").append(i).append(' ');
+					Files.write(Paths.get(folder, "sub", "file" + i + ".txt"), content.toString().getBytes());
+				}
+				byte[] image = new byte[100000], large = new byte[9 * 1024 * 1024];
+				random.nextBytes(image);
+				random.nextBytes(large);
+				Files.write(Paths.get(folder, "image.jpg"), image);
+				Files.write(Paths.get(folder, "large.bin"), large);
+				promise.complete();
+			}
+			catch (IOException e) {
+				promise.fail(e);
+			}
+		}).compose(v -> zipper.zipFolder(zipPath, folder, "testPassword")).compose(v -> vertx.<String>executeBlocking(promise -> {
+			try(ZipFile zip = new ZipFile(zipPath, "testPassword".toCharArray())) {
+				zip.extractAll("target/parallel_zip/extracted");
+				FileHeader image = zip.getFileHeader("folder/image.jpg");
+				if(zip.getFileHeaders().size() != 44) promise.complete("Unexpected entries " + zip.getFileHeaders().size());
+				else if(image.getCompressionMethod() != CompressionMethod.STORE && image.getAesExtraDataRecord().getCompressionMethod() != CompressionMethod.STORE)
+					promise.complete("Stored extension compressed");
+				else if(!Arrays.equals(Files.readAllBytes(Paths.get(folder, "large.bin")), Files.readAllBytes(Paths.get("target/parallel_zip/extracted/folder/large.bin")))
+						|| !Arrays.equals(Files.readAllBytes(Paths.get(folder, "sub", "file39.txt")), Files.readAllBytes(Paths.get("target/parallel_zip/extracted/folder/sub/file39.txt"))))
+					promise.complete("Extracted content differs");
+				else promise.complete();
+			}
+			catch (IOException e) {
+				promise.fail(e);
+			}
+		})).onComplete(ar -> {
+			zipper.close();
+			vertx.fileSystem().deleteRecursive("target/parallel_zip", true);
+			vertx.fileSystem().delete(zipPath);
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(ar.result() != null) testContext.failNow(new NoStackTraceThrowable(ar.result()));
+			else testContext.completeNow();
+		});
+	}
+
+	@Test
+	@DisplayName("incrementalBackup")
+	void incrementalBackup(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig mocked = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		mocked.setPort(5003);
+		mocked.setStorage_endpoint("/v1/AUTH_test/backups");
+		MockSwiftServer mock = new MockSwiftServer(vertx, mocked);
+		String folder = "target/incremental/data", manifestPath = "target/incremental/manifest.json";
+		List<BackupManifest> snapshots = new ArrayList<>();
+		List<Buffer> manifests = new ArrayList<>();
+		vertx.<Void>executeBlocking(promise -> {
+			try {
+				Files.createDirectories(Paths.get(folder, "sub"));
+				Files.write(Paths.get(folder, "a.txt"), "first".getBytes());
+				Files.write(Paths.get(folder, "b.txt"), "second".getBytes());
+				Files.write(Paths.get(folder, "sub", "c.txt"), "third".getBytes());
+				promise.complete();
+			}
+			catch (IOException e) {
+				promise.fail(e);
+			}
+		}).compose(v -> mock.start()).compose(started -> SimpleSwiftClient.create(vertx, mocked)).compose(other ->
+		other.backupFolderIncremental(folder, "testPassword", manifestPath).compose(first -> {
+			snapshots.add(first);
+			return vertx.<Void>executeBlocking(promise -> {
+				try {
+					Files.write(Paths.get(folder, "a.txt"), "first changed".getBytes());
+					Files.delete(Paths.get(folder, "b.txt"));
+					Files.write(Paths.get(folder, "d.txt"), "fourth".getBytes());
+					Files.setLastModifiedTime(Paths.get(folder, "sub", "c.txt"), FileTime.fromMillis(System.currentTimeMillis() + 60000));
+					promise.complete();
+				}
+				catch (IOException e) {
+					promise.fail(e);
+				}
+			});
+		}).compose(v -> other.backupFolderIncremental(folder, "testPassword", manifestPath)).compose(second -> {
+			snapshots.add(second);
+			return other.backupFolderIncremental(folder, "testPassword", manifestPath);
+		}).compose(third -> {
+			snapshots.add(third);
+			return vertx.fileSystem().readFile(manifestPath);
+		}).compose(manifest -> {
+			manifests.add(manifest);
+			// An empty password fails the zip: the delta must not be recorded as backed up
+			return vertx.fileSystem().writeFile(folder + "/e.txt", Buffer.buffer("fifth")).compose(v ->
+			other.backupFolderIncremental(folder, "", manifestPath)).transform(ar -> ar.failed()?
+					vertx.fileSystem().readFile(manifestPath) : Future.failedFuture(new NoStackTraceThrowable("Failed delta backed up")));
+		}).onSuccess(manifests::add).onComplete(v -> other.close())).compose(v -> vertx.<String>executeBlocking(promise -> {
+			BackupManifest first = snapshots.get(0), second = snapshots.get(1), third = snapshots.get(2);
+			try {
+				Files.write(Paths.get("target/incremental/delta.zip"), mock.content("backups", second.getArchive()).getBytes());
+				try(ZipFile zip = new ZipFile("target/incremental/delta.zip", "testPassword".toCharArray())) {
+					List<String> entries = new ArrayList<>();
+					for(FileHeader header : zip.getFileHeaders()) entries.add(header.getFileName());
+					BackupManifest stored = Json.decodeValue(mock.content("backups", "data/" + third.getSnapshot() + ".json"), BackupManifest.class);
+					if(first.getFiles().size() != 3 || first.getArchive() == null) promise.complete("Unexpected first snapshot " + Json.encode(first));
+					else if(!entries.equals(Arrays.asList("data/a.txt", "data/d.txt"))) promise.complete("Unexpected delta " + entries);
+					else if(!second.getDeleted().equals(Arrays.asList("data/b.txt")) || !first.getSnapshot().equals(second.getPrevious()))
+						promise.complete("Unexpected second snapshot " + Json.encode(second));
+					else if(!second.getFiles().get(2).getArchive().equals(first.getArchive())) promise.complete("Unchanged file sent again");
+					else if(third.getArchive() != null || !Json.encode(stored.getFiles()).equals(Json.encode(second.getFiles())))
+						promise.complete("Unexpected third snapshot " + Json.encode(third));
+					else if(!manifests.get(0).equals(manifests.get(1))) promise.complete("Local manifest replaced by a failed backup");
+					else promise.complete();
+				}
+			}
+			catch (IOException e) {
+				promise.fail(e);
+			}
+		})).onComplete(ar -> {
+			mock.close();
+			vertx.fileSystem().deleteRecursive("target/incremental", true);
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(ar.result() != null) testContext.failNow(new NoStackTraceThrowable(ar.result()));
+			else testContext.completeNow();
+		});
+	}
+
+	@Test
+	@DisplayName("dedupStore")
+	void dedupStore(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig mocked = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		mocked.setPort(5004);
+		mocked.setStorage_endpoint("/v1/AUTH_test/dedup");
+		mocked.setDedup_chunk_size(64 * 1024);
+		// A restore window smaller than the recipe: chunks are unsealed as the restore moves on
+		mocked.setDedup_unseal_window(16);
+		MockSwiftServer mock = new MockSwiftServer(vertx, mocked);
+		String folder = "target/dedup", indexPath = "target/dedup/index";
+		byte[] first = new byte[3 * 1024 * 1024], inserted = new byte[1000], second = new byte[first.length + inserted.length];
+		Random random = new Random(7);
+		random.nextBytes(first);
+		random.nextBytes(inserted);
+		System.arraycopy(first, 0, second, 0, first.length / 2);
+		System.arraycopy(inserted, 0, second, first.length / 2, inserted.length);
+		System.arraycopy(first, first.length / 2, second, first.length / 2 + inserted.length, first.length - first.length / 2);
+		List<DedupRecipe> recipes = new ArrayList<>();
+		vertx.fileSystem().mkdirs(folder).compose(v ->
+		vertx.fileSystem().writeFile(folder + "/first.bin", Buffer.buffer(first))).compose(v ->
+		vertx.fileSystem().writeFile(folder + "/second.bin", Buffer.buffer(second))).compose(v ->
+		mock.start()).compose(started -> SimpleSwiftClient.create(vertx, mocked)).compose(other -> {
+			DedupStore store = other.dedupStore(indexPath);
+			return store.storeFile("first", folder + "/first.bin").compose(recipe -> {
+				recipes.add(recipe);
+				return store.storeFile("second", folder + "/second.bin");
+			}).compose(recipe -> {
+				recipes.add(recipe);
+				// Cold storage: the recipe and the chunks have to be unsealed before they are fetched
+				mock.seal("dedup", "recipes/second.json", 1);
+				for(SwiftSegment chunk : recipe.getChunks()) mock.seal("dedup", chunk.getPath(), 1);
+				return store.restoreToFile("second", folder + "/restored.bin");
+			}).compose(v -> vertx.fileSystem().delete(indexPath)).compose(v ->
+			other.dedupStore(indexPath).storeFile("again", folder + "/second.bin")).onSuccess(recipes::add).onComplete(v -> other.close());
+		}).compose(v -> vertx.fileSystem().readFile(folder + "/restored.bin")).onComplete(ar -> {
+			mock.close();
+			vertx.fileSystem().deleteRecursive(folder, true);
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(recipes.get(0).getSent_bytes() != first.length || recipes.get(0).getChunks().size() < 16)
+				testContext.failNow(new NoStackTraceThrowable("Unexpected first recipe " + Json.encode(recipes.get(0))));
+			else if(recipes.get(1).getSent_bytes() > second.length / 10 || recipes.get(1).getSize_bytes() != second.length)
+				testContext.failNow(new NoStackTraceThrowable("Insertion not deduplicated, sent " + recipes.get(1).getSent_bytes()));
+			else if(!Arrays.equals(second, ar.result().getBytes())) testContext.failNow(new NoStackTraceThrowable("Restored content differs"));
+			else if(recipes.get(2).getSent_chunks() != 0) testContext.failNow(new NoStackTraceThrowable("Index not rebuilt from listing"));
+			else testContext.completeNow();
+		});
+	}
+
+	@Test
+	@DisplayName("bulkUpload")
+	void bulkUpload(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig mocked = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		mocked.setPort(5005);
+		mocked.setStorage_endpoint("/v1/AUTH_test/bulk");
+		mocked.setBulk_upload_files(100);
+		MockSwiftServer mock = new MockSwiftServer(vertx, mocked);
+		String folder = "target/bulk_upload";
+		String longName = new String(new char[200]).replace('\0', 'l');
+		String mediumPath = "medium/" + longName + "/file.txt", tooLongPath = longName + "/" + longName + "/" + longName + "/" + longName + "/" + longName + "/" + longName + "/file.txt";
+		List<Map<String, Boolean>> results = new ArrayList<>();
+		long[] requests = new long[2];
+		vertx.<Void>executeBlocking(promise -> {
+			try {
+				for(int i = 0; i < 250; i++) {
+					Files.createDirectories(Paths.get(folder, "dir" + i % 5));
+					Files.write(Paths.get(folder, "dir" + i % 5, "file" + i + ".txt"), ("content " + i).getBytes());
+				}
+				for(String path : Arrays.asList(mediumPath, tooLongPath)) {
+					Files.createDirectories(Paths.get(folder, path).getParent());
+					Files.write(Paths.get(folder, path), path.getBytes());
+				}
+				promise.complete();
+			}
+			catch (IOException e) {
+				promise.fail(e);
+			}
+		}).compose(v -> mock.start()).compose(started -> SimpleSwiftClient.create(vertx, mocked)).compose(other -> {
+			requests[0] = mock.requestCount();
+			return other.uploadFolder(folder, "gzipped/", true).compose(gzipped -> {
+				requests[1] = mock.requestCount();
+				results.add(gzipped);
+				return other.uploadFolder(folder, null, false);
+			}).onSuccess(results::add).onComplete(v -> other.close());
+		}).onComplete(ar -> {
+			vertx.fileSystem().deleteRecursive(folder, true);
+			mock.close();
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(results.get(0).size() != 252 || results.get(1).size() != 252) testContext.failNow(new NoStackTraceThrowable("Unexpected result count"));
+			else if(results.get(0).get("gzipped/" + tooLongPath) || results.get(1).get(tooLongPath)) testContext.failNow(new NoStackTraceThrowable("Too long name not reported"));
+			else if(results.get(0).values().stream().filter(created -> created).count() != 251 || results.get(1).values().stream().filter(created -> created).count() != 251)
+				testContext.failNow(new NoStackTraceThrowable("Files not created " + results));
+			else if(!mock.content("bulk", "gzipped/dir3/file8.txt").toString().equals("content 8") || !mock.content("bulk", mediumPath).toString().equals(mediumPath))
+				testContext.failNow(new NoStackTraceThrowable("Unexpected content"));
+			else if(requests[1] - requests[0] > 4) testContext.failNow(new NoStackTraceThrowable("Too many requests " + (requests[1] - requests[0])));
+			else testContext.completeNow();
+		});
+	}
+
+	@Test
+	@DisplayName("failedBulkUpload")
+	void failedBulkUpload(Vertx vertx, VertxTestContext testContext) throws Throwable {
+		SwiftConfig mocked = Json.decodeValue(Json.encode(config), SwiftConfig.class);
+		mocked.setPort(5007);
+		mocked.setStorage_endpoint("/v1/AUTH_test/bulk");
+		MockSwiftServer mock = new MockSwiftServer(vertx, mocked).setLatency(1000, 1000);
+		String folder = "target/failed_bulk_upload";
+		vertx.<Void>executeBlocking(promise -> {
+			try {
+				byte[] content = new byte[300 * 1024];
+				new Random(3).nextBytes(content);
+				Files.createDirectories(Paths.get(folder));
+				Files.write(Paths.get(folder, "a.bin"), content);
+				Files.write(Paths.get(folder, "zz.txt"), "last".getBytes());
+				promise.complete();
+			}
+			catch (IOException e) {
+				promise.fail(e);
+			}
+		}).compose(v -> mock.start()).compose(started -> SimpleSwiftClient.create(vertx, mocked)).compose(other -> {
+			// Removed once listed, while the capabilities are retrieved: the archive fails after its first entry
+			vertx.setTimer(300, timer -> vertx.fileSystem().delete(folder + "/zz.txt"));
+			return other.uploadFolder(folder, null, false).onComplete(v -> other.close());
+		}).onComplete(ar -> {
+			vertx.fileSystem().deleteRecursive(folder, true);
+			mock.close();
+			if(ar.failed()) testContext.failNow(ar.cause());
+			else if(ar.result().size() != 2 || ar.result().containsValue(true)) testContext.failNow(new NoStackTraceThrowable("Failed archive reported " + ar.result()));
+			else if(!mock.names("bulk").isEmpty()) testContext.failNow(new NoStackTraceThrowable("Truncated archive extracted " + mock.names("bulk")));
+			else testContext.completeNow();
+		});
+	}
+
 	@AfterAll
 	@DisplayName("After")
 	static void after(Vertx vertx, VertxTestContext testContext) throws Throwable {
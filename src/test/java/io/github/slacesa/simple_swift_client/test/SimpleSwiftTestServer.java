@@ -1,7 +1,12 @@
 package io.github.slacesa.simple_swift_client.test;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import org.joda.time.DateTime;
@@ -14,8 +19,10 @@ import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
@@ -36,11 +43,17 @@ public class SimpleSwiftTestServer {
 	private SwiftConfig config;
 	private String testToken;
 	private List<SwiftFile> fileList;
+	private Buffer fileContent;
+	private Map<String, Long> unsealTimes = new HashMap<>();
+	private int authCount;
+	private int failures, failureStatus;
 
 	private SimpleSwiftTestServer(Vertx vertx, SwiftConfig config) {
 		this.vertx = vertx;
 		this.config = config;
 		this.testToken = "49nif938f3j9ij94ihif09u3fu4ih34fh99h43hf9h";
+		this.fileContent = Buffer.buffer();
+		for(int i = 0; i < 100; i++) fileContent.appendByte((byte) (i % 7));
 	}
 
 	public static Future<HttpServer> getTestServer(Vertx vertx, SwiftConfig config) {
@@ -52,6 +65,31 @@ public class SimpleSwiftTestServer {
 		else return Future.succeededFuture(server); 
 	}
 
+	/**
+	 * Revokes the current token, requests sent with it are rejected with 401 and authentication issues a new one
+	 */
+	public static void revokeToken() {
+		thisServer.testToken = Long.toHexString(Double.doubleToLongBits(Math.random()));
+	}
+
+	/**
+	 * The number of successful authentications so far
+	 * @return the authentication count
+	 */
+	public static int authCount() {
+		return thisServer.authCount;
+	}
+
+	/**
+	 * Answers the next storage requests with an error status, as an overloaded proxy would
+	 * @param count the number of requests to fail
+	 * @param status the status code to answer with
+	 */
+	public static void failNext(int count, int status) {
+		thisServer.failures = count;
+		thisServer.failureStatus = status;
+	}
+
 	private Future<HttpServer> initTestServer() {
 		Promise<HttpServer> result = Promise.promise();
 
@@ -69,14 +107,33 @@ public class SimpleSwiftTestServer {
 		router.get("/").handler(context -> {
 			context.response().end("Hello Test");
 		});
+		router.get("/info").handler(context -> {
+			context.response().putHeader("Content-Type", "application/json")
+			.end(new JsonObject()
+					.put("bulk_delete", new JsonObject().put("max_deletes_per_request", 2))
+					.put("slo", new JsonObject().put("max_manifest_segments", 1000)).encode());
+		});
+		router.post("/").handler(BodyHandler.create());
+		router.post("/").handler(this::bulkDelete);
 		router.route(config.getAuth_endpoint()+"*").handler(BodyHandler.create());
 		router.post(config.getAuth_endpoint()).handler(this::auth);
 		
+		router.route(config.getStorage_endpoint()+"*").handler(context -> {
+			if(failures <= 0) context.next();
+			else {
+				failures--;
+				context.response().putHeader("Retry-After", "0").setStatusCode(failureStatus).end();
+			}
+		});
 		router.route(config.getStorage_endpoint()+"*").handler(BodyHandler.create());
 		router.get(config.getStorage_endpoint()).handler(this::getList);
+		router.head(config.getStorage_endpoint()).handler(context -> {
+			context.response().putHeader("X-Container-Object-Count", Integer.toString(fileList.size())).setStatusCode(204).end();
+		});
 		
 		router.route(config.getStorage_endpoint()+"/*").handler(BodyHandler.create());
 		router.get(config.getStorage_endpoint()+"/*").handler(this::getFile);
+		router.head(config.getStorage_endpoint()+"/*").handler(this::getFile);
 		router.put(config.getStorage_endpoint()+"/*").handler(this::putFile);
 		router.delete(config.getStorage_endpoint()+"/*").handler(this::deleteFile);
 
@@ -95,6 +152,7 @@ public class SimpleSwiftTestServer {
 	private void auth(RoutingContext routingContext) {
 		JsonObject request = routingContext.getBodyAsJson();
 		if(new AuthMessage(config.getUsername(), config.getPassword()).parse().equals(request)) {
+			authCount++;
 			routingContext.response()
 			.putHeader("Content-Type", "application/json")
 			.putHeader("X-Subject-Token", testToken)
@@ -114,14 +172,32 @@ public class SimpleSwiftTestServer {
 	}
 
 	private void getList(RoutingContext routingContext) {
-		if(!testToken.equals(routingContext.request().getHeader("X-Auth-Token"))) routingContext.fail(400); 
+		if(!testToken.equals(routingContext.request().getHeader("X-Auth-Token"))) routingContext.fail(401); 
 		else if(fileList == null) routingContext.fail(404);
-		else routingContext.response().setStatusCode(200).end(Json.encodeToBuffer(fileList));
+		else {
+			String prefix = routingContext.request().getParam("prefix", "");
+			String marker = routingContext.request().getParam("marker", "");
+			String delimiter = routingContext.request().getParam("delimiter");
+			int limit = Integer.parseInt(routingContext.request().getParam("limit", "10000"));
+			List<SwiftFile> sorted = new ArrayList<>(fileList);
+			sorted.sort((a, b) -> a.getName().compareTo(b.getName()));
+			JsonArray page = new JsonArray();
+			for(SwiftFile file : sorted) {
+				if(page.size() == limit) break;
+				if(!file.getName().startsWith(prefix)) continue;
+				int folder = (delimiter == null)? -1 : file.getName().indexOf(delimiter, prefix.length());
+				String name = (folder < 0)? file.getName() : file.getName().substring(0, folder + delimiter.length());
+				if(name.compareTo(marker) <= 0) continue;
+				page.add(folder < 0? JsonObject.mapFrom(file) : new JsonObject().put("subdir", name));
+				marker = name;
+			}
+			routingContext.response().setStatusCode(200).end(page.toBuffer());
+		}
 	}
 
 	private void getFile(RoutingContext routingContext) {
 		if(!testToken.equals(routingContext.request().getHeader("X-Auth-Token"))) {
-			routingContext.fail(400);
+			routingContext.fail(401);
 			return;
 		}
 		// TODO Could also check the validity of headers, as checksum,  
@@ -133,25 +209,101 @@ public class SimpleSwiftTestServer {
 		for(SwiftFile file : fileList) {
 			if(filename!=null && filename.equals(file.getName())) {
 				found = true;
-				if(file.getPolicy_retrieval_state().equals(PolicyRetrievalStates.UNSEALED.getValue()))
-						routingContext.response().setStatusCode(200).end(Buffer.buffer(new byte[100]));
-				else routingContext.response().setStatusCode(429).putHeader("Retry-After", "1000").end();
+				if(file.getPolicy_retrieval_state() == null || file.getPolicy_retrieval_state().equals(PolicyRetrievalStates.UNSEALED.getValue()))
+					sendContent(routingContext, fileContent);
+				else {
+					// The first request unseals the file, it becomes available after its retrieval delay
+					long unsealedAt = unsealTimes.computeIfAbsent(filename, name -> System.currentTimeMillis() + file.getPolicy_retrieval_delay() * 1000L);
+					long remaining = unsealedAt - System.currentTimeMillis();
+					if(remaining <= 0) sendContent(routingContext, fileContent);
+					else routingContext.response().setStatusCode(429).putHeader("Retry-After", Long.toString((remaining + 999) / 1000)).end();
+				}
 			}
 		}
 		if(!found) routingContext.response().setStatusCode(404).end();
 	}
 
+	private void sendContent(RoutingContext routingContext, Buffer content) {
+		String range = routingContext.request().getHeader("Range");
+		routingContext.response().putHeader("Etag", md5(content));
+		if(routingContext.request().method() == HttpMethod.HEAD) {
+			routingContext.response().setStatusCode(200)
+			.putHeader("Content-Length", Integer.toString(content.length()))
+			.putHeader("Content-Type", "text/plain;charset=utf-8")
+			.putHeader("Last-Modified", "Fri, 21 Feb 2020 12:46:00 GMT")
+			.end();
+		}
+		else if(range != null && range.startsWith("bytes=")) {
+			String[] bounds = range.substring("bytes=".length()).split("-");
+			int start = Integer.parseInt(bounds[0]);
+			int end = Math.min(Integer.parseInt(bounds[1]), content.length() - 1);
+			routingContext.response().setStatusCode(206)
+			.putHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.length())
+			.end(content.slice(start, end + 1));
+		}
+		else routingContext.response().setStatusCode(200).end(content);
+	}
+
 	private void putFile(RoutingContext routingContext) {
 		if(!testToken.equals(routingContext.request().getHeader("X-Auth-Token"))) {
+			routingContext.fail(401);
+			return;
+		}
+		String length = routingContext.request().getHeader("Content-Length");
+		if(length != null && Long.parseLong(length) != routingContext.body().buffer().length()) {
 			routingContext.fail(400);
 			return;
 		}
-		routingContext.response().setStatusCode(201).end();
+		String etag = md5(routingContext.body().buffer());
+		String expected = routingContext.request().getHeader("Etag");
+		if(expected != null && !expected.equals(etag)) {
+			routingContext.response().setStatusCode(422).end();
+			return;
+		}
+		routingContext.response().setStatusCode(201).putHeader("Etag", etag).end();
+	}
+
+	private static String md5(Buffer content) {
+		try {
+			StringBuilder hex = new StringBuilder();
+			for(byte b : MessageDigest.getInstance("MD5").digest(content.getBytes()))
+				hex.append(String.format("%02x", b));
+			return hex.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	private void bulkDelete(RoutingContext routingContext) {
+		if(!testToken.equals(routingContext.request().getHeader("X-Auth-Token"))) {
+			routingContext.fail(401);
+			return;
+		}
+		if(routingContext.request().getParam("bulk-delete") == null) {
+			routingContext.fail(405);
+			return;
+		}
+		int deleted = 0, notFound = 0;
+		for(String path : routingContext.body().asString().split("\n")) {
+			if(path.isEmpty()) continue;
+			boolean found = false;
+			for(SwiftFile file : fileList)
+				if(path.equals(config.getStorage_endpoint() + "/" + file.getName())) found = true;
+			if(found) deleted++;
+			else notFound++;
+		}
+		routingContext.response().setStatusCode(200).putHeader("Content-Type", "application/json")
+		.end(new JsonObject()
+				.put("Number Deleted", deleted)
+				.put("Number Not Found", notFound)
+				.put("Response Status", "200 OK")
+				.put("Errors", new JsonArray()).encode());
 	}
 
 	private void deleteFile(RoutingContext routingContext) {
 		if(!testToken.equals(routingContext.request().getHeader("X-Auth-Token"))) {
-			routingContext.fail(400);
+			routingContext.fail(401);
 			return;
 		}
 		String filename = null;